@@ -7,6 +7,7 @@ import java.lang.reflect.Array;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.JDBCType;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -17,8 +18,11 @@ import java.sql.Types;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
@@ -34,7 +38,13 @@ import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.stream.Collectors;
@@ -443,14 +453,80 @@ public class BabelDBJdbcDriver extends BaseJdbcDriver implements AutoCloseable {
 		// TODO check for basic select *
 		//  String starQ = "SELECT * FROM "+TMPNAME.toUpperCase();
 		
-		for(int i=0; i<commands.size(); i++) {
-			List<String> cmdArg = commands.get(i);
-			ResultSet rs = run(cmdArg.get(1), dropFirst(2,cmdArg), millisStalenessPermitted);
-			dropCreatePopulate(rs, cmdArg.get(0));
+		// Nested babel queries run serially, otherwise they could wait on the pool threads they are occupying. 
+		if(commands.size() == 1 || IN_SUBQUERY_WORKER.get()) {
+			for(int i=0; i<commands.size(); i++) {
+				List<String> cmdArg = commands.get(i);
+				ResultSet rs = run(cmdArg.get(1), dropFirst(2,cmdArg), millisStalenessPermitted);
+				dropCreatePopulate(rs, cmdArg.get(0));
+			}
+		} else {
+			runConcurrently(commands, millisStalenessPermitted);
 		}
 		return underlyingQuery(qt.getTranslatedQuery());
 	}
 
+	private static final ThreadLocal<Boolean> IN_SUBQUERY_WORKER = ThreadLocal.withInitial(() -> false);
+	/** Bounded pool that the independent sub-queries of babel queries are fanned out on. */
+	private static final ExecutorService SUBQUERY_EXECUTOR = Executors.newFixedThreadPool(8, r -> {
+		Thread t = new Thread(() -> {
+			IN_SUBQUERY_WORKER.set(true);
+			r.run();
+		}, "babeldb-subquery");
+		t.setDaemon(true);
+		return t;
+	});
+	/** Limits the number of sub-queries running at once against each query_db target server. */
+	private static final ConcurrentHashMap<String, Semaphore> SERVER_PERMITS = new ConcurrentHashMap<>();
+
+	/**
+	 * Run all commands at the same time and populate each temporary table as soon as its result arrives.
+	 * If any command fails the remaining ones are cancelled and that failure is thrown.
+	 */
+	private void runConcurrently(List<List<String>> commands, int millisStalenessPermitted) throws IOException, SQLException {
+		CompletionService<ResultSet> completionService = new ExecutorCompletionService<>(SUBQUERY_EXECUTOR);
+		Map<Future<ResultSet>, String> futureToTable = new HashMap<>();
+		for(List<String> cmdArg : commands) {
+			Future<ResultSet> f = completionService.submit(() -> runWithServerPermit(cmdArg.get(1), dropFirst(2,cmdArg), millisStalenessPermitted));
+			futureToTable.put(f, cmdArg.get(0));
+		}
+		try {
+			for(int i=0; i<commands.size(); i++) {
+				Future<ResultSet> f = completionService.take();
+				dropCreatePopulate(f.get(), futureToTable.get(f));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for sub-queries", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if(cause instanceof SQLException) {
+				throw (SQLException) cause;
+			} else if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			futureToTable.keySet().forEach(f -> f.cancel(true));
+		}
+	}
+
+	private ResultSet runWithServerPermit(String cmd, List<String> cmdArgs, int millisStalenessPermitted) throws IOException, InterruptedException {
+		if(!cmd.equalsIgnoreCase("db") || dbrunner == null || cmdArgs.isEmpty()) {
+			return run(cmd, cmdArgs, millisStalenessPermitted);
+		}
+		String targetDB = cmdArgs.get(0);
+		Semaphore permits = SERVER_PERMITS.computeIfAbsent(targetDB.toUpperCase(), k -> new Semaphore(Math.max(1, dbrunner.getMaxConcurrentQueries(targetDB))));
+		permits.acquire();
+		try {
+			return run(cmd, cmdArgs, millisStalenessPermitted);
+		} finally {
+			permits.release();
+		}
+	}
+
 	private static ResultSet getSymbolDetailsRS() {
 		String[] symbols = new String[SYMBOL_DETAILS.size()];
 		String[] dbs = new String[SYMBOL_DETAILS.size()];
@@ -512,14 +588,151 @@ public class BabelDBJdbcDriver extends BaseJdbcDriver implements AutoCloseable {
 	}
 	
 
+	/** Number of rows sent to the in-memory database in each batch / INSERT statement when populating a table. */
+	private static final int INSERT_CHUNK_ROWS = 10_000;
+	private static final DateTimeFormatter YYYY_MM_DD = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+	/**
+	 * Replace the table fullTblName with the contents of rs in one transaction.
+	 * Where every column type can be bound as a parameter rows are streamed in as prepared statement batches,
+	 * otherwise as a series of bounded multi-row INSERT statements. Either way the rows are sent in chunks 
+	 * rather than as one SQL string for the whole table.
+	 */
 	public void dropCreatePopulate(ResultSet rs, String fullTblName) throws SQLException {
-		StringBuilder sb = new StringBuilder();
-		sb.append("BEGIN TRANSACTION;\r\n");
-		sb.append("DROP TABLE IF EXISTS " + fullTblName + ";\r\n");
-		sb.append("CREATE TABLE " + fullTblName + getCreate(rs, sqlHandler));
-		appendTableInserts(sb, fullTblName, rs, sqlHandler);
-		sb.append("\r\nCOMMIT;");
-		run(sb.toString());
+		String create = "CREATE TABLE " + fullTblName + getCreate(rs, sqlHandler);
+		synchronized (memConn) {
+			boolean autoCommit = memConn.getAutoCommit();
+			memConn.setAutoCommit(false);
+			try(Statement st = memConn.createStatement()) {
+				st.execute("DROP TABLE IF EXISTS " + fullTblName);
+				log.debug(create);
+				st.execute(create);
+				int rows = 0;
+				if(isBindable(rs.getMetaData())) {
+					rows = batchInsert(memConn, fullTblName, rs);
+				} else {
+					StringBuilder sb = new StringBuilder();
+					int chunkRows;
+					while((chunkRows = appendTableInserts(sb, fullTblName, rs, sqlHandler, INSERT_CHUNK_ROWS)) > 0) {
+						st.execute(sb.toString());
+						sb.setLength(0);
+						rows += chunkRows;
+					}
+				}
+				memConn.commit();
+				log.debug("Populated " + fullTblName + " with " + rows + " rows");
+			} catch(SQLException | RuntimeException e) {
+				memConn.rollback();
+				throw e;
+			} finally {
+				memConn.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	/** @return true if all columns have types that {@link #batchInsert(Connection, String, ResultSet)} can bind. */
+	private static boolean isBindable(ResultSetMetaData rsmd) throws SQLException {
+		for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+	        switch(rsmd.getColumnType(i)) {
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                case Types.BIGINT: 
+                case Types.BOOLEAN: 
+                case Types.BIT:
+                case Types.DATE: 
+                case Types.DOUBLE: 
+                case Types.FLOAT:
+                case Types.INTEGER: 
+                case Types.REAL:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                case Types.TIMESTAMP:
+                	break;
+                default:
+                	return false;
+	        }
+		}
+		return true;
+	}
+
+	/**
+	 * Insert all rows of rs into tableName using a prepared statement executed in batches.
+	 * Values are converted to match what the textual INSERT would have stored.
+	 * @return The number of rows inserted.
+	 */
+	private static int batchInsert(Connection conn, String tableName, ResultSet rs) throws SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int cn = rsmd.getColumnCount();
+		int[] colTypes = new int[cn];
+		StringBuilder sb = new StringBuilder("INSERT INTO " + tableName + " VALUES (");
+		for (int i = 1; i <= cn; i++) {
+			colTypes[i-1] = rsmd.getColumnType(i);
+			sb.append(i == 1 ? "?" : ",?");
+		}
+		sb.append(")");
+		
+		int rows = 0;
+		try(PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+			while (rs.next()) {
+			    for (int i = 1; i <= cn; i++) {
+			    	if(colTypes[i-1] == Types.CHAR || colTypes[i-1] == Types.VARCHAR || colTypes[i-1] == Types.NCHAR 
+			    			|| colTypes[i-1] == Types.NVARCHAR || colTypes[i-1] == Types.LONGNVARCHAR) {
+			    		ps.setString(i, rs.getString(i));
+			    	} else {
+			    		ps.setObject(i, toBindable(colTypes[i-1], rs.getObject(i)));
+			    	}
+			    }
+			    ps.addBatch();
+			    if(++rows % INSERT_CHUNK_ROWS == 0) {
+			    	ps.executeBatch();
+			    }
+			}
+			if(rows % INSERT_CHUNK_ROWS != 0) {
+				ps.executeBatch();
+			}
+		}
+		return rows;
+	}
+
+	private static Object toBindable(int sqlType, Object o) {
+		if(o == null) {
+			return null;
+		}
+		switch(sqlType) {
+			case Types.DOUBLE:
+			case Types.FLOAT:
+				if(o instanceof Double && Double.isNaN((Double)o) || o instanceof Float && Float.isNaN((Float)o)) {
+					return null;
+				}
+				return o;
+			case Types.DATE:
+				if(o instanceof java.sql.Date) {
+					return ((java.sql.Date) o).toLocalDate();
+				} else if(o instanceof java.util.Date) {
+					return ((java.util.Date) o).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+				} else if(o instanceof LocalDate) {
+					return o;
+				}
+                log.warn("Warning unsupported type = " + sqlType + " -> " + o);
+                return null;
+			case Types.TIMESTAMP:
+				// Timestamps are stored as their wall clock time, as the textual insert did.
+				if(o instanceof Timestamp) {
+					return ((Timestamp) o).toLocalDateTime();
+				} else if(o instanceof Instant) {
+					return LocalDateTime.ofInstant((Instant) o, ZoneOffset.UTC);
+				} else if(o instanceof LocalDateTime) {
+					return o;
+				}
+				return o.toString().replace("T", " ").replace("Z", "");
+			default:
+		}
+		return o;
 	}
 	
 	public boolean run(String sql) throws SQLException {
@@ -552,12 +765,17 @@ public class BabelDBJdbcDriver extends BaseJdbcDriver implements AutoCloseable {
 	
 
 	
-	private static int appendTableInserts(StringBuilder sb, String tableName, ResultSet rs, SqlHandler sqlHandler) throws SQLException {
+	/**
+	 * Append a multi-row INSERT statement for up to maxRows of the remaining rows in rs.
+	 * @return The number of rows appended, if 0 nothing was appended.
+	 */
+	private static int appendTableInserts(StringBuilder sb, String tableName, ResultSet rs, SqlHandler sqlHandler, int maxRows) throws SQLException {
 		int rows = 0;
 		ResultSetMetaData rsmd = rs.getMetaData();
 		int cn = rsmd.getColumnCount();
+		int startLength = sb.length();
 		sb.append("INSERT INTO " + tableName + " VALUES");
-		while (rs.next()) {
+		while (rows < maxRows && rs.next()) {
 			if(rows > 0) {
 				sb.append(",");
 			}
@@ -590,12 +808,11 @@ public class BabelDBJdbcDriver extends BaseJdbcDriver implements AutoCloseable {
 	                	} else {
 		                	String ds = null;
 		                	if(o instanceof java.sql.Date) {
-			                	ds = new SimpleDateFormat("yyyy-MM-dd").format((java.sql.Date) o);
+			                	ds = YYYY_MM_DD.format(((java.sql.Date) o).toLocalDate());
 				        	} else if(o instanceof java.util.Date) {
-			                	ds = new SimpleDateFormat("yyyy-MM-dd").format((java.util.Date) o);
+			                	ds = YYYY_MM_DD.format(((java.util.Date) o).toInstant().atZone(ZoneId.systemDefault()));
 				        	} else if(o instanceof LocalDate) {
-				        		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-			                	ds = formatter.format((LocalDate) o);
+			                	ds = YYYY_MM_DD.format((LocalDate) o);
 				        	} else {
 	                        	log.warn("Warning unsupported type = " + ct + " -> " + o);
 	                        	// Should I just pass the string rather than null?
@@ -675,7 +892,11 @@ public class BabelDBJdbcDriver extends BaseJdbcDriver implements AutoCloseable {
 			rows++;
 			sb.append(")");
         }
-		sb.append(";");
+		if(rows == 0) {
+			sb.setLength(startLength);
+		} else {
+			sb.append(";");
+		}
 		return rows;
 	}	
 
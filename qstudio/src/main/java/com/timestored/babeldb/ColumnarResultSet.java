@@ -0,0 +1,479 @@
+/*******************************************************************************
+ *
+ *   $$$$$$$\            $$\                     
+ *   $$  __$$\           $$ |                     
+ *   $$ |  $$ |$$\   $$\ $$ | $$$$$$$\  $$$$$$\   
+ *   $$$$$$$  |$$ |  $$ |$$ |$$  _____|$$  __$$\  
+ *   $$  ____/ $$ |  $$ |$$ |\$$$$$$\  $$$$$$$$ |  
+ *   $$ |      $$ |  $$ |$$ | \____$$\ $$   ____|  
+ *   $$ |      \$$$$$$  |$$ |$$$$$$$  |\$$$$$$$\  
+ *   \__|       \______/ \__|\_______/  \_______|
+ *
+ *  Copyright c 2022-2023 TimeStored
+ *
+ *  Licensed under the Reciprocal Public License RPL-1.5
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/license/rpl-1-5/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+ 
+package com.timestored.babeldb;
+
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLData;
+import java.sql.SQLException;
+import java.sql.Struct;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.RowSet;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.serial.SerialArray;
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+import javax.sql.rowset.serial.SerialStruct;
+
+/**
+ * Column oriented {@link CachedRowSet} populated directly from a driver {@link ResultSet}.
+ * Integer, long, double, float, short and boolean columns are held in primitive arrays with a null bitmap
+ * and repeated strings within a column share one instance, rather than the boxed Object[] per row that the
+ * JDK CachedRowSet stores. Values are returned as the driver's getObject returned them, other than arrays,
+ * LOBs and structs which are copied into their javax.sql.rowset.serial forms as the JDK CachedRowSet does.
+ */
+public class ColumnarResultSet extends SimpleResultSet {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	/** Stop de-duplicating a string column once it has this many distinct values, it's unlikely to be repetitive. */
+	private static final int MAX_DICTIONARY_SIZE = 65_536;
+
+	/** Number of values looked at when estimating the size of an object column. */
+	private static final int ESTIMATE_SAMPLES = 256;
+
+	private final Column[] cols;
+	private final ResultSetMetaData metaData;
+	private boolean wasNull;
+
+	private ColumnarResultSet(String[] colNames, Column[] cols, ResultSetMetaData metaData) {
+		super(colNames, toArrays(cols));
+		this.cols = cols;
+		this.metaData = metaData;
+	}
+
+	private static Object[] toArrays(Column[] cols) {
+		Object[] r = new Object[cols.length];
+		for(int c=0; c<cols.length; c++) {
+			r[c] = cols[c].data;
+		}
+		return r;
+	}
+
+	/**
+	 * Read all remaining rows of a driver {@link ResultSet} into column arrays.
+	 * The passed ResultSet is not closed.
+	 */
+	public static ColumnarResultSet from(ResultSet rs) throws SQLException {
+		ResultSetMetaData md = rs.getMetaData();
+		int colCount = md.getColumnCount();
+		String[] colNames = new String[colCount];
+		Column[] cols = new Column[colCount];
+		for(int c=0; c<colCount; c++) {
+			colNames[c] = nullToEmpty(md.getColumnLabel(c+1));
+			cols[c] = new Column();
+		}
+		
+		int row = 0;
+		while(rs.next()) {
+			for(int c=0; c<colCount; c++) {
+				cols[c].add(row, toSerial(rs.getObject(c+1)));
+			}
+			row++;
+		}
+		for(Column col : cols) {
+			col.trim(row);
+		}
+		return new ColumnarResultSet(colNames, cols, copyMetaData(md));
+	}
+
+	/**
+	 * Wrap driver LOB, array and structured values in their serializable forms, as the JDK CachedRowSet populate does,
+	 * so that they are still readable once the statement is closed.
+	 */
+	private static Object toSerial(Object o) throws SQLException {
+		if(o instanceof Struct) {
+			return new SerialStruct((Struct) o, Collections.emptyMap());
+		} else if(o instanceof SQLData) {
+			return new SerialStruct((SQLData) o, Collections.emptyMap());
+		} else if(o instanceof Blob) {
+			return new SerialBlob((Blob) o);
+		} else if(o instanceof Clob) {
+			return new SerialClob((Clob) o);
+		} else if(o instanceof java.sql.Array) {
+			return new SerialArray((java.sql.Array) o);
+		}
+		return o;
+	}
+
+	/** Take a detached copy of the drivers meta data in the same manner as the JDK CachedRowSet does. */
+	private static ResultSetMetaData copyMetaData(ResultSetMetaData md) throws SQLException {
+		RowSetMetaDataImpl r = new RowSetMetaDataImpl();
+		int colCount = md.getColumnCount();
+		r.setColumnCount(colCount);
+		for(int c=1; c<=colCount; c++) {
+			r.setColumnLabel(c, md.getColumnLabel(c));
+			r.setColumnName(c, md.getColumnName(c));
+			r.setColumnType(c, md.getColumnType(c));
+			r.setColumnTypeName(c, md.getColumnTypeName(c));
+			try {
+				r.setNullable(c, md.isNullable(c));
+				r.setSigned(c, md.isSigned(c));
+				r.setCurrency(c, md.isCurrency(c));
+				r.setCaseSensitive(c, md.isCaseSensitive(c));
+				r.setAutoIncrement(c, md.isAutoIncrement(c));
+				r.setSearchable(c, md.isSearchable(c));
+				r.setColumnDisplaySize(c, Math.max(0, md.getColumnDisplaySize(c)));
+				r.setSchemaName(c, nullToEmpty(md.getSchemaName(c)));
+				r.setTableName(c, nullToEmpty(md.getTableName(c)));
+				r.setCatalogName(c, nullToEmpty(md.getCatalogName(c)));
+			} catch(SQLException | RuntimeException e) {
+				// in-memory result sets may not support these, they are informational only
+			}
+			try {
+				// some drivers report unbounded columns as -1 or very large numbers
+				r.setPrecision(c, Math.max(0, md.getPrecision(c)));
+				r.setScale(c, Math.max(0, md.getScale(c)));
+			} catch(SQLException | RuntimeException e) {
+				// precision is informational only
+			}
+		}
+		return r;
+	}
+
+	private static String nullToEmpty(String s) { return s == null ? "" : s; }
+
+	@Override public ResultSetMetaData getMetaData() throws SQLException { return metaData; }
+
+	@Override public Object getObject(int columnIndex) throws SQLException {
+		Object o = cols[columnIndex-1].get(getRow()-1);
+		wasNull = o == null;
+		return o;
+	}
+
+	@Override public Object getObjectAt(int row, int column) {
+		return cols[column].get(row);
+	}
+
+	/** @return The array holding the column or null if it contains nulls as those are not marked within the array. */
+	@Override public Object getColumnArray(int column) {
+		return cols[column].nulls == null ? cols[column].data : null;
+	}
+
+	@Override public boolean wasNull() throws SQLException { return wasNull; }
+
+	@Override public RowSet createShared() throws SQLException {
+		return new ColumnarResultSet(getColNames(), cols, metaData);
+	}
+
+	/**
+	 * @return Approximate heap used by the column data in bytes, sampling object columns rather than walking every value.
+	 */
+	public long getEstimatedBytes() {
+		long bytes = 0;
+		for(Column col : cols) {
+			bytes += col.estimateBytes(size());
+		}
+		return bytes;
+	}
+
+	@Override public String getString(int columnIndex) throws SQLException {
+		Object o = getObject(columnIndex);
+		return o == null ? null : o.toString();
+	}
+
+	@Override public boolean getBoolean(int columnIndex) throws SQLException {
+		Object o = getObject(columnIndex);
+		if(o instanceof Boolean) {
+			return (Boolean) o;
+		}
+		return o instanceof Number && ((Number)o).doubleValue() != 0;
+	}
+
+	@Override public short getShort(int columnIndex) throws SQLException { return (short) getLong(columnIndex); }
+	@Override public int getInt(int columnIndex) throws SQLException { return (int) getLong(columnIndex); }
+	@Override public float getFloat(int columnIndex) throws SQLException { return (float) getDouble(columnIndex); }
+
+	@Override public long getLong(int columnIndex) throws SQLException {
+		Column col = cols[columnIndex-1];
+		int row = getRow()-1;
+		wasNull = col.isNull(row);
+		return wasNull ? 0 : col.getLong(row);
+	}
+
+	@Override public double getDouble(int columnIndex) throws SQLException {
+		Column col = cols[columnIndex-1];
+		int row = getRow()-1;
+		wasNull = col.isNull(row);
+		return wasNull ? 0 : col.getDouble(row);
+	}
+
+	@Override public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		Object o = getObject(columnIndex);
+		if(o == null || o instanceof BigDecimal) {
+			return (BigDecimal) o;
+		}
+		return new BigDecimal(o.toString().trim());
+	}
+
+	@Override public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		Object o = getObject(columnIndex);
+		if(o == null || o instanceof Timestamp) {
+			return (Timestamp) o;
+		} else if(o instanceof java.util.Date) {
+			return new Timestamp(((java.util.Date)o).getTime());
+		}
+		throw new SQLException("Cannot convert " + o.getClass().getSimpleName() + " to Timestamp");
+	}
+
+	@Override public Date getDate(int columnIndex) throws SQLException {
+		Object o = getObject(columnIndex);
+		if(o == null || o instanceof Date) {
+			return (Date) o;
+		} else if(o instanceof java.util.Date) {
+			return new Date(((java.util.Date)o).getTime());
+		}
+		throw new SQLException("Cannot convert " + o.getClass().getSimpleName() + " to Date");
+	}
+
+	@Override public Time getTime(int columnIndex) throws SQLException {
+		Object o = getObject(columnIndex);
+		if(o == null || o instanceof Time) {
+			return (Time) o;
+		} else if(o instanceof java.util.Date) {
+			return new Time(((java.util.Date)o).getTime());
+		}
+		throw new SQLException("Cannot convert " + o.getClass().getSimpleName() + " to Time");
+	}
+
+	@Override public String toString() {
+		return "ColumnarResultSet" + Arrays.toString(getColNames()) + " size=" + size();
+	}
+
+	/**
+	 * Growable storage for one column. The array type is decided by the class of the first non-null value
+	 * and falls back to an Object[] if any later value is of a different class.
+	 */
+	private static class Column {
+		private static final int UNKNOWN=0, INT=1, LONG=2, DOUBLE=3, FLOAT=4, SHORT=5, BOOL=6, STRING=7, OBJECT=8;
+
+		private int kind = UNKNOWN;
+		private Object data = new Object[0];
+		private int capacity = 0;
+		private BitSet nulls;
+		private Map<String,String> dictionary;
+
+		private static int kindOf(Object o) {
+			if(o instanceof Integer) { return INT; }
+			if(o instanceof Long) { return LONG; }
+			if(o instanceof Double) { return DOUBLE; }
+			if(o instanceof Float) { return FLOAT; }
+			if(o instanceof Short) { return SHORT; }
+			if(o instanceof Boolean) { return BOOL; }
+			if(o instanceof String) { return STRING; }
+			return OBJECT;
+		}
+
+		private static Object newArray(int kind, int size) {
+			switch(kind) {
+				case INT: return new int[size];
+				case LONG: return new long[size];
+				case DOUBLE: return new double[size];
+				case FLOAT: return new float[size];
+				case SHORT: return new short[size];
+				case BOOL: return new boolean[size];
+				case STRING: return new String[size];
+				default:
+			}
+			return new Object[size];
+		}
+
+		void add(int row, Object o) {
+			if(o == null) {
+				if(nulls == null) {
+					nulls = new BitSet();
+				}
+				nulls.set(row);
+				return;
+			}
+			int k = kindOf(o);
+			if(kind == UNKNOWN) {
+				kind = k;
+				capacity = Math.max(INITIAL_CAPACITY, row + 1);
+				data = newArray(kind, capacity);
+				if(kind == STRING) {
+					dictionary = new HashMap<>();
+				}
+			} else if(k != kind && kind != OBJECT) {
+				data = boxAll(row);
+				kind = OBJECT;
+				dictionary = null;
+			}
+			if(row >= capacity) {
+				capacity = Math.max(capacity * 2, row + 1);
+				data = copyOf(data, capacity);
+			}
+			set(row, o);
+		}
+
+		private void set(int row, Object o) {
+			switch(kind) {
+				case INT: ((int[])data)[row] = (Integer) o; break;
+				case LONG: ((long[])data)[row] = (Long) o; break;
+				case DOUBLE: ((double[])data)[row] = (Double) o; break;
+				case FLOAT: ((float[])data)[row] = (Float) o; break;
+				case SHORT: ((short[])data)[row] = (Short) o; break;
+				case BOOL: ((boolean[])data)[row] = (Boolean) o; break;
+				case STRING: ((String[])data)[row] = intern((String) o); break;
+				default: ((Object[])data)[row] = o;
+			}
+		}
+
+		private String intern(String s) {
+			if(dictionary == null) {
+				return s;
+			}
+			String existing = dictionary.putIfAbsent(s, s);
+			if(existing != null) {
+				return existing;
+			}
+			if(dictionary.size() > MAX_DICTIONARY_SIZE) {
+				dictionary = null;
+			}
+			return s;
+		}
+
+		/** Convert the first count rows to boxed objects so that values of any class can be stored. */
+		private Object[] boxAll(int count) {
+			Object[] r = new Object[capacity];
+			for(int i=0; i<count; i++) {
+				r[i] = get(i);
+			}
+			return r;
+		}
+
+		private static Object copyOf(Object array, int size) {
+			if(array instanceof int[]) { return Arrays.copyOf((int[])array, size); }
+			if(array instanceof long[]) { return Arrays.copyOf((long[])array, size); }
+			if(array instanceof double[]) { return Arrays.copyOf((double[])array, size); }
+			if(array instanceof float[]) { return Arrays.copyOf((float[])array, size); }
+			if(array instanceof short[]) { return Arrays.copyOf((short[])array, size); }
+			if(array instanceof boolean[]) { return Arrays.copyOf((boolean[])array, size); }
+			return Arrays.copyOf((Object[])array, size);
+		}
+
+		void trim(int size) {
+			if(kind == UNKNOWN) {
+				data = new Object[size]; // every value was null
+			} else if(capacity != size) {
+				data = copyOf(data, size);
+			}
+			capacity = size;
+			dictionary = null;
+		}
+
+		long estimateBytes(int size) {
+			long nullBytes = nulls == null ? 0 : nulls.size() / 8;
+			switch(kind) {
+				case INT: case FLOAT: return nullBytes + 4L * size;
+				case LONG: case DOUBLE: return nullBytes + 8L * size;
+				case SHORT: return nullBytes + 2L * size;
+				case BOOL: return nullBytes + size;
+				default:
+			}
+			// sample evenly spread values, strings are shared so this overestimates repetitive columns
+			Object[] a = (Object[]) data;
+			int step = Math.max(1, size / ESTIMATE_SAMPLES);
+			long sampled = 0;
+			int n = 0;
+			for(int i=0; i<size; i+=step, n++) {
+				Object o = a[i];
+				sampled += o == null ? 0 : o instanceof String ? 40 + 2L * ((String) o).length() : 32;
+			}
+			long avg = n == 0 ? 0 : sampled / n;
+			return nullBytes + (8L + avg) * size;
+		}
+
+		boolean isNull(int row) {
+			return nulls != null && nulls.get(row);
+		}
+
+		Object get(int row) {
+			if(isNull(row)) {
+				return null;
+			}
+			switch(kind) {
+				case INT: return ((int[])data)[row];
+				case LONG: return ((long[])data)[row];
+				case DOUBLE: return ((double[])data)[row];
+				case FLOAT: return ((float[])data)[row];
+				case SHORT: return ((short[])data)[row];
+				case BOOL: return ((boolean[])data)[row];
+				default:
+			}
+			return ((Object[])data)[row];
+		}
+
+		long getLong(int row) throws SQLException {
+			switch(kind) {
+				case INT: return ((int[])data)[row];
+				case LONG: return ((long[])data)[row];
+				case DOUBLE: return (long) ((double[])data)[row];
+				case FLOAT: return (long) ((float[])data)[row];
+				case SHORT: return ((short[])data)[row];
+				case BOOL: return ((boolean[])data)[row] ? 1 : 0;
+				default:
+			}
+			return toNumber(get(row)).longValue();
+		}
+
+		double getDouble(int row) throws SQLException {
+			switch(kind) {
+				case INT: return ((int[])data)[row];
+				case LONG: return ((long[])data)[row];
+				case DOUBLE: return ((double[])data)[row];
+				case FLOAT: return ((float[])data)[row];
+				case SHORT: return ((short[])data)[row];
+				case BOOL: return ((boolean[])data)[row] ? 1 : 0;
+				default:
+			}
+			return toNumber(get(row)).doubleValue();
+		}
+
+		private static Number toNumber(Object o) throws SQLException {
+			if(o instanceof Number) {
+				return (Number) o;
+			}
+			try {
+				return new BigDecimal(o.toString().trim());
+			} catch(NumberFormatException e) {
+				throw new SQLException("Cannot convert " + o + " to a number");
+			}
+		}
+	}
+}
@@ -43,7 +43,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.sql.rowset.CachedRowSet;
-import javax.sql.rowset.RowSetProvider;
 import javax.sql.rowset.serial.SerialArray;
 import javax.sql.rowset.serial.SerialJavaObject;
 
@@ -51,8 +50,6 @@ import com.google.common.base.Preconditions;
 import com.timestored.qstudio.kdb.KdbHelper;
 import com.timestored.sqldash.chart.SqlHelper;
 
-import jakarta.annotation.Nullable;
-import lombok.Data;
 import lombok.Getter;
 
 
@@ -72,112 +69,6 @@ public class DBHelper {
 		return size;
 	}
 
-	/** 
-	 * Assuming time-series data, usually either appends at one end or the other.
-	 * With huge common sequence in "middle".
-	 * If the select is moving.. e.g. from trades where time>.z.t-01:00, it could change at both ends. 
-	 */
-	@Data private static class TblDelta {
-		private final ResultSet newHeadRows;
-		private final ResultSet newTailRows;
-		private final int droppedHeadRows;
-		private final int droppedTailRows;
-	}
-	
-	/**
-	 * @return True iff the two result sets contain identical columns, types and values.
-	 * A return value of false only means they are probably not equal, it is NOT a guarantee.
-	 */
-	@Nullable public static TblDelta calculateDelta(ResultSet prevRS, ResultSet latestRS) {
-		Preconditions.checkNotNull(prevRS);
-		Preconditions.checkNotNull(latestRS);
-
-		try {
-
-			if(!isMetaEqual(prevRS, latestRS)) {
-				return null;
-			}
-			int cols = prevRS.getMetaData().getColumnCount();
-			
-			// Some Scenarios
-			// 1. New Data appended at end.     prevRS=DEFGHI   latestRS=FGHI JK
-			// 2. New Data appended at start.   prevRS=DEFGHI   latestRS=BC DEFGH
-			// Assumption - over half of data won't change otherwise delta is pointless.
-			// Take middle value of previous and try to find location in current!
-			
-			int prevC = getSize(prevRS);
-			int mid = (int) Math.floor(prevC/2);
-			prevRS.absolute(mid);
-			
-			// The single ampersand here is essential to make sure both positions move
-			// so the later check is true.
-			int latestRSmatchRow = -1;
-			while(latestRS.next()) {
-				int c=1;
-				for(; c<=cols; c++) {
-					if(!Objects.equals( prevRS.getObject(c),  latestRS.getObject(c))) {
-						break;
-					}
-				}
-				if(c == cols+1) {
-					latestRSmatchRow = latestRS.getRow();
-				}
-			}
-
-			int equalsWidthUp = 0;
-			while(prevRS.next() & latestRS.next()) {
-				int c=1;
-				for(; c<=cols; c++) {
-					if(!Objects.equals( prevRS.getObject(c),  latestRS.getObject(c))) {
-						break;
-					}
-				}
-				if(c != cols+1) {
-					break;
-				}
-				equalsWidthUp++;
-			}
-
-			
-			prevRS.absolute(mid);
-			latestRS.absolute(latestRSmatchRow);
-			int equalsWidthDown = 0;
-			while(prevRS.previous() & latestRS.previous()) {
-				int c=1;
-				for(; c<=cols; c++) {
-					if(!Objects.equals( prevRS.getObject(c),  latestRS.getObject(c))) {
-						break;
-					}
-				}
-				if(c != cols+1) {
-					break;
-				}
-				equalsWidthDown++;
-			}
-
-			int droppedHeadRows = mid - equalsWidthDown;
-			int droppedTailRows = getSize(prevRS) - (mid + equalsWidthUp);
-			
-			int newHeadRowCount = latestRSmatchRow - equalsWidthDown;
-			int newTailRowCount = getSize(latestRS) - (latestRSmatchRow + equalsWidthUp);
-			if(newHeadRowCount > 0) {
-				// create RS for head
-			}
-			
-			//                           mid
-			//                            \
-			// prevRS   [RRR AAAAAAABBBBBBXCCCCCDDDDDDDDD TTTTTT]
-			// latestRS [XXXXX  AAAAAAABBBBBBBXCCCCCDDDDDDDDD ZZZZZZZZZ]
-			//                                  \
-			//                                   latestRSmatchRow
-			return new TblDelta(prevRS, latestRS, equalsWidthUp, equalsWidthDown);
-		} catch (SQLException e) {
-			LOG.log(Level.WARNING, "Error. Assuming TblDelta not possible", e);
-		}
-		return null;
-	}
-
-	
 	/**
 	 * @return True iff the two result sets contain identical columns, types and values.
 	 * A return value of false only means they are probably not equal, it is NOT a guarantee.
@@ -432,9 +323,7 @@ public class DBHelper {
     	} else if(rs instanceof CachedRowSet) {
     		return (CachedRowSet) rs;
     	}
-		CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet();
-    	crs.populate(rs);
-    	return crs;
+		return ColumnarResultSet.from(rs);
     }
 
 
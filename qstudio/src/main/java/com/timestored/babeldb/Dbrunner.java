@@ -38,4 +38,12 @@ public interface Dbrunner extends AutoCloseable {
 
 	public boolean isEmpty();
 
+	/**
+	 * @return The maximum number of queries that may be run against serverName at the same time
+	 * when BabelDB fans out the sub-queries of one query.
+	 */
+	public default int getMaxConcurrentQueries(String serverName) {
+		return 2;
+	}
+
 }
\ No newline at end of file
@@ -118,10 +118,12 @@ public class PivotProvider {
 			String plist = toColumnCSV(jdbcTypes, pivotlist);
 			String sclauses = Arrays.asList(sel.split(",", -1)).stream().map(s -> toSqlSel(jdbcTypes, s)).collect(Collectors.joining(","));
 			String selec = gby + ", " + sclauses;
-			// Note ORDER BY essential as PivotResultSet relies on ordering.
 			if(jdbcTypes.equals(JdbcTypes.DUCKDB) && pivotlist.size() > 0) {
 				String grpby = toColumnCSV(jdbcTypes, groupbylist);
 				translation = "PIVOT " + t + " ON " + plist + " USING " + sclauses + " GROUP BY " + grpby + " ORDER BY " + grpby;	
+			} else if(pivotlist.size() > 0) {
+				// No ORDER BY needed as PivotResultSet groups by hashing and sorts the much smaller result itself.
+				translation = "SELECT " + selec + " FROM " + t + " GROUP BY " + gby;
 			} else {
 				translation = "SELECT " + selec + " FROM " + t + " GROUP BY " + gby + " ORDER BY " + gby;	
 			}
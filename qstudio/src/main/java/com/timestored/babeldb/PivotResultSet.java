@@ -24,27 +24,44 @@
  
 package com.timestored.babeldb;
 
- 
+
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.Lists;
 
 /**
- * Used to construct rough {@link ResultSet}'s for testing / documentation  purposes.
+ * Pivots a table so that each distinct combination of the pivot column values becomes a set of columns,
+ * one per remaining value column, named pivotVal1_pivotVal2_valueCol.
+ * Rows are grouped by hashing so the table can be in any order, large tables are grouped in parallel partitions.
+ * Result rows are sorted by the by columns, by columns come first followed by the pivoted columns sorted by name.
  */
 class PivotResultSet extends BaseResultSet {
 
-	private final List<String> colNames = new ArrayList<>(); // column -> row
-	private final List<Integer> colTypes = new ArrayList<>(); // column -> row
-	private final List<List<Object>> colValues = new ArrayList<>(); // column -> row
+	/** How the values of rows with the same by and pivot values are combined into one cell, nulls are ignored. */
+	enum Aggregation { FIRST, LAST, SUM, MIN, MAX, COUNT }
+
+	/** Tables with at least this many rows are grouped in parallel partitions of {@link #PARTITION_ROWS}. */
+	private static final int PARALLEL_MIN_ROWS = 200_000;
+	private static final int PARTITION_ROWS = 100_000;
+
+	private static final int LONG = 0;
+	private static final int DOUBLE = 1;
+	private static final int OBJECT = 2;
+
+	private final List<String> colNames = new ArrayList<>();
+	private final List<Integer> colTypes = new ArrayList<>();
+	private final Object[][] colValues; // column -> row
 	private int idx = -1;
 	private final ResultSetMetaData resultSetMetaData;
 	private boolean wasNull;
@@ -53,166 +70,415 @@ class PivotResultSet extends BaseResultSet {
 	public PivotResultSet(ResultSet rs, String byCol, String pivotCol) throws SQLException {
 		this(rs, Lists.newArrayList(byCol), Lists.newArrayList(pivotCol));
 	}
+
+	/** Pivot result set, where by and pivot values repeat the first non-null value is taken. */
+	public PivotResultSet(ResultSet rs, List<String> byCols, List<String> pivotCols) throws SQLException {
+		this(rs, byCols, pivotCols, Aggregation.FIRST);
+	}
+
 	/**
-	 * Pivot result set. VERY STRICT REQUIREMENTS that table is sorted on byCols
-	 * e.g. if byCols aa,bb,cc table MUST be sorted by aa,bb,cc in that order. Else nonsense returned. 
+	 * Pivot result set.
+	 * @param aggregation How to combine the values of rows that have the same by and pivot values.
+	 * @throws IllegalArgumentException If a column is missing, a generated name clashes with a by column
+	 * 	or the aggregation doesn't suit a value column, e.g. SUM of text.
 	 */
-	public PivotResultSet(ResultSet rs, List<String> byCols, List<String> pivotCols) throws SQLException {
+	public PivotResultSet(ResultSet rs, List<String> byCols, List<String> pivotCols, Aggregation aggregation) throws SQLException {
 
 		if(byCols.size() < 1) { throw new IllegalArgumentException("You must specify one by column at least."); }
 		if(pivotCols.size() < 1) { throw new IllegalArgumentException("You must specify one pivot column at least."); }
-		
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int numColumns = rsmd.getColumnCount();
-        List<String> originalColNames = new ArrayList<>(numColumns);
-        List<Integer> originalColTypes = new ArrayList<>(numColumns);
-
-        for (int i = 0; i < numColumns; i++) {
-        	originalColNames.add(rsmd.getColumnLabel(i + 1));
-        	originalColTypes.add(rsmd.getColumnType(i + 1));
-        }
-        
-        for(String byc : byCols) {
-        	if(!originalColNames.contains(byc)) {
-        		throw new IllegalArgumentException("by column not contained in original table: " + byc);
-        	}
-        	colNames.add(byc); // place by columns first in order passed in
-        	colTypes.add(rsmd.getColumnType(1 + originalColNames.indexOf(byc)));
-            colValues.add(new ArrayList<>());
-        }
 
-        for(String pc : pivotCols) {
-        	if(!originalColNames.contains(pc)) {
-        		throw new IllegalArgumentException("pivot column not contained in original table: " + pc);
-        	}
-        }
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int numColumns = rsmd.getColumnCount();
+		List<String> originalColNames = new ArrayList<>(numColumns);
+		for (int i = 0; i < numColumns; i++) {
+			originalColNames.add(rsmd.getColumnLabel(i + 1));
+		}
+		for(String byc : byCols) {
+			if(!originalColNames.contains(byc)) {
+				throw new IllegalArgumentException("by column not contained in original table: " + byc);
+			}
+		}
+		for(String pc : pivotCols) {
+			if(!originalColNames.contains(pc)) {
+				throw new IllegalArgumentException("pivot column not contained in original table: " + pc);
+			}
+		}
 
-        // Check original table is sorted on by and pivot cols else the assumptions later on pivoting would create errors
-		List<String> bcols = new ArrayList<>();
-		bcols.addAll(byCols);
-		bcols.addAll(pivotCols);
-		checkColsUniquelySorted(rs, bcols);
-
-        rs.beforeFirst();
-        int row = 0;
-        while (rs.next()) {
-        	String prefix = "";
-        	for(String pc : pivotCols) {
-        		prefix += (rs.getObject(pc) + "_");
-        	}
-
-        	// If empty or new BY row, finish prev and add BY values for new.
-    		boolean allBysMatch = true;
-        	if(row > 0) {
-				for(String b : byCols) {
-					List<Object> clist = colValues.get(colNames.indexOf(b));
-					if(!clist.get(clist.size()-1).equals(rs.getObject(b))) {
-						allBysMatch = false;	
-						break;
-					}
-				}
-        	}
-        	if(row == 0 || !allBysMatch) {
-            	makeRowsEqual(byCols.size());
-				for(String b : byCols) {
-					putt(colTypes.get(colNames.indexOf(b)), b, rs.getObject(b));
+		Col[] cols = readColumns(rs, rsmd);
+		int n = cols.length == 0 ? 0 : cols[0].rows;
+		Col[] byc = new Col[byCols.size()];
+		for(int i = 0; i < byc.length; i++) {
+			byc[i] = cols[originalColNames.indexOf(byCols.get(i))];
+		}
+		Col[] pivc = new Col[pivotCols.size()];
+		for(int i = 0; i < pivc.length; i++) {
+			pivc[i] = cols[originalColNames.indexOf(pivotCols.get(i))];
+		}
+		List<Integer> valueCols = new ArrayList<>();
+		for(int c = 0; c < numColumns; c++) {
+			String oname = originalColNames.get(c);
+			if(!pivotCols.contains(oname) && !byCols.contains(oname)) {
+				valueCols.add(c);
+			}
+		}
+
+		// Give each row the id of its by and pivot values, in parallel partitions for large tables then merged.
+		int[] byIds = new int[n];
+		int[] pivotIds = new int[n];
+		int parts = n < PARALLEL_MIN_ROWS ? 1 : (n + PARTITION_ROWS - 1) / PARTITION_ROWS;
+		int partRows = (n + parts - 1) / Math.max(1, parts);
+		Interner[] localBys = new Interner[parts];
+		Interner[] localPivots = new Interner[parts];
+		IntStream.range(0, parts).parallel().forEach(p -> {
+			Interner bys = new Interner();
+			Interner pivots = new Interner();
+			for(int r = p * partRows; r < Math.min(n, (p + 1) * partRows); r++) {
+				byIds[r] = bys.intern(key(byc, r));
+				pivotIds[r] = pivots.intern(key(pivc, r));
+			}
+			localBys[p] = bys;
+			localPivots[p] = pivots;
+		});
+		Interner bys = new Interner();
+		Interner pivots = new Interner();
+		int[][] byMaps = new int[parts][];
+		int[][] pivotMaps = new int[parts][];
+		for(int p = 0; p < parts; p++) {
+			byMaps[p] = bys.internAll(localBys[p]);
+			pivotMaps[p] = pivots.internAll(localPivots[p]);
+		}
+		int groups = bys.keys.size();
+		if((long) groups * pivots.keys.size() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Pivot result too large, groups=" + groups + " pivots=" + pivots.keys.size());
+		}
+
+		// Output rows are sorted by the by values, cells of one pivot are contiguous: pivot * groups + row
+		int[] rowOfGroup = sortedRows(bys.keys);
+		int[] cellOf = new int[n];
+		IntStream.range(0, parts).parallel().forEach(p -> {
+			for(int r = p * partRows; r < Math.min(n, (p + 1) * partRows); r++) {
+				cellOf[r] = pivotMaps[p][pivotIds[r]] * groups + rowOfGroup[byMaps[p][byIds[r]]];
+			}
+		});
+
+		Cells[] cells = new Cells[valueCols.size()];
+		IntStream.range(0, cells.length).parallel().forEach(v -> {
+			int c = valueCols.get(v);
+			cells[v] = new Cells(aggregation, cols[c], groups * pivots.keys.size(), originalColNames.get(c));
+			cells[v].addAll(cols[c], cellOf);
+		});
+
+		// by columns first in order passed in, then pivoted columns sorted by name
+		List<Object[]> outValues = new ArrayList<>();
+		for(int i = 0; i < byc.length; i++) {
+			Object[] vals = new Object[groups];
+			for(int g = 0; g < groups; g++) {
+				Object k = bys.keys.get(g);
+				vals[rowOfGroup[g]] = byc.length == 1 ? k : ((List<?>) k).get(i);
+			}
+			colNames.add(byCols.get(i));
+			colTypes.add(byc[i].type);
+			outValues.add(vals);
+		}
+		List<Integer> pivotOrder = new ArrayList<>();
+		List<String> pivotNames = new ArrayList<>();
+		for(int p = 0; p < pivots.keys.size(); p++) {
+			Object k = pivots.keys.get(p);
+			String prefix = "";
+			for(Object o : pivc.length == 1 ? Arrays.asList(k) : (List<?>) k) {
+				prefix += (o + "_");
+			}
+			for(int v = 0; v < cells.length; v++) {
+				String newColName = prefix + originalColNames.get(valueCols.get(v));
+				if(byCols.contains(newColName)) {
+					throw new IllegalArgumentException("Newly generated pivot column name clashed with by column name");
 				}
-        	}
-        	
-			// Fill in the pivots
-        	for(int c=0; c<numColumns; c++) {
-        		String oname = originalColNames.get(c);
-        		if(!pivotCols.contains(oname) && !byCols.contains(oname)) {
-        			String newColName = prefix + oname;
-        			if(byCols.contains(newColName)) {
-        				throw new IllegalArgumentException("Newly generated pivot column name clashed with by column name");
-        			}
-        			int otype = originalColTypes.get(c);
-            		Object v = gett(otype, rs, c);
-        			putt(otype, newColName, v);
-        		}
-        		
-        	}
-        	row++;
-        }
-    	makeRowsEqual(byCols.size());
-
-        // bubble sort - Keep the by columns in the order specified AFTER that column ordering based on  name
-        // `j`k`h`l - outer loop moves left to right, then as it's at the current item it brings it to the left while it's not in order.
-        for(int i=byCols.size()+1; i<colNames.size(); i++) {
-    		for(int j=i; j>byCols.size() && colNames.get(j).compareTo(colNames.get(j-1)) < 0; j--) {
-    			Collections.swap(colNames, j, j-1);
-    			Collections.swap(colTypes, j, j-1);
-    			Collections.swap(colValues, j, j-1);
-    		}
-        }
-        this.size = colValues.size() > 0 ? colValues.get(0).size() : 0;
+				pivotOrder.add(p * cells.length + v);
+				pivotNames.add(newColName);
+			}
+		}
+		pivotOrder.sort(Comparator.comparing(i -> pivotNames.get(i)));
+		for(int i : pivotOrder) {
+			Cells cs = cells[i % cells.length];
+			colNames.add(pivotNames.get(i));
+			colTypes.add(cs.type);
+			outValues.add(cs.get(i / cells.length * groups, groups));
+		}
+
+		this.colValues = outValues.toArray(new Object[outValues.size()][]);
+		this.size = groups;
 		this.resultSetMetaData = new SimpleResultSetMetaData(colNames, colTypes);
 	}
-	
-	private static void checkColsUniquelySorted(ResultSet rs, List<String> bcols) throws SQLException {
-		List<HashSet<Object>> uniqValsPerCol = new ArrayList<>(); // column -> row
-		List<Object> prevValPerCol = new ArrayList<>(); // column -> row
-		for(int i=0; i<bcols.size();i++) { uniqValsPerCol.add(new HashSet<>()); prevValPerCol.add(null); };
-        rs.beforeFirst();
-        while (rs.next()) {
-        	for(int c=0; c<bcols.size();c++) {
-        		String cname = bcols.get(c);
-        		Object obj = rs.getObject(cname);
-        		// If leftmost by column does NOT contain this value, reset all uniques at lower levels.
-        		if(!uniqValsPerCol.get(c).contains(obj)) {
-        			uniqValsPerCol.get(c).add(obj);
-        			for(int cc=c+1; cc<bcols.size();cc++) {
-        				uniqValsPerCol.get(cc).clear();
-        			}
-        		} else {
-        			boolean matchesPrev = obj == null ? prevValPerCol.get(c) == null : obj.equals(prevValPerCol.get(c));
-        			if(!matchesPrev) {
-            			throw new IllegalArgumentException("already seen value isn't consecutive val=" + obj + " col = " + cname);
-        			}
-        			// this value was NOT unique - if we are a leaf this is an error
-            		if(c == bcols.size()-1) { // leaf node - must be unique
-            			throw new IllegalArgumentException("repeating entry in column " + cname);
-            		}
-        		}
-        		prevValPerCol.set(c, obj);
-        	}
-        }
+
+	/** @return The single value or list of values of the columns at the given row, usable as a hash key. */
+	private static Object key(Col[] cols, int row) {
+		if(cols.length == 1) {
+			return cols[0].get(row);
+		}
+		Object[] vals = new Object[cols.length];
+		for(int i = 0; i < cols.length; i++) {
+			vals[i] = cols[i].get(row);
+		}
+		return Arrays.asList(vals);
 	}
 
-	
-	private void makeRowsEqual(int numberByCols) {
-		// Must use the max as any of the by columns can be the max one
-		// e.g. ([a:1 2; b:1 1]...) OR ([a:1 1; b:1 2]...)
-		int maxRows = colValues.stream().map(l -> l.size()).mapToInt(Integer::intValue).max().getAsInt();
-    	for(int c=0; c<colValues.size(); c++) {
-    		List<Object> curCol = colValues.get(c);
-    		if(curCol.size() < maxRows) {
-    			// IF a by column, fill with previous value ELSE use null for pivot columns
-    			Object val = c < numberByCols ? curCol.get(curCol.size()-1) : null;
-    			colValues.get(c).add(val);
-    		}
-    	}
+	/**
+	 * @return For each key its position when sorted by value with nulls first, comparing lists value by value.
+	 * 	If the values can't be compared the first seen order is kept.
+	 */
+	private static int[] sortedRows(List<Object> keys) {
+		Integer[] order = new Integer[keys.size()];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		try {
+			Arrays.sort(order, (a, b) -> compareKeys(keys.get(a), keys.get(b)));
+		} catch(ClassCastException | IllegalArgumentException e) {
+			Arrays.sort(order);
+		}
+		int[] rows = new int[order.length];
+		for(int i = 0; i < order.length; i++) {
+			rows[order[i]] = i;
+		}
+		return rows;
 	}
 
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareKeys(Object a, Object b) {
+		if(a instanceof List && b instanceof List) {
+			List<?> la = (List<?>) a;
+			List<?> lb = (List<?>) b;
+			for(int i = 0; i < la.size(); i++) {
+				int c = compareKeys(la.get(i), lb.get(i));
+				if(c != 0) {
+					return c;
+				}
+			}
+			return 0;
+		}
+		if(a == null || b == null) {
+			return a == null ? (b == null ? 0 : -1) : 1;
+		}
+		return ((Comparable) a).compareTo(b);
+	}
 
-	private void putt(int colType, String cname, Object v) {
-		int idx = colNames.indexOf(cname);
-		if(idx == -1) {
-			colNames.add(cname);
-			colTypes.add(colType);
-			colValues.add(new ArrayList<>());
-			int sz = colValues.size() - 1;
-			int maxRows = colValues.stream().map(l -> l.size()).mapToInt(Integer::intValue).max().getAsInt();
-			for(int r=0; r<maxRows-1; r++) {
-				colValues.get(sz).add(null);
+	/** Distinct keys in the order first seen, each given the next id. */
+	private static class Interner {
+		private final Map<Object, Integer> ids = new HashMap<>();
+		private final List<Object> keys = new ArrayList<>();
+
+		private int intern(Object key) {
+			Integer id = ids.putIfAbsent(key, keys.size());
+			if(id == null) {
+				keys.add(key);
+				return keys.size() - 1;
+			}
+			return id;
+		}
+
+		/** @return The id within this interner of each of the other interner's ids. */
+		private int[] internAll(Interner other) {
+			int[] r = new int[other.keys.size()];
+			for(int i = 0; i < r.length; i++) {
+				r[i] = intern(other.keys.get(i));
+			}
+			return r;
+		}
+	}
+
+	/** One input column, readable from multiple threads. */
+	private static class Col {
+		private final int type;
+		private final int rows;
+		/** Array of the values, null if only reachable via {@link #get(int)}. Primitive double arrays mark null as NaN. */
+		private final Object array;
+		private final SimpleResultSet srs;
+		private final int column;
+
+		private Col(int type, int rows, Object array, SimpleResultSet srs, int column) {
+			this.type = type;
+			this.rows = rows;
+			this.array = array;
+			this.srs = srs;
+			this.column = column;
+		}
+
+		private Object get(int row) {
+			return srs != null ? srs.getObjectAt(row, column) : ((Object[]) array)[row];
+		}
+	}
+
+	/** Columnar result sets are used as is, any other is read row by row once into arrays. */
+	private static Col[] readColumns(ResultSet rs, ResultSetMetaData rsmd) throws SQLException {
+		int numColumns = rsmd.getColumnCount();
+		Col[] cols = new Col[numColumns];
+		if(rs instanceof SimpleResultSet) {
+			SimpleResultSet srs = (SimpleResultSet) rs;
+			for(int c = 0; c < numColumns; c++) {
+				cols[c] = new Col(rsmd.getColumnType(c + 1), srs.size(), srs.getColumnArray(c), srs, c);
 			}
-			colValues.get(sz).add(v);
-		} else {
-			colValues.get(idx).add(v);
+			return cols;
 		}
+		List<List<Object>> vals = new ArrayList<>(numColumns);
+		int[] types = new int[numColumns];
+		for(int c = 0; c < numColumns; c++) {
+			vals.add(new ArrayList<>());
+			types[c] = rsmd.getColumnType(c + 1);
+		}
+		rs.beforeFirst();
+		while (rs.next()) {
+			for(int c = 0; c < numColumns; c++) {
+				vals.get(c).add(gett(types[c], rs, c));
+			}
+		}
+		for(int c = 0; c < numColumns; c++) {
+			Object[] a = vals.get(c).toArray();
+			cols[c] = new Col(types[c], a.length, a, null, c);
+		}
+		return cols;
 	}
 
+	/** The aggregated cells of one value column, held in primitive arrays for numeric columns. */
+	private static class Cells {
+		private final Aggregation aggregation;
+		private final int kind;
+		private final int originalType;
+		private final int type;
+		private final long[] longs;
+		private final double[] doubles;
+		private final Object[] objects;
+		private final BitSet filled;
+
+		private Cells(Aggregation aggregation, Col col, int cellCount, String colName) {
+			this.aggregation = aggregation;
+			this.originalType = col.type;
+			boolean integral = col.type == Types.TINYINT || col.type == Types.SMALLINT || col.type == Types.INTEGER || col.type == Types.BIGINT;
+			boolean floating = col.type == Types.FLOAT || col.type == Types.REAL || col.type == Types.DOUBLE;
+			boolean decimal = col.type == Types.DECIMAL || col.type == Types.NUMERIC;
+			if(aggregation == Aggregation.COUNT) {
+				kind = LONG;
+				type = Types.BIGINT;
+			} else if(aggregation == Aggregation.SUM) {
+				if(!integral && !floating && !decimal) {
+					throw new IllegalArgumentException("Can only SUM numeric columns, not column: " + colName);
+				}
+				kind = integral ? LONG : DOUBLE;
+				type = integral ? Types.BIGINT : Types.DOUBLE;
+			} else {
+				kind = integral ? LONG : floating ? DOUBLE : OBJECT;
+				type = col.type;
+			}
+			longs = kind == LONG ? new long[cellCount] : null;
+			doubles = kind == DOUBLE ? new double[cellCount] : null;
+			objects = kind == OBJECT ? new Object[cellCount] : null;
+			filled = new BitSet(cellCount);
+		}
+
+		/** Add each row of the column to its cell, in row order so FIRST and LAST are deterministic. */
+		private void addAll(Col col, int[] cellOf) {
+			Object a = col.array;
+			boolean counting = aggregation == Aggregation.COUNT;
+			if(kind == DOUBLE && a instanceof double[]) {
+				double[] d = (double[]) a;
+				for(int r = 0; r < cellOf.length; r++) {
+					if(!Double.isNaN(d[r])) {
+						addDouble(cellOf[r], d[r]);
+					}
+				}
+			} else if(kind == LONG && !counting && a instanceof long[]) {
+				long[] l = (long[]) a;
+				for(int r = 0; r < cellOf.length; r++) {
+					addLong(cellOf[r], l[r]);
+				}
+			} else if(kind == LONG && !counting && a instanceof int[]) {
+				int[] l = (int[]) a;
+				for(int r = 0; r < cellOf.length; r++) {
+					addLong(cellOf[r], l[r]);
+				}
+			} else {
+				for(int r = 0; r < cellOf.length; r++) {
+					Object v = col.get(r);
+					if(v != null) {
+						add(cellOf[r], v);
+					}
+				}
+			}
+		}
+
+		private void add(int cell, Object v) {
+			if(aggregation == Aggregation.COUNT) {
+				longs[cell]++;
+				filled.set(cell);
+			} else if(kind == LONG) {
+				addLong(cell, ((Number) v).longValue());
+			} else if(kind == DOUBLE) {
+				addDouble(cell, ((Number) v).doubleValue());
+			} else {
+				addObject(cell, v);
+			}
+		}
+
+		private void addLong(int cell, long v) {
+			if(!filled.get(cell)) {
+				filled.set(cell);
+				longs[cell] = v;
+			} else if(aggregation == Aggregation.LAST
+					|| (aggregation == Aggregation.MIN && v < longs[cell])
+					|| (aggregation == Aggregation.MAX && v > longs[cell])) {
+				longs[cell] = v;
+			} else if(aggregation == Aggregation.SUM) {
+				longs[cell] += v;
+			}
+		}
+
+		private void addDouble(int cell, double v) {
+			if(!filled.get(cell)) {
+				filled.set(cell);
+				doubles[cell] = v;
+			} else if(aggregation == Aggregation.LAST
+					|| (aggregation == Aggregation.MIN && v < doubles[cell])
+					|| (aggregation == Aggregation.MAX && v > doubles[cell])) {
+				doubles[cell] = v;
+			} else if(aggregation == Aggregation.SUM) {
+				doubles[cell] += v;
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private void addObject(int cell, Object v) {
+			if(!filled.get(cell)) {
+				filled.set(cell);
+				objects[cell] = v;
+			} else if(aggregation == Aggregation.LAST
+					|| (aggregation == Aggregation.MIN && ((Comparable) v).compareTo(objects[cell]) < 0)
+					|| (aggregation == Aggregation.MAX && ((Comparable) v).compareTo(objects[cell]) > 0)) {
+				objects[cell] = v;
+			}
+		}
+
+		/** @return The values of count cells from the given one, boxed as the original column type, null if empty. */
+		private Object[] get(int from, int count) {
+			Object[] r = new Object[count];
+			for(int i = 0; i < count; i++) {
+				int cell = from + i;
+				if(!filled.get(cell)) {
+					continue;
+				}
+				if(kind == DOUBLE) {
+					r[i] = doubles[cell];
+				} else if(kind == OBJECT) {
+					r[i] = objects[cell];
+				} else if(type == Types.INTEGER) {
+					r[i] = (int) longs[cell];
+				} else if(type == Types.SMALLINT || type == Types.TINYINT) {
+					r[i] = (short) longs[cell];
+				} else {
+					r[i] = longs[cell];
+				}
+			}
+			return r;
+		}
+	}
 
 	static Object gett(int colType, ResultSet rs, int i) throws SQLException {
 		// Copied From ResultSet Serializer
@@ -295,10 +561,10 @@ class PivotResultSet extends BaseResultSet {
 
 	@Override public int findColumn(String columnLabel) throws SQLException {
 		int idx = colNames.indexOf(columnLabel);
-		if(idx != -1) { return idx; }
+		if(idx != -1) { return idx + 1; }
 		throw new SQLException();
 	}
-	
+
 	@Override public boolean absolute(int row) throws SQLException {
 		idx = row-1;
 		return true;
@@ -337,23 +603,23 @@ class PivotResultSet extends BaseResultSet {
 		idx--;
 		return idx >= 0;
 	}
-	
-	
+
+
 
 	@Override public ResultSetMetaData getMetaData() throws SQLException { return resultSetMetaData; }
 
 
 	@Override public Object getObject(int columnIndex) throws SQLException {
-		Object o = colValues.get(columnIndex-1).get(idx);
+		Object o = colValues[columnIndex-1][idx];
 		wasNull = o == null;
 		return o;
 	}
-	
+
 	@Override public boolean wasNull() throws SQLException { return  wasNull; }
 
 	@Override public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
 		throw new UnsupportedOperationException();
 	}
 
-	
+
 }
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ *
+ *   $$$$$$$\            $$\                     
+ *   $$  __$$\           $$ |                     
+ *   $$ |  $$ |$$\   $$\ $$ | $$$$$$$\  $$$$$$\   
+ *   $$$$$$$  |$$ |  $$ |$$ |$$  _____|$$  __$$\  
+ *   $$  ____/ $$ |  $$ |$$ |\$$$$$$\  $$$$$$$$ |  
+ *   $$ |      $$ |  $$ |$$ | \____$$\ $$   ____|  
+ *   $$ |      \$$$$$$  |$$ |$$$$$$$  |\$$$$$$$\  
+ *   \__|       \______/ \__|\_______/  \_______|
+ *
+ *  Copyright c 2022-2023 TimeStored
+ *
+ *  Licensed under the Reciprocal Public License RPL-1.5
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/license/rpl-1-5/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+ 
+package com.timestored.babeldb;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.rowset.CachedRowSet;
+
+/**
+ * Size bounded LRU cache of query results keyed by server and whitespace normalized SQL.
+ * A result is only reused when the caller permits staleness and the cached entry is younger than that.
+ * Identical concurrent queries that permit staleness share one underlying query rather than each hitting the server.
+ * Callers receive their own cursor via {@link CachedRowSet#createShared()}, so results must not be modified.
+ * Only {@link ColumnarResultSet}s are retained as closing one does not affect the other cursors sharing its data.
+ */
+public class ResultCache {
+
+	@FunctionalInterface
+	public static interface Loader {
+		CachedRowSet load() throws IOException, SQLException;
+	}
+
+	private final long maxBytes;
+	private final LinkedHashMap<String,Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String,CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+	private long totalBytes = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private static class Entry {
+		private final CachedRowSet rs;
+		private final long bytes;
+		private final long createdMillis;
+		
+		Entry(CachedRowSet rs, long bytes, long createdMillis) {
+			this.rs = rs;
+			this.bytes = bytes;
+			this.createdMillis = createdMillis;
+		}
+	}
+
+	/** @param maxBytes Approximate upper bound on memory held by cached results. */
+	public ResultCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param millisStalenessPermitted How old a cached result may be and still be returned,
+	 * 	0 or less always queries and bypasses the cache entirely, neither reading nor storing.
+	 * @return The result of the query, either freshly loaded or from cache, or null if the query returned no result set.
+	 */
+	public CachedRowSet get(String serverName, String sql, int millisStalenessPermitted, Loader loader) throws IOException, SQLException {
+		String key = serverName + "\u0000" + normalize(sql);
+		if(millisStalenessPermitted <= 0) {
+			return loader.load();
+		}
+		
+		Entry e = getFresh(key, millisStalenessPermitted);
+		if(e != null) {
+			hits.incrementAndGet();
+			return share(e);
+		}
+		
+		CompletableFuture<Entry> mine = new CompletableFuture<>();
+		CompletableFuture<Entry> running = inFlight.putIfAbsent(key, mine);
+		if(running != null) {
+			coalesced.incrementAndGet();
+			return share(await(running));
+		}
+		misses.incrementAndGet();
+		try {
+			CachedRowSet rs = loader.load();
+			e = rs == null ? null : put(key, rs);
+			mine.complete(e);
+			return share(e);
+		} catch(IOException | SQLException | RuntimeException ex) {
+			mine.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+
+	private synchronized Entry getFresh(String key, int millisStalenessPermitted) {
+		Entry e = entries.get(key);
+		if(e != null && System.currentTimeMillis() - e.createdMillis <= millisStalenessPermitted) {
+			return e;
+		}
+		return null;
+	}
+
+	private Entry put(String key, CachedRowSet rs) {
+		long bytes = rs instanceof ColumnarResultSet ? ((ColumnarResultSet) rs).getEstimatedBytes() : Long.MAX_VALUE;
+		Entry e = new Entry(rs, bytes, System.currentTimeMillis());
+		if(e.bytes > maxBytes) {
+			return e; // never cache anything that would push out everything else
+		}
+		synchronized (this) {
+			Entry old = entries.put(key, e);
+			if(old != null) {
+				totalBytes -= old.bytes;
+			}
+			totalBytes += e.bytes;
+			Iterator<Entry> it = entries.values().iterator();
+			while(totalBytes > maxBytes && it.hasNext()) {
+				Entry eldest = it.next();
+				if(eldest != e) {
+					totalBytes -= eldest.bytes;
+					it.remove();
+					evictions.incrementAndGet();
+				}
+			}
+		}
+		return e;
+	}
+
+	/** @return A new cursor over the entry's result or null if there is no entry, i.e. the query returned no result set. */
+	private static CachedRowSet share(Entry e) throws SQLException {
+		return e == null ? null : (CachedRowSet) e.rs.createShared();
+	}
+
+	private static Entry await(CompletableFuture<Entry> f) throws IOException, SQLException {
+		try {
+			return f.get();
+		} catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for identical query", ie);
+		} catch(ExecutionException ee) {
+			Throwable t = ee.getCause();
+			if(t instanceof IOException) { throw (IOException) t; }
+			if(t instanceof SQLException) { throw (SQLException) t; }
+			if(t instanceof RuntimeException) { throw (RuntimeException) t; }
+			throw new IOException(t);
+		}
+	}
+
+	/** Collapse runs of whitespace outside of quotes so trivially reformatted queries share an entry. */
+	static String normalize(String sql) {
+		StringBuilder sb = new StringBuilder(sql.length());
+		char quote = 0;
+		boolean pendingSpace = false;
+		for(int i=0; i<sql.length(); i++) {
+			char c = sql.charAt(i);
+			if(quote == 0 && Character.isWhitespace(c)) {
+				pendingSpace = sb.length() > 0;
+				continue;
+			}
+			if(pendingSpace) {
+				sb.append(' ');
+				pendingSpace = false;
+			}
+			if(quote == 0 && (c == '\'' || c == '"')) {
+				quote = c;
+			} else if(c == quote) {
+				quote = 0;
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		totalBytes = 0;
+	}
+
+	public long getHits() { return hits.get(); }
+	public long getMisses() { return misses.get(); }
+	public long getCoalesced() { return coalesced.get(); }
+	public long getEvictions() { return evictions.get(); }
+
+	@Override public synchronized String toString() {
+		return "ResultCache[entries=" + entries.size() + " bytes=" + totalBytes + "/" + maxBytes 
+				+ " hits=" + hits + " misses=" + misses + " coalesced=" + coalesced + " evictions=" + evictions + "]";
+	}
+}
@@ -218,9 +218,21 @@ public class SimpleResultSet extends BaseResultSet implements CachedRowSet {
 
 	@Override
 	public Object getObject(int columnIndex) throws SQLException {
-		Object o = Array.get(colValues[columnIndex-1], idx);
-		wasNull = o == null || (o instanceof Double && Double.isNaN((Double)o)) || (o instanceof Float && Float.isNaN((Float)o));
-		return wasNull ? null : o;
+		Object o = getObjectAt(idx, columnIndex-1);
+		wasNull = o == null;
+		return o;
+	}
+
+	/** @return The value at the zero based row and column without moving the cursor, NaN is returned as null. */
+	public Object getObjectAt(int row, int column) {
+		Object o = Array.get(colValues[column], row);
+		boolean isNull = o == null || (o instanceof Double && Double.isNaN((Double)o)) || (o instanceof Float && Float.isNaN((Float)o));
+		return isNull ? null : o;
+	}
+
+	/** @return The array holding the values of a zero based column, it must not be modified. */
+	public Object getColumnArray(int column) {
+		return colValues[column];
 	}
 	
 	@Override public boolean wasNull() throws SQLException { return wasNull; }
@@ -22,6 +22,7 @@ import java.sql.Driver;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,6 +30,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,7 +40,6 @@ import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 
 import javax.sql.rowset.CachedRowSet;
-import javax.sql.rowset.RowSetProvider;
 
 import org.apache.commons.dbcp2.ConnectionFactory;
 import org.apache.commons.dbcp2.PoolableConnection;
@@ -54,6 +55,7 @@ import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.StaxDriver;
 import com.thoughtworks.xstream.security.AnyTypePermission;
 import com.timestored.StringUtils;
+import com.timestored.babeldb.ColumnarResultSet;
 import com.timestored.kdb.KdbConnection;
 import com.timestored.plugins.ConnectionDetails;
 import com.timestored.plugins.DatabaseAuthenticationService;
@@ -77,9 +79,15 @@ public class ConnectionManager implements AutoCloseable {
 	private static final Logger LOG = Logger.getLogger(ConnectionManager.class.getName());
 
 	private static final XStream xstream = new XStream(new StaxDriver());
+
+	/** Most kdb connections pooled for one server, once all are in use callers are given a connection of their own. */
+	private static final int MAX_KDB_CONNS_PER_SERVER = 8;
+	private static final int MAX_IDLE_KDB_CONNS_PER_SERVER = 2;
+	private static final Duration KDB_CONN_IDLE_TIMEOUT = Duration.ofMinutes(5);
 	
 	private final List<ServerConfig> serverConns;
 	private final Map<ServerConfig, ObjectPool<PoolableConnection>> serverConnPool;
+	private final Map<ServerConfig, GenericObjectPool<PooledKdbConnection>> kdbConnPool = new ConcurrentHashMap<>();
 	private final Map<ServerConfig, Boolean> serverConnected = new ConcurrentHashMap<ServerConfig, Boolean>();
 	private final List<ServerConfig> readonlyServerConnections;
 	private final CopyOnWriteArrayList<Listener> listeners;
@@ -94,6 +102,9 @@ public class ConnectionManager implements AutoCloseable {
 		for(ServerConfig sc : mapCopy.keySet()) {
 			closePool(sc);
 		}
+		for(ServerConfig sc : new ArrayList<>(kdbConnPool.keySet())) {
+			closePool(sc);
+		}
 		serverConnPool.clear();
 		notifyListeners();
 	}
@@ -108,6 +119,11 @@ public class ConnectionManager implements AutoCloseable {
 				op.close();
 			} catch (Exception e) {}
 		}
+		GenericObjectPool<PooledKdbConnection> kdbPool = kdbConnPool.remove(sc);
+		if(kdbPool != null) {
+			LOG.info(sc.getName() + " closing kdb connection pool " + getStats(kdbPool));
+			kdbPool.close();
+		}
 		serverConnected.put(sc, Boolean.FALSE);
 	}
 	
@@ -530,6 +546,7 @@ public class ConnectionManager implements AutoCloseable {
 	public String toString() {
 		return toStringHelper(this)
 			.add("serverConns", serverConns)
+			.add("kdbPoolStats", getKdbPoolStats())
 			.add("listeners", listeners)
 			.toString();
 	}
@@ -574,12 +591,13 @@ public class ConnectionManager implements AutoCloseable {
 	}
 	
 	/**
-	 * @return kdbConnection for selected {@link ServerConfig} else throw an Exception
+	 * @return kdbConnection for selected {@link ServerConfig} else throw an Exception.
+	 * 	The connection may be reused from a pool, calling {@link KdbConnection#close()} hands it back.
 	 */
 	private KdbConnection tryKdbConnection(ServerConfig serverConfig) throws Exception {
 		if(serverConfig.isKDB()) {
 			try {
-				KdbConnection kdbConn = new KdbConnection(overrideServerConfig(serverConfig));
+				KdbConnection kdbConn = borrowKdbConnection(serverConfig);
 				statusUpdate(serverConfig, true);
 				return kdbConn;
 			} catch (Exception e) {
@@ -592,6 +610,51 @@ public class ConnectionManager implements AutoCloseable {
 		throw new IllegalStateException("tryKdbConnection only works for kdb");
 	}
 
+	private KdbConnection borrowKdbConnection(ServerConfig serverConfig) throws Exception {
+		GenericObjectPool<PooledKdbConnection> pool = kdbConnPool.computeIfAbsent(serverConfig, sc -> {
+			PooledKdbConnection.Factory factory = new PooledKdbConnection.Factory(() -> overrideServerConfig(sc));
+			GenericObjectPool<PooledKdbConnection> p = new GenericObjectPool<>(factory);
+			factory.setPool(p);
+			p.setMaxTotal(MAX_KDB_CONNS_PER_SERVER);
+			p.setMaxIdle(MAX_IDLE_KDB_CONNS_PER_SERVER);
+			p.setBlockWhenExhausted(false);
+			p.setTestOnBorrow(true);
+			p.setTestWhileIdle(true);
+			p.setMinEvictableIdle(KDB_CONN_IDLE_TIMEOUT);
+			p.setTimeBetweenEvictionRuns(Duration.ofMinutes(1));
+			return p;
+		});
+		try {
+			return pool.borrowObject();
+		} catch(NoSuchElementException e) {
+			LOG.fine(serverConfig.getName() + " kdb connection pool exhausted " + getStats(pool));
+			return new KdbConnection(overrideServerConfig(serverConfig));
+		}
+	}
+
+	private static String getStats(GenericObjectPool<?> pool) {
+		return toStringHelper("KdbConnectionPool")
+			.add("active", pool.getNumActive())
+			.add("idle", pool.getNumIdle())
+			.add("created", pool.getCreatedCount())
+			.add("borrowed", pool.getBorrowedCount())
+			.add("destroyed", pool.getDestroyedCount())
+			.add("destroyedByEvictor", pool.getDestroyedByEvictorCount())
+			.add("meanBorrowWaitMillis", pool.getMeanBorrowWaitTimeMillis())
+			.toString();
+	}
+
+	/**
+	 * @return Usage statistics of the pooled kdb connections to each server, keyed by server name.
+	 */
+	public Map<String, String> getKdbPoolStats() {
+		Map<String, String> stats = new HashMap<>();
+		for(Map.Entry<ServerConfig, GenericObjectPool<PooledKdbConnection>> e : kdbConnPool.entrySet()) {
+			stats.put(e.getKey().getName(), getStats(e.getValue()));
+		}
+		return stats;
+	}
+
 	/**
 	 * @return a KDbConnection if possible otherwise null.
 	 */
@@ -949,8 +1012,7 @@ public class ConnectionManager implements AutoCloseable {
 				if(tempRs != null) {
 					rs = tempRs;
 				    if(rs != null) {
-				    	crs = RowSetProvider.newFactory().createCachedRowSet();
-				    	crs.populate(rs);
+				    	crs = ColumnarResultSet.from(rs);
 				    }
 				}
 				updateCount += tempRs == null ? 0 : st.getUpdateCount();
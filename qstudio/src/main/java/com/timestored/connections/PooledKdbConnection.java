@@ -0,0 +1,169 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.connections;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.ObjectPool;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+
+import com.timestored.kdb.KdbConnection;
+
+import kx.c;
+import kx.c.KException;
+import kx.c.MsgHandler;
+
+/**
+ * A {@link KdbConnection} borrowed from a per-server pool, {@link #close()} hands it back for reuse
+ * rather than disconnecting so that later queries skip the connect and authentication handshake.
+ * Once closed the handle reports itself as disconnected, it must not be used again.
+ * A connection is only reused if it was left in a known state, i.e. no query was still running when closed,
+ * no replies are outstanding from {@link #queryAsync(String)} or expected by {@link #k()} and the server has
+ * never sent it a message it did not ask for, e.g. a subscription update.
+ */
+class PooledKdbConnection extends KdbConnection {
+
+	private static final Logger LOG = Logger.getLogger(PooledKdbConnection.class.getName());
+	private static final int VALIDATE_TIMEOUT_MS = 2000;
+
+	private final ObjectPool<PooledKdbConnection> pool;
+	private final AtomicBoolean borrowed = new AtomicBoolean(false);
+	private final AtomicInteger queriesRunning = new AtomicInteger();
+	private volatile boolean reusable = true;
+
+	private PooledKdbConnection(ServerConfig serverConfig, ObjectPool<PooledKdbConnection> pool) throws KException, IOException {
+		super(serverConfig);
+		this.pool = pool;
+		setMsgHandler(new MsgHandler() {
+			@Override public void processMsg(c c, byte msgType, Object msg) throws IOException {
+				reusable = false; // e.g. subscribed, more may arrive at any time
+				MsgHandler.super.processMsg(c, msgType, msg);
+			}
+		});
+	}
+
+	@Override public Object query(String query) throws IOException, KException {
+		if(!borrowed.get()) {
+			throw new IllegalStateException("we were returned to the pool");
+		}
+		if(query.contains(".u.sub")) {
+			reusable = false; // updates will be pushed to this connection
+		}
+		queriesRunning.incrementAndGet();
+		try {
+			return super.query(query);
+		} catch(IOException | RuntimeException e) {
+			reusable = false;
+			throw e;
+		} finally {
+			queriesRunning.decrementAndGet();
+		}
+	}
+
+	@Override public CompletableFuture<Object> queryAsync(String query) {
+		reusable = false; // replies may arrive after we are closed
+		return super.queryAsync(query);
+	}
+
+	@Override public Object k() throws UnsupportedEncodingException, KException, IOException {
+		reusable = false; // a caller reading messages directly, e.g. a subscription, may leave unread messages
+		return super.k();
+	}
+
+	/** Return this connection to the pool, or if interrupting a running query, disconnect it. */
+	@Override public void close() throws IOException {
+		if(!borrowed.compareAndSet(true, false)) {
+			return;
+		}
+		try {
+			if(reusable && queriesRunning.get() == 0 && super.isConnected()) {
+				pool.returnObject(this);
+			} else {
+				pool.invalidateObject(this);
+			}
+		} catch(Exception e) {
+			LOG.log(Level.WARNING, "problem returning kdb connection to pool", e);
+			disconnect();
+		}
+	}
+
+	@Override public boolean isConnected() {
+		return borrowed.get() && super.isConnected();
+	}
+
+	private boolean isSocketConnected() {
+		return super.isConnected();
+	}
+
+	private void disconnect() {
+		try {
+			super.close();
+		} catch(IOException e) {
+			LOG.log(Level.FINE, "problem closing kdb connection", e);
+		}
+	}
+
+	/** Creates connections for a single server, checking each still answers a query before it is lent out. */
+	static class Factory extends BasePooledObjectFactory<PooledKdbConnection> {
+		private final Supplier<ServerConfig> serverConfig;
+		private ObjectPool<PooledKdbConnection> pool;
+
+		/**
+		 * @param serverConfig Provides the details to connect with, asked for each new connection
+		 * 	so that any authentication plugin can supply fresh credentials.
+		 */
+		Factory(Supplier<ServerConfig> serverConfig) {
+			this.serverConfig = serverConfig;
+		}
+
+		void setPool(ObjectPool<PooledKdbConnection> pool) {
+			this.pool = pool;
+		}
+
+		@Override public PooledKdbConnection create() throws Exception {
+			return new PooledKdbConnection(serverConfig.get(), pool);
+		}
+
+		@Override public PooledObject<PooledKdbConnection> wrap(PooledKdbConnection conn) {
+			return new DefaultPooledObject<>(conn);
+		}
+
+		@Override public void activateObject(PooledObject<PooledKdbConnection> p) {
+			p.getObject().borrowed.set(true);
+		}
+
+		@Override public boolean validateObject(PooledObject<PooledKdbConnection> p) {
+			PooledKdbConnection conn = p.getObject();
+			// ping may hand the handler queued unsolicited messages, so check reusable again after it
+			return conn.reusable && conn.isSocketConnected() && conn.ping(VALIDATE_TIMEOUT_MS) && conn.reusable;
+		}
+
+		@Override public void destroyObject(PooledObject<PooledKdbConnection> p) {
+			p.getObject().borrowed.set(false);
+			p.getObject().disconnect();
+		}
+	}
+}
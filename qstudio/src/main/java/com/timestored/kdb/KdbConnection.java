@@ -1,13 +1,20 @@
 package com.timestored.kdb;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 
 import kx.c;
 import kx.c.KException;
+import kx.c.MsgHandler;
 
 import com.timestored.connections.ServerConfig;
+import com.timestored.qstudio.BackgroundExecutor;
 
 /**
  * Provide a standardised connection interface to access a KDB server. 
@@ -27,6 +34,7 @@ public class KdbConnection {
 	private final boolean useAsync;
 	// need this as c.java provides no way to know if closed.
 	private boolean closed = false;
+	private MsgHandler msgHandler = null;
 
 
 	KdbConnection(String host, int port, String username, 
@@ -93,6 +101,54 @@ public class KdbConnection {
 	}
 
 
+	/**
+	 * Send a query without waiting for its result. Multiple queries may be in flight on this
+	 * connection at once, kdb+ answers them in the order they were sent.
+	 * Unlike {@link #query(String)} a failed send is not retried.
+	 */
+	public CompletableFuture<Object> queryAsync(String query) {
+		
+		LOG.info("querying async -> " + query);
+		if(closed) {
+			throw new IllegalStateException("we were closed");
+		}
+		if(useAsync) {
+			// server replies by async callback, can't be pipelined so run queries one by one in the background.
+			return CompletableFuture.supplyAsync(() -> {
+				synchronized (this) {
+					try {
+						return query(query);
+					} catch (IOException | KException e) {
+						throw new CompletionException(e);
+					}
+				}
+			}, BackgroundExecutor.EXECUTOR);
+		}
+		return c.kAsync(query);
+	}
+
+
+	/**
+	 * Wait for the result of {@link #queryAsync(String)}, unwrapping any failure to the exceptions thrown by {@link #query(String)}.
+	 */
+	public static Object await(CompletableFuture<Object> result) throws IOException, KException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted awaiting kdb result");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null ? e.getCause().getCause() : e.getCause();
+			if(cause instanceof KException) {
+				throw (KException) cause;
+			} else if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+
 //	private void disconnectedTryReconnect() throws KException, IOException {
 //		// reconnect and retry
 //		LOG.warning(this.toString() + "-> Error querying, retrying to connect");
@@ -139,6 +195,40 @@ public class KdbConnection {
 	}
 
 	public Object k() throws UnsupportedEncodingException, KException, IOException { return c.k(); }
+
+	/**
+	 * Set the handler given any async or sync message the server sends while a sync query awaits its response,
+	 * e.g. subscription updates. Without one the first message of any type is returned as the query result.
+	 */
+	public void setMsgHandler(MsgHandler msgHandler) {
+		this.msgHandler = msgHandler;
+		c.setMsgHandler(msgHandler);
+	}
+
+	/**
+	 * Check the server still answers with a cheap sync round-trip, sent sync even when using async mode.
+	 * Any unread messages queued ahead of the reply are passed to the {@link #setMsgHandler(MsgHandler)} handler.
+	 * @param timeoutMs How long to wait for the reply, if it times out the connection should be discarded. 
+	 * @return true if the server replied as expected in time.
+	 */
+	public boolean ping(int timeoutMs) {
+		Socket s = c.s;
+		if(closed || s == null) {
+			return false;
+		}
+		try {
+			int prevTimeout = s.getSoTimeout();
+			s.setSoTimeout(timeoutMs);
+			try {
+				return Boolean.TRUE.equals(c.k("1b"));
+			} finally {
+				s.setSoTimeout(prevTimeout);
+			}
+		} catch (IOException | KException | RuntimeException e) {
+			LOG.fine("ping failed " + getName() + " " + e);
+			return false;
+		}
+	}
 	
 	private void reconnect() throws IOException {
 		if(closed) {
@@ -148,6 +238,7 @@ public class KdbConnection {
 			LOG.info("Trying reconnect host:" + host);
 			c = new c(host, port, username + ":" + password, useTLS);
 			c.setEncoding("UTF-8");
+			c.setMsgHandler(msgHandler);
 		} catch (KException e) {
 			throw new IOException(e);
 		}
@@ -155,6 +246,10 @@ public class KdbConnection {
 	
 	public String getName() { return host + ":" + port; }
 
-	public boolean isConnected() { return !closed && c.s.isConnected(); }
+	/** @return true if queries can still be sent, i.e. not closed and, if pipelined, the response reader hasn't failed. */
+	public boolean isConnected() {
+		Socket s = c.s;
+		return !closed && s != null && s.isConnected() && !c.isPipelineFailed();
+	}
 
 }
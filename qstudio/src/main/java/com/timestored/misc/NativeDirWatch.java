@@ -0,0 +1,146 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2023 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.misc;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Preconditions;
+import com.timestored.misc.DirWatch.DirWatchListener;
+
+/**
+ * Same purpose as {@link DirWatch} but uses the operating system's {@link WatchService} so that changes are
+ * reported as they happen rather than found by rescanning the tree on a timer.
+ * Bursts of events, e.g. an editor saving via a temp file, are reported as one change.
+ * For graceful shutdown call {@link #stop()}.
+ */
+public class NativeDirWatch {
+
+	private static final Logger LOG = Logger.getLogger(NativeDirWatch.class.getName());
+	/** Events arriving within this long of each other are reported as one change. */
+	private static final long DEBOUNCE_MILLIS = 100;
+
+	private final List<DirWatchListener> listeners = new CopyOnWriteArrayList<DirWatchListener>();
+	private final FileFilter fileFilter;
+	private WatchService watchService;
+	private Thread watchThread;
+
+	/** @param fileFilter Folders it rejects, and everything below them, are not watched. */
+	public NativeDirWatch(FileFilter fileFilter) {
+		this.fileFilter = fileFilter;
+	}
+
+	public void setRoot(File root) throws IOException {
+		Preconditions.checkNotNull(root);
+		stop();
+		WatchService ws = FileSystems.getDefault().newWatchService();
+		registerAll(ws, root);
+		watchService = ws;
+		watchThread = new Thread(() -> watch(ws), "NativeDirWatch-" + root.getName());
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	public void stop() {
+		if(watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "problem stopping", e);
+			}
+			watchService = null;
+			watchThread = null;
+		}
+	}
+
+	public void addListener(DirWatchListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(DirWatchListener listener) {
+		listeners.remove(listener);
+	}
+
+	private void registerAll(WatchService ws, File dir) throws IOException {
+		if(!dir.isDirectory()) {
+			return;
+		}
+		dir.toPath().register(ws, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+		File[] children = DirWatch.getFiles(fileFilter, dir);
+		if(children != null) {
+			for(File f : children) {
+				if(f.isDirectory()) {
+					registerAll(ws, f);
+				}
+			}
+		}
+	}
+
+	private void watch(WatchService ws) {
+		try {
+			while(true) {
+				WatchKey key = ws.take();
+				// Keep draining until things go quiet to report a burst of events once.
+				while(key != null) {
+					handleEvents(ws, key);
+					key = ws.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+				}
+				for(DirWatchListener l : listeners) {
+					l.changeOccurred();
+				}
+			}
+		} catch(ClosedWatchServiceException | InterruptedException e) {
+			LOG.fine("NativeDirWatch stopped");
+		}
+	}
+
+	private void handleEvents(WatchService ws, WatchKey key) {
+		Path dir = (Path) key.watchable();
+		for(WatchEvent<?> event : key.pollEvents()) {
+			if(event.kind() == ENTRY_CREATE) {
+				File f = dir.resolve((Path) event.context()).toFile();
+				if(f.isDirectory() && (fileFilter == null || fileFilter.accept(f))) {
+					try {
+						registerAll(ws, f);
+					} catch (IOException e) {
+						LOG.log(Level.WARNING, "Could not watch " + f, e);
+					}
+				}
+			} else if(event.kind() == OVERFLOW) {
+				LOG.fine("WatchService overflow, events were lost");
+			}
+		}
+		key.reset();
+	}
+}
@@ -17,13 +17,25 @@
 package com.timestored.pro.csvloader;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,6 +43,7 @@ import javax.swing.table.TableModel;
 
 import kx.c;
 import kx.c.KException;
+import au.com.bytecode.opencsv.CSVParser;
 import au.com.bytecode.opencsv.CSVReader;
 
 import com.google.common.base.Preconditions;
@@ -38,21 +51,50 @@ import com.timestored.kdb.KdbConnection;
 
 /**
  * Allows loading CSV format files as TableModels or into a kdbConnection.
- * For now a non-existent empty table must be specified as the destination
- * 
+ * For now a non-existent empty table must be specified as the destination.
+ * <p>
+ * The file is memory mapped and split into chunks that end on a record boundary, chunks are parsed in parallel.
+ * A first pass finds the kdb type of each column, the second converts each chunk to typed columns
+ * client side and sends them as inserts in file order, with at most {@link #MAX_CHUNKS_AHEAD} parsed chunks waiting.
+ * Only types that are ambiguous to parse, e.g. day/month ordered dates, are sent as strings and cast by kdb.
+ * Charsets that are not ASCII compatible can't be split by bytes, nor can files containing the escape character,
+ * so these are read as one chunk at a time in sequence.
  */
 class CSVLoader {
 
 	private static final Logger LOG = Logger.getLogger(CSVLoader.class.getName());
-	private static final int KDB_BUFFER_ROWS = 100;
+	/** Approximate size of each part of the file that is parsed and sent as one insert. */
+	private static final int CHUNK_BYTES = 8 * 1024 * 1024;
+	/** The escape character both {@link CSVReader}s use, the same as {@link CsvConfig#getCsvReader(File)}. */
+	private static final char ESCAPE = CSVParser.DEFAULT_ESCAPE_CHARACTER;
+	/** Rows per insert when the file must be read sequentially. */
+	private static final int KDB_BUFFER_ROWS = 50_000;
+	private static final int PARSE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	/** Bounds memory use when the server is slower than parsing. */
+	private static final int MAX_CHUNKS_AHEAD = PARSE_THREADS + 1;
+
+	private static final ExecutorService PARSE_EXECUTOR = Executors.newFixedThreadPool(PARSE_THREADS, r -> {
+		Thread t = new Thread(r, "csvloader-parse");
+		t.setDaemon(true);
+		return t;
+	});
 
 	private final KdbConnection kdbConn;
 	private final String tableName; 
-	
-	private final KdbTypeMatcherTabListener kdbTypeListener;
-	private final KdbSendTabListener kdbSendTabListener;
-	private final BufferedReadProc bufferedReader;
-	private final CSVReader reader;
+	private final File file;
+	private final CsvConfig csvConfig;
+	private final Charset charset;
+
+	private String[] colNames;
+	private final KdbTypeMatcherTabListener kdbTypeListener = new KdbTypeMatcherTabListener();
+	/** Set for ASCII compatible charsets, start/end byte offsets of each chunk of whole records. */
+	private List<long[]> chunks;
+	private FileChannel fileChannel;
+	private int nextChunk = 0;
+	/** Set when the file can't be chunked, the sequential reader positioned after the header. */
+	private CSVReader reader;
+	private final Deque<Future<c.Flip>> chunksAhead = new ArrayDeque<>();
+	private boolean started = false;
 	private boolean readerClosed = false;
 	
 	private int rowsLoaded = 0;
@@ -63,20 +105,13 @@ class CSVLoader {
 	 * @param csvFile A csv file.
 	 * @param csvConfig Configuration for reading csv file.
 	 */
-	public CSVLoader(String csvFile, CsvConfig csvConfig,
-			KdbConnection kdbConn, String tableName) throws UnsupportedEncodingException, FileNotFoundException {
+	public CSVLoader(String csvFile, CsvConfig csvConfig, KdbConnection kdbConn, String tableName) {
 		
-		File f = getFile(csvFile);
+		this.file = getFile(csvFile);
+		this.csvConfig = Preconditions.checkNotNull(csvConfig);
+		this.charset = Charset.forName(csvConfig.getCharset());
 		this.kdbConn = Preconditions.checkNotNull(kdbConn);
 		this.tableName = Preconditions.checkNotNull(tableName);
-		
-		bufferedReader = new BufferedReadProc(csvConfig, KDB_BUFFER_ROWS);
-		kdbTypeListener = new KdbTypeMatcherTabListener();
-		bufferedReader.addTabListener(kdbTypeListener);
-		kdbSendTabListener = new KdbSendTabListener(kdbConn, tableName);
-		bufferedReader.addTabListener(kdbSendTabListener);
-
-		reader = csvConfig.getCsvReader(f);
 	}
 
 	/**
@@ -84,49 +119,61 @@ class CSVLoader {
 	 * @return number of lines loaded to server.
 	 */
 	public int processAll() throws IOException {
-		while(processRow());
+		while(processChunk());
 		return rowsLoaded;
 	}
 	
 	/**
-	 * @return true of an actual row was found and processed or false if end of file reached.
+	 * Send the next chunk of rows to the server, the first call also scans the whole file to find the column types.
+	 * The file is closed once the end is reached or anything fails.
+	 * @return true if rows were found and processed or false if end of file reached.
 	 */
-	boolean processRow() throws IOException {
+	boolean processChunk() throws IOException {
 		
 		if(readerClosed) {
 			throw new IllegalStateException("reader closed at EOF, cant process more");
 		}
-		
-		// if first row check that we don't overwrite existing table
-		if(rowsLoaded == 0) {
+		boolean more = false;
+		try {
+			more = sendChunk();
+			return more;
+		} finally {
+			if(!more) {
+				close();
+			}
+		}
+	}
+
+	private boolean sendChunk() throws IOException {
+		// if first chunk check that we don't overwrite existing table
+		if(!started) {
 			if(!checkTableNameFree()) {
 				throw new IllegalArgumentException("Tablename already in use on server.");
 			}
+			started = true;
+			open();
+			detectTypes();
+			rewind();
 		}
 		
-		String[] values = reader.readNext();
-
-		if(values != null) {
-			bufferedReader.procRow(rowsLoaded++, values);
-		} else {
-		// reached end of file, close reader and send type converter to database server
-			close();
-
-			if(rowsLoaded > 0) {
-				// convert columns to preferred types
-				Map<String, Character> types = kdbTypeListener.getRecognisedKdbTypes();
-				if(!types.isEmpty()) {
-					String castQuery = getUpdateCast(types, tableName) + ";";	
-					kdbConn.send(castQuery);
-				}
-				
-				// cast columns with repeating strings to symbols
-				String castCommonSymbols = "{@[`" + tableName + ";x;\"S\"$]} each where 0.5>{{(count distinct x)%count x } each flip $[count strCols:exec c from meta x where t=\"C\";strCols#x;()]} " + tableName + ";";
-				kdbConn.send(castCommonSymbols);
+		c.Flip tab = nextTable();
+		if(tab != null) {
+			kdbConn.send(new Object[] { "insert".toCharArray(), tableName, tab });
+			rowsLoaded += c.n(tab);
+		} else if(rowsLoaded > 0) {
+			// reached end of file, convert columns that could not be parsed locally to preferred types
+			Map<String, Character> types = kdbTypeListener.getServerCastKdbTypes();
+			if(!types.isEmpty()) {
+				String castQuery = getUpdateCast(types, tableName) + ";";	
+				kdbConn.send(castQuery);
 			}
+			
+			// cast columns with repeating strings to symbols
+			String castCommonSymbols = "{@[`" + tableName + ";x;\"S\"$]} each where 0.5>{{(count distinct x)%count x } each flip $[count strCols:exec c from meta x where t=\"C\";strCols#x;()]} " + tableName + ";";
+			kdbConn.send(castCommonSymbols);
 		}
 		
-		return values!=null;
+		return tab != null;
 	}
 
 	/**
@@ -145,11 +192,266 @@ class CSVLoader {
 		return !variableExists;
 	}
 
-	private void close() throws IOException {
+	/** Position at the first data row, reading the column names from the header. */
+	private void open() throws IOException {
+		byte[] special = (csvConfig.getSeparator() + "" + csvConfig.getQuote() + ESCAPE + "\r\n").getBytes(charset);
+		if(special.length == 5 && special[0] == (byte) csvConfig.getSeparator() && special[1] == (byte) csvConfig.getQuote()
+				&& special[2] == (byte) ESCAPE) {
+			fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			chunks = splitChunks();
+			if(chunks == null) {
+				LOG.info("CSVLoader reading " + file + " sequentially as it contains the escape character " + ESCAPE);
+				closeFile();
+			}
+		}
+		if(chunks == null) {
+			reader = csvConfig.getCsvReader(file);
+			String[] firstRow = reader.readNext();
+			if(firstRow != null) {
+				setColumnNames(firstRow);
+				if(!csvConfig.containsHeader()) {
+					rewind();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the column names and split the data rows into chunks that each end on a record boundary.
+	 * @return the chunks or null if the file contains the escape character, whose effect on
+	 * 	quoting depends on the parser state so can't be followed by a plain byte scan.
+	 */
+	private List<long[]> splitChunks() throws IOException {
+		byte quote = (byte) csvConfig.getQuote();
+		long pos = skipLines(fileChannel, csvConfig.getSkipLines());
+		if(pos < fileChannel.size()) {
+			long end = findRecordEnd(fileChannel, pos, quote, 1);
+			if(end < 0) {
+				return null;
+			}
+			String[] firstRow = parseRows(decode(pos, end)).get(0);
+			setColumnNames(firstRow);
+			pos = csvConfig.containsHeader() ? end : pos;
+		}
+		List<long[]> chunks = new ArrayList<>();
+		long size = fileChannel.size();
+		while(pos < size) {
+			long end = findRecordEnd(fileChannel, pos, quote, CHUNK_BYTES);
+			if(end < 0) {
+				return null;
+			}
+			chunks.add(new long[] { pos, end });
+			pos = end;
+		}
+		LOG.info("CSVLoader split " + file + " into " + chunks.size() + " chunks");
+		return chunks;
+	}
+
+	/** Return to the first data row. */
+	private void rewind() throws IOException {
+		nextChunk = 0;
+		if(reader != null) {
+			reader.close();
+			reader = csvConfig.getCsvReader(file);
+			if(csvConfig.containsHeader()) {
+				reader.readNext();
+			}
+		}
+	}
+
+	private void setColumnNames(String[] firstRow) {
+		colNames = firstRow;
+		if (!csvConfig.containsHeader()) {
+			colNames = new String[firstRow.length];
+			for (int i = 0; i < firstRow.length; i++) {
+				colNames[i] = "c" + i;
+			}
+		}
+	}
+
+	/** Parse the whole file, in parallel where possible, to find the most specific type for each column. */
+	private void detectTypes() throws IOException {
+		if(colNames == null) {
+			return;
+		}
+		if(chunks == null) {
+			for(List<String[]> rows = readRows(); !rows.isEmpty(); rows = readRows()) {
+				kdbTypeListener.tabEvent(colNames, rows);
+			}
+			return;
+		}
+		List<Future<KdbTypeMatcherTabListener>> results = new ArrayList<>(chunks.size());
+		try {
+			for(long[] chunk : chunks) {
+				results.add(PARSE_EXECUTOR.submit(() -> {
+					KdbTypeMatcherTabListener typeListener = new KdbTypeMatcherTabListener();
+					typeListener.tabEvent(colNames, parseRows(decode(chunk[0], chunk[1])));
+					return typeListener;
+				}));
+			}
+			for(Future<KdbTypeMatcherTabListener> f : results) {
+				kdbTypeListener.merge(get(f));
+			}
+		} finally {
+			for(Future<KdbTypeMatcherTabListener> f : results) {
+				f.cancel(true);
+			}
+		}
+	}
+
+	/** @return the next chunk of rows as a typed kdb table or null if there are no more. */
+	private c.Flip nextTable() throws IOException {
+		if(colNames == null) {
+			return null;
+		}
+		if(chunks == null) {
+			List<String[]> rows = readRows();
+			return rows.isEmpty() ? null : toTable(rows);
+		}
+		while(chunksAhead.size() < MAX_CHUNKS_AHEAD && nextChunk < chunks.size()) {
+			long[] chunk = chunks.get(nextChunk++);
+			chunksAhead.add(PARSE_EXECUTOR.submit(() -> toTable(parseRows(decode(chunk[0], chunk[1])))));
+		}
+		return chunksAhead.isEmpty() ? null : get(chunksAhead.poll());
+	}
+
+	private static <T> T get(Future<T> f) throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("csv load interrupted");
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/** convert row data into a kdb table with columns of the types detected. **/
+	private c.Flip toTable(List<String[]> rowData) {
+		Object[] data = new Object[colNames.length];
+		for (int c = 0; c < colNames.length; c++) {
+			data[c] = kdbTypeListener.toKdbColumn(colNames[c], rowData, c);
+		}
+		// create the command to insert the table of data into the named table.
+		return new c.Flip(new c.Dict(colNames, data));
+	}
+
+	/** @return Up to {@link #KDB_BUFFER_ROWS} rows from the sequential reader, empty at the end of file. */
+	private List<String[]> readRows() throws IOException {
+		List<String[]> rows = new ArrayList<>();
+		String[] values;
+		while(rows.size() < KDB_BUFFER_ROWS && (values = reader.readNext()) != null) {
+			rows.add(pad(values));
+		}
+		return rows;
+	}
+
+	private String decode(long start, long end) throws IOException {
+		ByteBuffer buf = fileChannel.map(MapMode.READ_ONLY, start, end - start);
+		return charset.decode(buf).toString();
+	}
+
+	private List<String[]> parseRows(String records) throws IOException {
+		CSVReader r = new CSVReader(new StringReader(records), csvConfig.getSeparator(), csvConfig.getQuote());
+		List<String[]> rows = r.readAll();
+		r.close();
+		for(int i = 0; i < rows.size(); i++) {
+			rows.set(i, pad(rows.get(i)));
+		}
+		return rows;
+	}
+
+	/** pad all rows to have same number of columns as header row. */
+	private String[] pad(String[] values) {
+		if(colNames == null || values.length >= colNames.length) {
+			return values;
+		}
+		String[] v = Arrays.copyOf(values, colNames.length);
+		Arrays.fill(v, values.length, v.length, "");
+		return v;
+	}
+
+	/** @return The byte offset after skipping the given number of lines. */
+	private static long skipLines(FileChannel fc, int lines) throws IOException {
+		long pos = 0;
+		long size = fc.size();
+		int found = 0;
+		while(found < lines && pos < size) {
+			ByteBuffer buf = fc.map(MapMode.READ_ONLY, pos, Math.min(CHUNK_BYTES, size - pos));
+			int idx = 0;
+			for(; idx < buf.limit() && found < lines; idx++) {
+				if(buf.get(idx) == '\n') {
+					found++;
+				}
+			}
+			pos += idx;
+		}
+		return pos;
+	}
+
+	/**
+	 * @return The offset after the last newline outside of quotes within minBytes of start,
+	 * 	looking further if there are none, or the end of file. -1 if the escape character is found.
+	 */
+	private static long findRecordEnd(FileChannel fc, long start, byte quote, int minBytes) throws IOException {
+		long size = fc.size();
+		for(long window = minBytes; start + window < size; window *= 2) {
+			if(window > Integer.MAX_VALUE) {
+				throw new IOException("csv record at byte " + start + " is too large");
+			}
+			ByteBuffer buf = fc.map(MapMode.READ_ONLY, start, window);
+			boolean inQuotes = false;
+			int lastEnd = -1;
+			for(int i = 0; i < buf.limit(); i++) {
+				byte b = buf.get(i);
+				if(b == ESCAPE) {
+					return -1;
+				} else if(b == quote) {
+					inQuotes = !inQuotes;
+				} else if(b == '\n' && !inQuotes) {
+					lastEnd = i;
+					if(minBytes == 1) {
+						break;
+					}
+				}
+			}
+			if(lastEnd >= 0) {
+				return start + lastEnd + 1;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Stop loading, cancelling any chunks being parsed ahead and closing the file. 
+	 * Must be called from the thread calling {@link #processChunk()} if it is abandoned before returning false.
+	 */
+	void close() {
 		readerClosed = true;
-		reader.close();
-		bufferedReader.flush();
-		rowsLoaded = kdbSendTabListener.getRowsSent();
+		for(Future<c.Flip> f : chunksAhead) {
+			f.cancel(true);
+		}
+		chunksAhead.clear();
+		try {
+			closeFile();
+		} catch(IOException e) {
+			LOG.log(Level.FINE, "problem closing csv file", e);
+		}
+	}
+
+	private void closeFile() throws IOException {
+		if(reader != null) {
+			reader.close();
+			reader = null;
+		}
+		if(fileChannel != null) {
+			fileChannel.close();
+			fileChannel = null;
+		}
+		chunks = null;
 	}
 
 	public int getRowsLoaded() {
@@ -210,51 +512,4 @@ class CSVLoader {
 		Preconditions.checkArgument(f.exists() && f.canRead());
 		return f;
 	}
-
-	
-	/**
-	 * Listen to tab data and send to server as inserts to given tableName.
-	 */
-	private static class KdbSendTabListener implements TabListener {
-
-		private final KdbConnection kdbConn;
-		private final String tableName;
-		private int rowsSent = 0;
-
-		public KdbSendTabListener(KdbConnection kdbConn, String tableName) {
-			this.kdbConn = Preconditions.checkNotNull(kdbConn);
-			this.tableName = Preconditions.checkNotNull(tableName);
-		}
-		
-		@Override public void tabEvent(String[] colNames, List<String[]> rowData) {
-			c.Flip tab = getTable(rowData, colNames);
-			Object[] updStatement = new Object[] { "insert".toCharArray(),
-					tableName, tab };
-			try {
-				kdbConn.send(updStatement);
-				rowsSent += rowData.size();
-			} catch (IOException e) {
-				LOG.log(Level.WARNING, "loadToServer", e);
-			}
-		}
-		
-		public int getRowsSent() {
-			return rowsSent;
-		}
-	}
-	
-	
-	/** convert row data and colNames into kdb table **/
-	private static c.Flip getTable(List<String[]> rowData, String[] colNames) {
-		Object[] data = new Object[colNames.length];
-		for (int c = 0; c < colNames.length; c++) {
-			char[][] colVals = new char[rowData.size()][];
-			for (int r = 0; r < rowData.size(); r++) {
-				colVals[r] = rowData.get(r)[c].toCharArray();
-			}
-			data[c] = colVals;
-		}
-		// create the command to insert the table of data into the named table.
-		return new c.Flip(new c.Dict(colNames, data));
-	}
 }
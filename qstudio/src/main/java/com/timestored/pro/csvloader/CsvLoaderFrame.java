@@ -381,18 +381,20 @@ public class CsvLoaderFrame extends JFrame implements CsvLoaderModel.Listener {
 						frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
 					}
 				});
-				while(csvLoader.processRow() && !isCancelled()) {
+				while(csvLoader.processChunk() && !isCancelled()) {
 					rows = csvLoader.getRowsLoaded();
-					if(rows%100==0) {
-						publish(rows);
-					}
+					publish(rows);
 				}
 			} catch(IOException ioe) {
-				errMessage = "Problem sending data to server, not all data may have been sent";
+				if(!isCancelled()) {
+					errMessage = "Problem sending data to server, not all data may have been sent";
+				}
 			} catch(IllegalArgumentException iae) {
 				errMessage = iae.getMessage();
 			} catch(IllegalStateException ise) {
 				errMessage = ise.getMessage();
+			} finally {
+				csvLoader.close(); // if cancelled stop parsing ahead and release the file
 			}
 			EventQueue.invokeLater(new Runnable() {
 				@Override public void run() {
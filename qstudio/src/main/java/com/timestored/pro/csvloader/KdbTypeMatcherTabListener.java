@@ -16,6 +16,8 @@
  */
 package com.timestored.pro.csvloader;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -24,12 +26,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.regex.Pattern;
+
+import kx.c;
 
 
 
 /**
  * Listening to all tab data keeps a record of what kdb column type
  * conversion would be most specifically suitable. 
+ * Where the conversion is unambiguous, columns can then be converted client side using {@link #toKdbColumn(String, List, int)}.
  */
 class KdbTypeMatcherTabListener implements TabListener {
 	
@@ -41,6 +47,24 @@ class KdbTypeMatcherTabListener implements TabListener {
 				return s.trim().isEmpty(); 
 			}
 		},
+		YMD_DATE('D', "^\\d{4}[\\/\\-\\.]\\d{1,2}[\\/\\-\\.]\\d{1,2}$") {
+			@Override Object toColumn(List<String[]> rowData, int col) {
+				LocalDate[] r = new LocalDate[rowData.size()];
+				for(int i=0; i<r.length; i++) {
+					String[] ymd = rowData.get(i)[col].trim().split("[\\/\\-\\.]");
+					r[i] = LocalDate.MIN;
+					if(ymd.length == 3) {
+						try {
+							r[i] = LocalDate.of(Integer.parseInt(ymd[0]), Integer.parseInt(ymd[1]), Integer.parseInt(ymd[2]));
+						} catch(DateTimeException e) {
+							// invalid dates are null as kdb would
+						}
+					}
+				}
+				return r;
+			}
+		},
+		// day/month ordering is ambiguous so this is left to kdb to cast
 		DATE('D', "") {
 			@Override public boolean recognises(String s) {
 				boolean match = false;
@@ -60,25 +84,81 @@ class KdbTypeMatcherTabListener implements TabListener {
 				return match;
 			}
 		},
-		MINUTE('U', "^(?:[0-2])?[0-9]:[0-5][0-9]$"),
-		SECOND('V', "^(?:[0-2])?[0-9]:[0-5][0-9](:[0-5][0-9])?$"),
+		MINUTE('U', "^(?:[0-2])?[0-9]:[0-5][0-9]$") {
+			@Override Object toColumn(List<String[]> rowData, int col) {
+				c.Minute[] r = new c.Minute[rowData.size()];
+				for(int i=0; i<r.length; i++) {
+					String s = rowData.get(i)[col].trim();
+					r[i] = new c.Minute(s.isEmpty() ? Integer.MIN_VALUE : (int) (toMillis(s) / 60000));
+				}
+				return r;
+			}
+		},
+		SECOND('V', "^(?:[0-2])?[0-9]:[0-5][0-9](:[0-5][0-9])?$") {
+			@Override Object toColumn(List<String[]> rowData, int col) {
+				c.Second[] r = new c.Second[rowData.size()];
+				for(int i=0; i<r.length; i++) {
+					String s = rowData.get(i)[col].trim();
+					r[i] = new c.Second(s.isEmpty() ? Integer.MIN_VALUE : (int) (toMillis(s) / 1000));
+				}
+				return r;
+			}
+		},
+		// times of 24:00 and later are valid in kdb but not as the LocalTime the client sends so this is left to kdb to cast
 		TIME('T', "^(?:[0-2])?[0-9]:[0-5][0-9](:[0-5][0-9](\\.?[0-9]*))??$"),
-		LONG('J', "^-?\\d{1,19}$"),
-		DOUBLE('F', "[-+]?[0-9]*\\.?[0-9]+(e[+-]?\\d+)?");
+		LONG('J', "^-?\\d{1,19}$") {
+			@Override Object toColumn(List<String[]> rowData, int col) {
+				long[] r = new long[rowData.size()];
+				for(int i=0; i<r.length; i++) {
+					String s = rowData.get(i)[col].trim();
+					try {
+						r[i] = s.isEmpty() ? Long.MIN_VALUE : Long.parseLong(s);
+					} catch(NumberFormatException e) {
+						r[i] = Long.MIN_VALUE; // beyond the range of long
+					}
+				}
+				return r;
+			}
+		},
+		DOUBLE('F', "[-+]?[0-9]*\\.?[0-9]+(e[+-]?\\d+)?") {
+			@Override Object toColumn(List<String[]> rowData, int col) {
+				double[] r = new double[rowData.size()];
+				for(int i=0; i<r.length; i++) {
+					String s = rowData.get(i)[col].trim();
+					r[i] = s.isEmpty() ? Double.NaN : Double.parseDouble(s);
+				}
+				return r;
+			}
+		};
 
-		private final String regex;
+		private final Pattern pattern;
 		private final char kdbTypeLetter; 
 
 		private RECOGNISED_TYPES(char kdbTypeLetter, String regex) {
 			this.kdbTypeLetter = kdbTypeLetter;
-			this.regex = regex;
+			this.pattern = Pattern.compile(regex);
 		}
 		
 		public boolean recognises(String s) {
-			if(this.equals(DOUBLE) && !s.matches(regex)) {
-				System.out.println(s);
+			return pattern.matcher(s).matches();
+		}
+
+		/** @return The column converted to the kdb type or null if it must be sent as strings and cast by kdb. */
+		Object toColumn(List<String[]> rowData, int col) {
+			return null;
+		}
+
+		/** @return milliseconds since midnight of h:mm[:ss[.fff]], any fraction digits beyond milliseconds are ignored. */
+		private static long toMillis(String s) {
+			String[] a = s.split(":");
+			long ms = (Integer.parseInt(a[0]) * 60L + Integer.parseInt(a[1])) * 60_000L;
+			if(a.length > 2) {
+				ms += Integer.parseInt(a[2].substring(0, 2)) * 1000L;
+				String frac = a[2].substring(2).replace(".", "");
+				frac = (frac + "000").substring(0, 3);
+				ms += Integer.parseInt(frac);
 			}
-			return s.matches(regex);
+			return ms;
 		}
 	};
 	
@@ -108,21 +188,76 @@ class KdbTypeMatcherTabListener implements TabListener {
 		}
 	}
 	
+	/**
+	 * Combine the types seen by another listener with this one, as if this listener had seen its tab data too.
+	 * Allows separate parts of a file to be checked in parallel.
+	 */
+	public void merge(KdbTypeMatcherTabListener other) {
+		for(Entry<String, Set<RECOGNISED_TYPES>> e : other.colnameToTypeMatches.entrySet()) {
+			Set<RECOGNISED_TYPES> possible = colnameToTypeMatches.get(e.getKey());
+			if(possible == null) {
+				colnameToTypeMatches.put(e.getKey(), EnumSet.copyOf(e.getValue()));
+			} else {
+				possible.retainAll(e.getValue());
+			}
+		}
+	}
+	
 	/**
 	 * @return map from column names seen to the most specific kdb letter
 	 * that that column could be safely converted to. Strings/* are not returned.
 	 */
 	public Map<String,Character> getRecognisedKdbTypes() {
 		HashMap<String, Character> r = new HashMap<String,Character>();
-		for(Entry<String, Set<RECOGNISED_TYPES>> e : colnameToTypeMatches.entrySet()) {
-			if (!e.getValue().isEmpty()) {
-				ArrayList<RECOGNISED_TYPES> types = new ArrayList<RECOGNISED_TYPES>(e.getValue());
-				Collections.sort(types); // order gives priority
-				if(types.get(0).kdbTypeLetter != '*') {
-					r.put(e.getKey(), types.get(0).kdbTypeLetter);
-				}
+		for(String cn : colnameToTypeMatches.keySet()) {
+			RECOGNISED_TYPES type = getBestType(cn);
+			if(type != null && type.kdbTypeLetter != '*') {
+				r.put(cn, type.kdbTypeLetter);
 			}
 		}
 		return r;
 	}
+
+	/**
+	 * @return map from column names seen to the kdb letter that column should be cast to by the server,
+	 * 	only includes those that {@link #toKdbColumn(String, List, int)} could not convert.
+	 */
+	public Map<String,Character> getServerCastKdbTypes() {
+		HashMap<String, Character> r = new HashMap<String,Character>();
+		for(Entry<String, Character> e : getRecognisedKdbTypes().entrySet()) {
+			// types without a client side conversion return null
+			if(getBestType(e.getKey()).toColumn(Collections.<String[]>emptyList(), 0) == null) {
+				r.put(e.getKey(), e.getValue());
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Convert one column of tab data to the type recognised for it from all data seen.
+	 * @return A typed array suitable for sending to kdb or if no conversion is known, an array of strings as char[]'s.
+	 */
+	public Object toKdbColumn(String colName, List<String[]> rowData, int col) {
+		RECOGNISED_TYPES type = getBestType(colName);
+		Object r = type == null ? null : type.toColumn(rowData, col);
+		if(r == null) {
+			char[][] colVals = new char[rowData.size()][];
+			for (int i = 0; i < colVals.length; i++) {
+				colVals[i] = rowData.get(i)[col].toCharArray();
+			}
+			r = colVals;
+		}
+		return r;
+	}
+
+	/** @return most specific type all values seen for a column match or null if none. */
+	private RECOGNISED_TYPES getBestType(String colName) {
+		Set<RECOGNISED_TYPES> possible = colnameToTypeMatches.get(colName);
+		if (possible == null || possible.isEmpty()) {
+			return null;
+		}
+		ArrayList<RECOGNISED_TYPES> types = new ArrayList<RECOGNISED_TYPES>(possible);
+		Collections.sort(types); // order gives priority
+		return types.get(0);
+	}
 }
\ No newline at end of file
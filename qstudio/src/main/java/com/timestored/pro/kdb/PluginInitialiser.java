@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -50,7 +51,9 @@ import com.timestored.qstudio.QStudioModel;
 import com.timestored.qstudio.ServerDocumentPanel;
 import com.timestored.qstudio.UpdateHelper;
 import com.timestored.qstudio.model.AdminModel;
+import com.timestored.qstudio.model.AdminModel.Category;
 import com.timestored.qstudio.model.DatabaseDirector;
+import com.timestored.qstudio.model.QEntity;
 import com.timestored.qstudio.model.QueryManager;
 import com.timestored.qstudio.model.ServerModel;
 import com.timestored.qstudio.model.ServerObjectTree;
@@ -93,6 +96,25 @@ public class PluginInitialiser {
 	}
 	
 	
+	/** Re-index the matchers docs whenever the servers or open documents that its source reads from change. */
+	private static DocumentedMatcher reindexOnChange(QStudioModel qsm, DocumentedMatcher dm) {
+		qsm.getAdminModel().addListener(new AdminModel.Listener() {
+			@Override public void selectionChanged(ServerModel serverModel, Category category, String namespace, QEntity element) {
+				dm.invalidate();
+			}
+			@Override public void modelChanged() { dm.invalidate(); }
+			@Override public void modelChanged(ServerModel sm) { dm.invalidate(); }
+		});
+		qsm.getOpenDocumentsModel().addListener(new OpenDocumentsModel.Adapter() {
+			@Override public void docAdded(Document document) { dm.invalidate(); }
+			@Override public void docClosed(Document document) { dm.invalidate(); }
+			@Override public void docSaved() { dm.invalidate(); }
+			@Override public void folderSelected(File selectedFolder) { dm.invalidate(); }
+			@Override public void ignoredFolderPatternSelected(Pattern ignoredFolderPattern) { dm.invalidate(); }
+		});
+		return dm;
+	}
+	
 	public static void init(final QStudioModel qsm) {
 		
 		init();
@@ -110,19 +132,19 @@ public class PluginInitialiser {
 		});
 
 		QDocController.registerDocMatcherSupplier(() -> {
-			return new DocumentedMatcher(Language.Q, new KdbDocSource(qsm), "[","]",";", false, new KdbCustomAutocompleter());
+			return reindexOnChange(qsm, new DocumentedMatcher(Language.Q, new KdbDocSource(qsm), "[","]",";", false, new KdbCustomAutocompleter()));
 		});
 		QDocController.registerDocMatcherSupplier(() -> {
 			SqlDocSource ds = new SqlDocSource(qsm.getAdminModel(), SqlFunctions::getKnownFunctions);
-			return new DocumentedMatcher(Language.SQL, ds, "(", ")", ",", true, null);
+			return reindexOnChange(qsm, new DocumentedMatcher(Language.SQL, ds, "(", ")", ",", true, null));
 		});
 		QDocController.registerDocMatcherSupplier(() -> {
 			SqlDocSource ds = new SqlDocSource(qsm.getAdminModel(), DosDocs::getKnownFunctions);
-			return new DocumentedMatcher(Language.DOLPHIN,ds, "(", ")", ",", true, null);
+			return reindexOnChange(qsm, new DocumentedMatcher(Language.DOLPHIN,ds, "(", ")", ",", true, null));
 		});
 		QDocController.registerDocMatcherSupplier(() -> {
 			SqlDocSource ds = new SqlDocSource(qsm.getAdminModel(), RflDocs::getKnownFunctions);
-			return new DocumentedMatcher(Language.RFL,ds, "(", ")", " ", true, null);
+			return reindexOnChange(qsm, new DocumentedMatcher(Language.RFL,ds, "(", ")", " ", true, null));
 		});
 		
 		CommonActions.setProActionPlugin((@NonNull CommonActions commonActions, @NonNull Growler growler) -> {
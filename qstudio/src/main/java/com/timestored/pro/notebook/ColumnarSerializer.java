@@ -0,0 +1,378 @@
+package com.timestored.pro.notebook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.timestored.kdb.QueryResultI;
+import com.timestored.qstudio.kdb.KdbHelper;
+
+/**
+ * Writes a query result as little-endian typed column buffers that the browser can wrap in TypedArrays
+ * rather than parsing JSON. The buffer layout follows Apache Arrow's so each column maps onto an Arrow vector.
+ * <pre>
+ * "QCOL" | int32 header length | UTF-8 JSON header | padding to 8 bytes | body
+ * </pre>
+ * The header gives the row count and for each column its name, type and [offset,length] of its buffers in the body,
+ * every buffer starting on an 8 byte boundary:
+ * <ul>
+ * <li>validity - one bit per row, least significant bit first, set when the value is present. Absent if there are no nulls.</li>
+ * <li>data - float64, int64, int32 or uint8 values, or the UTF-8 bytes of a utf8 column.</li>
+ * <li>offsets - for utf8 columns only, int32 rows+1 positions into data.</li>
+ * </ul>
+ * Temporal columns are int64 epoch millis with jsType Date, DateOnly or Time as in the JSON format.
+ */
+class ColumnarSerializer {
+
+	private static final byte[] MAGIC = "QCOL".getBytes(StandardCharsets.US_ASCII);
+	private static final int INITIAL_CAPACITY = 1024;
+	/** Body buffers are encoded into and written out through a buffer of this size rather than each being built whole. */
+	private static final int CHUNK_SIZE = 64 * 1024;
+	/** Browsers address buffers with int32 offsets and TypedArray lengths so no one buffer may be larger. */
+	private static final long MAX_BUFFER_BYTES = Integer.MAX_VALUE;
+
+	private static final String FLOAT64 = "float64", INT64 = "int64", INT32 = "int32", BOOL = "bool", UTF8 = "utf8";
+	private static final String VALIDITY = "validity", DATA = "data", OFFSETS = "offsets";
+
+	/**
+	 * Write qr to out, which is flushed but not closed. All buffer sizes are known before the header is written,
+	 * each column is then encoded straight to out and released.
+	 * @throws IOException If any column buffer would exceed 2GB, in which case nothing is written.
+	 */
+	public void write(QueryResultI qr, OutputStream out) throws IOException {
+		Map<String,Object> header = new LinkedHashMap<>();
+		List<Col> cols = new ArrayList<>();
+		int rows = 0;
+		if(qr.getRs() != null) {
+			try {
+				rows = readColumns(qr.getRs(), cols);
+			} catch(SQLException e) {
+				throw new IOException(e);
+			}
+		}
+		header.put("rows", rows);
+		if(qr.getConsoleView() != null) {
+			header.put("console", qr.getConsoleView());
+		}
+		if(qr.getE() != null) {
+			header.put("exception", qr.getE().getLocalizedMessage());
+		}
+		if(qr.isExceededMax()) {
+			header.put("exceededMaxRows", true);
+		}
+
+		List<Map<String,Object>> colHeaders = new ArrayList<>(cols.size());
+		long offset = 0;
+		for(Col col : cols) {
+			Map<String,Long> layout = col.layout(rows);
+			Map<String,Object> ch = new LinkedHashMap<>();
+			ch.put("name", col.name);
+			ch.put("type", col.type);
+			if(col.jsType != null) {
+				ch.put("jsType", col.jsType);
+			}
+			for(Map.Entry<String,Long> e : layout.entrySet()) {
+				long len = e.getValue();
+				if(len > MAX_BUFFER_BYTES) {
+					throw new IOException("Result too large for the columnar format, column " + col.name + " "
+							+ e.getKey() + " would be " + len + " bytes, the limit per buffer is 2GB.");
+				}
+				ch.put(e.getKey(), new long[] { offset, len });
+				offset += pad8(len);
+			}
+			colHeaders.add(ch);
+		}
+		header.put("columns", colHeaders);
+
+		byte[] headerBytes = new ObjectMapper().writeValueAsBytes(header);
+		ByteBuffer prefix = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		prefix.put(MAGIC).putInt(headerBytes.length);
+		out.write(prefix.array());
+		out.write(headerBytes);
+		out.write(new byte[(int) pad8(headerBytes.length) - headerBytes.length]);
+		ChunkWriter w = new ChunkWriter(out);
+		for(int c = 0; c < cols.size(); c++) {
+			Col col = cols.get(c);
+			for(Map.Entry<String,Long> e : col.bufferLengths.entrySet()) {
+				long start = w.written;
+				col.writeBuffer(e.getKey(), rows, w);
+				if(w.written - start != e.getValue()) {
+					throw new IllegalStateException("column " + col.name + " " + e.getKey() + " length differs from header");
+				}
+				w.pad8();
+			}
+			cols.set(c, null); // release each column's values once sent
+		}
+		w.flush();
+		out.flush();
+	}
+
+	private static long pad8(long len) { return (len + 7) & ~7L; }
+
+	/** Encodes values little-endian into a small reused buffer that is written out whenever full. */
+	private static class ChunkWriter {
+		private final OutputStream out;
+		private final ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		/** Bytes of body written so far, the body starts 8 byte aligned so this gives the alignment. */
+		private long written = 0;
+
+		ChunkWriter(OutputStream out) {
+			this.out = out;
+		}
+
+		private void ensure(int n) throws IOException {
+			if(buf.remaining() < n) {
+				flush();
+			}
+		}
+
+		void put(byte b) throws IOException { ensure(1); buf.put(b); written++; }
+		void putInt(int v) throws IOException { ensure(4); buf.putInt(v); written += 4; }
+		void putLong(long v) throws IOException { ensure(8); buf.putLong(v); written += 8; }
+		void putDouble(double v) throws IOException { ensure(8); buf.putDouble(v); written += 8; }
+
+		void put(byte[] b) throws IOException {
+			if(b.length > buf.capacity()) {
+				flush();
+				out.write(b);
+			} else {
+				ensure(b.length);
+				buf.put(b);
+			}
+			written += b.length;
+		}
+
+		void pad8() throws IOException {
+			while((written & 7) != 0) {
+				put((byte) 0);
+			}
+		}
+
+		void flush() throws IOException {
+			out.write(buf.array(), 0, buf.position());
+			buf.clear();
+		}
+	}
+
+	private static int readColumns(ResultSet rs, List<Col> cols) throws SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int numColumns = rsmd.getColumnCount();
+		for(int c = 0; c < numColumns; c++) {
+			cols.add(new Col(rsmd.getColumnLabel(c + 1), rsmd.getColumnType(c + 1)));
+		}
+		rs.beforeFirst();
+		int row = 0;
+		while(rs.next()) {
+			for(int c = 0; c < numColumns; c++) {
+				cols.get(c).add(row, rs, c + 1);
+			}
+			row++;
+		}
+		return row;
+	}
+
+	/** Growable typed storage for one column, the type is chosen from the SQL type or for generic objects their values. */
+	private static class Col {
+		private final String name;
+		private String type;
+		private String jsType;
+		private BitSet nulls;
+		private double[] doubles;
+		private long[] longs;
+		private int[] ints;
+		private Object[] objects;
+		/** Set by {@link #layout(int)}. */
+		private Map<String,Long> bufferLengths;
+
+		Col(String name, int sqlType) {
+			this.name = name;
+			switch(sqlType) {
+				case Types.TINYINT: case Types.SMALLINT: case Types.INTEGER:
+					type = INT32; ints = new int[INITIAL_CAPACITY]; break;
+				case Types.BIGINT:
+					type = INT64; longs = new long[INITIAL_CAPACITY]; break;
+				case Types.FLOAT: case Types.REAL: case Types.DOUBLE: case Types.DECIMAL: case Types.NUMERIC:
+					type = FLOAT64; doubles = new double[INITIAL_CAPACITY]; break;
+				case Types.BOOLEAN: case Types.BIT:
+					type = BOOL; ints = new int[INITIAL_CAPACITY]; break;
+				case Types.DATE: case Types.TIME: case Types.TIME_WITH_TIMEZONE:
+				case Types.TIMESTAMP: case Types.TIMESTAMP_WITH_TIMEZONE:
+					type = INT64; longs = new long[INITIAL_CAPACITY];
+					jsType = sqlType == Types.TIME || sqlType == Types.TIME_WITH_TIMEZONE ? "Time" : (sqlType == Types.DATE ? "DateOnly" : "Date");
+					break;
+				default:
+					objects = new Object[INITIAL_CAPACITY]; // resolved once all values are seen
+			}
+		}
+
+		void add(int row, ResultSet rs, int colIdx) throws SQLException {
+			ensureCapacity(row);
+			Object o;
+			if(objects != null) {
+				objects[row] = rs.getObject(colIdx);
+				return;
+			} else if(ints != null) {
+				ints[row] = BOOL.equals(type) ? (rs.getBoolean(colIdx) ? 1 : 0) : rs.getInt(colIdx);
+			} else if(doubles != null) {
+				doubles[row] = rs.getDouble(colIdx);
+			} else if(jsType == null) {
+				longs[row] = rs.getLong(colIdx);
+			} else if((o = rs.getObject(colIdx)) != null) {
+				longs[row] = ResultSetSerializer.toEpochMillis(o);
+			}
+			if(rs.wasNull() || (jsType != null && longs[row] == Long.MIN_VALUE)) {
+				setNull(row);
+			}
+		}
+
+		private void setNull(int row) {
+			if(nulls == null) {
+				nulls = new BitSet();
+			}
+			nulls.set(row);
+		}
+
+		private void ensureCapacity(int row) {
+			int len = objects != null ? objects.length : ints != null ? ints.length : doubles != null ? doubles.length : longs.length;
+			if(row < len) {
+				return;
+			}
+			int newLen = Math.max(len * 2, row + 1);
+			if(objects != null) { objects = Arrays.copyOf(objects, newLen); }
+			if(ints != null) { ints = Arrays.copyOf(ints, newLen); }
+			if(doubles != null) { doubles = Arrays.copyOf(doubles, newLen); }
+			if(longs != null) { longs = Arrays.copyOf(longs, newLen); }
+		}
+
+		/** Decide the type of a generic object column: numbers, then temporals, otherwise text. */
+		private void resolveObjects(int rows) {
+			boolean allNumbers = true;
+			boolean allTemporal = true;
+			Object firstTemporal = null;
+			for(int r = 0; r < rows; r++) {
+				Object o = objects[r];
+				if(o != null) {
+					allNumbers &= o instanceof Number;
+					boolean temporal = ResultSetSerializer.toEpochMillis(o) != Long.MIN_VALUE;
+					allTemporal &= temporal;
+					firstTemporal = firstTemporal == null && temporal ? o : firstTemporal;
+				}
+			}
+			if(allNumbers) {
+				type = FLOAT64;
+				doubles = new double[rows];
+				for(int r = 0; r < rows; r++) {
+					if(objects[r] == null) { setNull(r); } else { doubles[r] = ((Number) objects[r]).doubleValue(); }
+				}
+			} else if(allTemporal) {
+				type = INT64;
+				jsType = firstTemporal instanceof OffsetTime ? "Time" : "Date";
+				longs = new long[rows];
+				for(int r = 0; r < rows; r++) {
+					if(objects[r] == null) { setNull(r); } else { longs[r] = ResultSetSerializer.toEpochMillis(objects[r]); }
+				}
+			} else {
+				type = UTF8;
+				for(int r = 0; r < rows; r++) {
+					Object o = objects[r];
+					if(o == null) { setNull(r); }
+					String s = o == null ? "" : o instanceof String ? (String) o : o.getClass().isArray() ? KdbHelper.asText(o) : o.toString();
+					objects[r] = s == null ? "" : s;
+				}
+				return;
+			}
+			objects = null;
+		}
+
+		/** Resolve the column type and calculate the length of each of its buffers in the order they are written. */
+		Map<String,Long> layout(int rows) {
+			if(objects != null) {
+				resolveObjects(rows);
+			}
+			bufferLengths = new LinkedHashMap<>();
+			if(nulls != null) {
+				bufferLengths.put(VALIDITY, (rows + 7L) / 8);
+			}
+			switch(type) {
+				case FLOAT64: case INT64: bufferLengths.put(DATA, 8L * rows); break;
+				case INT32: bufferLengths.put(DATA, 4L * rows); break;
+				case BOOL: bufferLengths.put(DATA, (long) rows); break;
+				default:
+					long total = 0;
+					for(int i = 0; i < rows; i++) {
+						total += utf8Length((String) objects[i]);
+					}
+					bufferLengths.put(OFFSETS, 4L * (rows + 1));
+					bufferLengths.put(DATA, total);
+			}
+			return bufferLengths;
+		}
+
+		void writeBuffer(String buffer, int rows, ChunkWriter w) throws IOException {
+			if(VALIDITY.equals(buffer)) {
+				for(int i = 0; i < rows; i += 8) {
+					int b = 0;
+					for(int j = i; j < Math.min(rows, i + 8); j++) {
+						if(!nulls.get(j)) {
+							b |= 1 << (j & 7);
+						}
+					}
+					w.put((byte) b);
+				}
+			} else if(OFFSETS.equals(buffer)) {
+				int pos = 0;
+				w.putInt(pos);
+				for(int i = 0; i < rows; i++) {
+					pos += utf8Length((String) objects[i]);
+					w.putInt(pos);
+				}
+			} else {
+				switch(type) {
+					case FLOAT64: for(int i = 0; i < rows; i++) { w.putDouble(doubles[i]); } break;
+					case INT64: for(int i = 0; i < rows; i++) { w.putLong(longs[i]); } break;
+					case INT32: for(int i = 0; i < rows; i++) { w.putInt(ints[i]); } break;
+					case BOOL: for(int i = 0; i < rows; i++) { w.put((byte) ints[i]); } break;
+					default:
+						for(int i = 0; i < rows; i++) {
+							w.put(((String) objects[i]).getBytes(StandardCharsets.UTF_8));
+						}
+				}
+			}
+		}
+
+		/** @return The number of bytes {@link String#getBytes(java.nio.charset.Charset)} gives for UTF-8, where unpaired surrogates become '?'. */
+		private static int utf8Length(String s) {
+			int n = 0;
+			for(int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if(c < 0x80) {
+					n++;
+				} else if(c < 0x800) {
+					n += 2;
+				} else if(Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+					n += 4;
+					i++;
+				} else if(Character.isSurrogate(c)) {
+					n++;
+				} else {
+					n += 3;
+				}
+			}
+			return n;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.timestored.pro.notebook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.timestored.pro.notebook.NotebookServer.DashboardData;
+import com.timestored.pro.notebook.NotebookServer.TabbDetails;
+
+/**
+ * Pushes dashboard page changes to browsers using server-sent events so they need not poll mdbundle.
+ * A newly connected client receives the full bundle as a "bundle" event, after that each change is
+ * sent as an "update" event containing only the pages that were added or changed and the names of those removed.
+ * Each client has its own queue and writer thread so publishing never blocks on a slow browser,
+ * a client that falls {@link #MAX_QUEUED_EVENTS} behind is dropped and will reconnect to get a fresh bundle.
+ */
+class DashboardEvents implements AutoCloseable {
+
+	private static final Logger LOG = Logger.getLogger(DashboardEvents.class.getName());
+	/** Comment lines are sent this often so that dead connections are noticed and proxies don't time out. */
+	private static final long HEARTBEAT_SECONDS = 15;
+
+	/** Events waiting to be written to a single client before it is considered too slow and dropped. */
+	private static final int MAX_QUEUED_EVENTS = 64;
+
+	private final List<Client> clients = new CopyOnWriteArrayList<>();
+	private final ScheduledExecutorService heartbeat;
+	private final ExecutorService writers = Executors.newCachedThreadPool(QueryDispatcher.daemonThreads("notebook-sse-writer"));
+	private final ObjectMapper mapper = new ObjectMapper();
+	private DashboardData current;
+
+	DashboardEvents() {
+		heartbeat = Executors.newSingleThreadScheduledExecutor(QueryDispatcher.daemonThreads("notebook-sse"));
+		heartbeat.scheduleWithFixedDelay(() -> broadcast(": ping\n\n"), HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/** Keep the exchange open as an event stream and queue the current full bundle as its first event. */
+	void subscribe(HttpExchange t) throws IOException {
+		t.getResponseHeaders().set("Content-Type", "text/event-stream");
+		t.getResponseHeaders().set("Cache-Control", "no-cache");
+		t.sendResponseHeaders(200, 0);
+		Client client = new Client(t);
+		synchronized(this) {
+			if(current != null) {
+				client.queue.offer(event("bundle", current));
+			}
+			client.writer = writers.submit(client::writeLoop);
+			clients.add(client);
+		}
+	}
+
+	/** Send clients the difference between the last published dashboard data and dd. */
+	synchronized void publish(DashboardData dd) throws JsonProcessingException {
+		Map<String,String> before = new HashMap<>();
+		if(current != null) {
+			for(TabbDetails td : current.getTabbDetails()) {
+				before.put(td.getName(), td.getJsonmodel());
+			}
+		}
+		List<TabbDetails> changed = new ArrayList<>();
+		for(TabbDetails td : dd.getTabbDetails()) {
+			String old = before.remove(td.getName());
+			if(!td.getJsonmodel().equals(old)) {
+				changed.add(td);
+			}
+		}
+		current = dd;
+		if(changed.isEmpty() && before.isEmpty()) {
+			return;
+		}
+		Map<String,Object> diff = new LinkedHashMap<>();
+		diff.put("version", dd.getVersion());
+		diff.put("changed", changed);
+		diff.put("removed", before.keySet());
+		broadcast(event("update", diff));
+	}
+
+	private String event(String name, Object data) throws JsonProcessingException {
+		return "event: " + name + "\ndata: " + mapper.writeValueAsString(data) + "\n\n";
+	}
+
+	/** Queue msg for every client without blocking, clients whose queue is full are dropped. */
+	private synchronized void broadcast(String msg) {
+		for(Client c : clients) {
+			if(!c.queue.offer(msg)) {
+				LOG.fine("Dropping dashboard event client that is " + MAX_QUEUED_EVENTS + " events behind");
+				c.drop();
+			}
+		}
+	}
+
+	private class Client {
+		private final HttpExchange exchange;
+		private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(MAX_QUEUED_EVENTS);
+		private Future<?> writer;
+
+		Client(HttpExchange exchange) {
+			this.exchange = exchange;
+		}
+
+		private void writeLoop() {
+			try {
+				OutputStream os = exchange.getResponseBody();
+				while(!Thread.currentThread().isInterrupted()) {
+					os.write(queue.take().getBytes(StandardCharsets.UTF_8));
+					os.flush();
+				}
+			} catch(IOException e) {
+				LOG.fine("Dropping dashboard event client: " + e.toString());
+			} catch(InterruptedException e) {
+				// dropped or closed
+			} finally {
+				clients.remove(this);
+				exchange.close();
+			}
+		}
+
+		/** Interrupting the writer also aborts a write blocked on the socket. */
+		private void drop() {
+			clients.remove(this);
+			writer.cancel(true);
+		}
+	}
+
+	@Override public void close() {
+		heartbeat.shutdownNow();
+		clients.clear();
+		writers.shutdownNow();
+	}
+}
@@ -1,5 +1,6 @@
 package com.timestored.pro.notebook;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
@@ -18,8 +19,12 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import javax.sql.rowset.CachedRowSet;
 
@@ -36,6 +41,7 @@ import com.timestored.connections.ServerConfig;
 import com.timestored.misc.DirWatch;
 import com.timestored.misc.IOUtils;
 import com.timestored.misc.DirWatch.DirWatchListener;
+import com.timestored.misc.NativeDirWatch;
 import com.timestored.qstudio.CommonActions;
 import com.timestored.qstudio.QStudioFrame;
 import com.timestored.qstudio.model.QueryResult;
@@ -43,6 +49,7 @@ import com.timestored.qstudio.model.QueryResult;
 import lombok.Data;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 @RequiredArgsConstructor
 public class NotebookServer {
@@ -54,6 +61,14 @@ public class NotebookServer {
 	private final @NonNull File markdownDir;
 	private HttpServer server;
 	private ExecutorService httpThreadPool;
+	private QueryDispatcher queryDispatcher;
+	private DashboardEvents dashboardEvents;
+	private NativeDirWatch dirWatch;
+	/** Executor used to serve HTTP requests, if null one is created on start. */
+	@Setter private ExecutorService requestExecutor;
+	@Setter private int maxConcurrentQueries = 8;
+	@Setter private int maxQueriesPerServer = 4;
+	@Setter private long queryTimeoutMillis = 5 * 60 * 1000;
 	private final FileFilter fileFilter = DirWatch.generateFileFilter(Pattern.compile("^\\..*|^target$"));
 	private MyHandler markdownHandler;
 	private static final String HARDWIRED_KDBNAME = "localhost:5000";
@@ -95,24 +110,25 @@ public class NotebookServer {
 	 * @return The port that the web server is running on or -1 if it failed to start.
 	 */
 	public int start() throws Exception {
-		DirWatch dirWatch = new DirWatch(1000, fileFilter, false);
-		dirWatch.setRoot(markdownDir);
+		dirWatch = new NativeDirWatch(fileFilter);
 		dirWatch.addListener(new DirWatchListener() {
 			@Override public void changeOccurred() {
 				refreshPageList();
 			}
 		});
+		dirWatch.setRoot(markdownDir);
+		httpThreadPool = requestExecutor != null ? requestExecutor : newRequestExecutor();
+		queryDispatcher = new QueryDispatcher(maxConcurrentQueries, maxQueriesPerServer, queryTimeoutMillis);
+		dashboardEvents = new DashboardEvents();
+		this.markdownHandler = new MyHandler(connectionManager, markdownDir, queryDispatcher, dashboardEvents);
 		int port = PORT_LOW;
 		for(int offset=0; offset < 100; offset++) {
 			try {
 				port = PORT_LOW+offset;
 				InetSocketAddress sockAddr = new InetSocketAddress(port);
 				server = HttpServer.create(sockAddr, 0);
-				httpThreadPool = Executors.newFixedThreadPool(5);
-				server.setExecutor(httpThreadPool);
-				this.markdownHandler = new MyHandler(connectionManager, markdownDir);
 				server.createContext("/", markdownHandler);
-				server.setExecutor(null); // creates a default executor
+				server.setExecutor(httpThreadPool);
 				server.start();
 				this.port = port;
 				return port;
@@ -171,6 +187,21 @@ public class NotebookServer {
 	public void stop() {
 		server.stop(1);
 		httpThreadPool.shutdownNow();
+		queryDispatcher.close();
+		dashboardEvents.close();
+		dirWatch.stop();
+	}
+
+	/**
+	 * Requests mostly wait on IO so use virtual threads when the JVM has them, otherwise a cached pool.
+	 * Queries themselves run on the bounded {@link QueryDispatcher} pool.
+	 */
+	private static ExecutorService newRequestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return Executors.newCachedThreadPool(QueryDispatcher.daemonThreads("notebook-http"));
+		}
 	}
 
 	private static String getRequestBody(HttpExchange t) throws IOException {
@@ -260,22 +291,27 @@ public class NotebookServer {
 		private final @NonNull ConnectionManager connectionManager;
 		private final @NonNull File markdownDir;
 		private final @NonNull Path parentPath;
-		private int updateId = -1;
+		private final @NonNull QueryDispatcher queryDispatcher;
+		private final @NonNull DashboardEvents dashboardEvents;
+		private volatile int updateId = -1;
 		/**
 		 * Folders AND individual .md pages that are thought to exist on last refresh.
 		 */
 		private List<File> allMarkdownPages = Collections.emptyList();
-		private String fullTabbsJson = "";
+		private volatile String fullTabbsJson = "";
 
-		public void setAllMarkdownPages(List<File> allMarkdownPages) throws JsonProcessingException {
+		public synchronized void setAllMarkdownPages(List<File> allMarkdownPages) throws JsonProcessingException {
 			this.allMarkdownPages = allMarkdownPages;
 			DashboardData dd = new DashboardData(parentPath, allMarkdownPages, ++updateId);
 			fullTabbsJson = dd.toJSON();
+			dashboardEvents.publish(dd);
 		}
 
-		public MyHandler(ConnectionManager connectionManager, File markdownDir) {
+		public MyHandler(ConnectionManager connectionManager, File markdownDir, QueryDispatcher queryDispatcher, DashboardEvents dashboardEvents) {
 			this.connectionManager = Preconditions.checkNotNull(connectionManager);
 			this.markdownDir = Preconditions.checkNotNull(markdownDir);
+			this.queryDispatcher = Preconditions.checkNotNull(queryDispatcher);
+			this.dashboardEvents = Preconditions.checkNotNull(dashboardEvents);
 			this.parentPath = new File(markdownDir, "pages").toPath();
 		}
 
@@ -300,7 +336,7 @@ public class NotebookServer {
 			String requestedURL = "http://" + t.getRequestHeaders().getFirst("Host") + t.getRequestURI();
 			URL u = new URL(requestedURL);
 			String path = u.getPath();
-			if(!path.equals(BUNDLE_PATH)) { // This one getrs pinged a lot.
+			if(!path.equals(BUNDLE_PATH) && !path.equals(EVENTS_PATH)) { // This one getrs pinged a lot.
 				LOG.info("Client Request: " + path + " from " + u.getHost() + ":" + u.getPort());
 			}
 			try {
@@ -357,6 +393,11 @@ public class NotebookServer {
 					}
 				sb.append("]");
 				response = sb.toString();
+			} else if (path.startsWith(COLUMNAR_PATH) && method.equals("POST")) {
+				String serverPth = java.net.URLDecoder.decode(path.substring(COLUMNAR_PATH.length()), StandardCharsets.UTF_8.name());
+				QueryWithArgs qryWithArgs = getRequestBodyJson(t, QueryWithArgs.class);
+				runQueryAsync(t, serverPth, qryWithArgs.query, true);
+				return true;
 			} else if (path.startsWith("/api/a.json")) {
 				String qry = t.getRequestURI().getQuery();
 				// Nasty hardcoded search result box result to mock Pulse return values for now. This should search markdown later.
@@ -368,12 +409,12 @@ public class NotebookServer {
 					String serverPth = path.substring("/api/a.json/".length());
 					serverPth = java.net.URLDecoder.decode(serverPth, StandardCharsets.UTF_8.name());
 					QueryWithArgs qryWithArgs = getRequestBodyJson(t, QueryWithArgs.class);
-					try {
-						response = runQuery(serverPth, qryWithArgs.query);
-					} catch(IllegalStateException ise) {
-						response = "{\"exception\":\"Could not find server.\"}";
-					}
+					runQueryAsync(t, serverPth, qryWithArgs.query, false);
+					return true;
 				}
+			} else if (path.equals(EVENTS_PATH)) {
+				dashboardEvents.subscribe(t); // left open, pushes page changes as they happen
+				return true;
 			} else if (path.equals(BUNDLE_PATH)) {
 				int reqUpdateId = -2;
 				try {
@@ -431,13 +472,76 @@ public class NotebookServer {
 		}
 
 		private static final String PRQL_PRE = ":prql:";
+		private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+		/** Same POST body as /api/a.json but replies with {@link ColumnarSerializer} typed column buffers. */
+		private static final String COLUMNAR_PATH = "/api/a.cols/";
 		private static final Object BUNDLE_PATH = "/api/dashboard/mdbundle";
+		private static final Object EVENTS_PATH = "/api/dashboard/events";
 		private static final String USE_PULSE_HTML = "<html><body><a href='https://www.timestored.com/qstudio/help/issues/sqlnotebook-access-denied?utm_source=sqlnotebook&utm_medium=app&utm_campaign=sqlnotebook'><h1>SQLNotebook Access Denied</h1></a></body></html>";
 
-		private String runQuery(String serverPth, String postedQry) throws IOException,IllegalStateException {
-			System.out.println("serverPth ====== " + serverPth + " hm: " + postedQry);
+		/** Hand the query to the dispatcher and reply from whichever thread completes it, freeing this request thread. */
+		private void runQueryAsync(HttpExchange t, String serverPth, String postedQry, boolean columnar) {
+			queryDispatcher.submit(serverPth, () -> runQuery(serverPth, postedQry), (qr, e) -> {
+				try {
+					if(e == null) {
+						writeQueryReply(t, qr, columnar);
+					} else if(e instanceof IllegalStateException) {
+						writeReply(t, toB("{\"exception\":\"Could not find server.\"}"));
+					} else if(e instanceof TimeoutException) {
+						writeReply(t, toB("{\"exception\":" + toS(e.getMessage()) + "}"));
+					} else if(e instanceof RejectedExecutionException) {
+						writeReply(t, toB("Too many queries waiting"), 503); // Service Unavailable
+					} else {
+						writeReply(t, toB(e.toString()), 502); // Bad Gateway, the database or its driver failed
+					}
+				} catch (IOException ioe) {
+					LOG.fine("Could not send query reply: " + ioe.toString());
+					t.close();
+				} catch (RuntimeException re) {
+					LOG.log(Level.WARNING, "Could not write query reply", re);
+					replyFailed(t);
+				}
+			});
+		}
+
+		/** Answer with an error if nothing was sent yet, otherwise cut the reply short, so the browser is never left waiting. */
+		private void replyFailed(HttpExchange t) {
+			try {
+				if(t.getResponseCode() == -1) {
+					writeReply(t, toB("Could not write query result"), 500); // Internal Server Error
+				}
+			} catch (IOException | RuntimeException e) {
+				LOG.fine("Could not send error reply: " + e.toString());
+			} finally {
+				t.close();
+			}
+		}
+
+		/**
+		 * Stream the result as JSON or typed column buffers using chunked transfer, gzipped if the browser accepts it,
+		 * so that no String or byte[] copy of a large result is ever built.
+		 */
+		private void writeQueryReply(HttpExchange t, QueryResult qr, boolean columnar) throws IOException {
+			String acceptEncoding = t.getRequestHeaders().getFirst("Accept-Encoding");
+			boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+			t.getResponseHeaders().set("Content-Type", columnar ? "application/octet-stream" : "application/json");
+			if(gzip) {
+				t.getResponseHeaders().set("Content-Encoding", "gzip");
+			}
+			t.sendResponseHeaders(200, 0); // 0 = chunked
+			try (OutputStream os = gzip ? new GZIPOutputStream(t.getResponseBody(), STREAM_BUFFER_SIZE) 
+					: new BufferedOutputStream(t.getResponseBody(), STREAM_BUFFER_SIZE)) {
+				if(columnar) {
+					new ColumnarSerializer().write(qr, os);
+				} else {
+					new ResultSetSerializer(false).write(qr, os);
+				}
+			}
+		}
+
+		private QueryResult runQuery(String serverPth, String postedQry) throws IOException,IllegalStateException {
+			LOG.fine("runQuery " + serverPth + ": " + postedQry);
 			ServerConfig sc = connectionManager.getServer(serverPth);
-			com.timestored.pro.notebook.ResultSetSerializer rss = new ResultSetSerializer(false);
 			long startTime = System.currentTimeMillis();
 			if (sc != null) {
 				try {
@@ -449,10 +553,9 @@ public class NotebookServer {
 					// connectionManager = no wrapping.
 					// qStudio jdbc = no conversion of times
 					CachedRowSet rs = connectionManager.executeQuery(sc, qry);
-					QueryResult qr = QueryResult.successfulResult(sc, postedQry, null, null, rs, null, System.currentTimeMillis() - startTime);
-					return rss.toString(qr);
+					return QueryResult.successfulResult(sc, postedQry, null, null, rs, null, System.currentTimeMillis() - startTime);
 				} catch (SQLException e) {
-					return rss.toString(QueryResult.exceptionResult(sc, postedQry, null, e, System.currentTimeMillis() - startTime));
+					return QueryResult.exceptionResult(sc, postedQry, null, e, System.currentTimeMillis() - startTime);
 				}
 			} else {
             	throw new IllegalStateException("Server not found");
@@ -0,0 +1,136 @@
+package com.timestored.pro.notebook;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs notebook queries on a bounded pool separate from the HTTP threads so that a slow database
+ * never holds up page loads. Each server is limited to a number of concurrent queries and every
+ * query is given a timeout after which its caller is answered and the query interrupted.
+ */
+class QueryDispatcher implements AutoCloseable {
+
+	private static final Logger LOG = Logger.getLogger(QueryDispatcher.class.getName());
+
+	/** Queries waiting beyond this are rejected rather than queued indefinitely. */
+	private static final int MAX_QUEUED_QUERIES = 500;
+
+	private final int maxQueriesPerServer;
+	private final long timeoutMillis;
+	private final ThreadPoolExecutor queryPool;
+	private final ScheduledThreadPoolExecutor timeoutScheduler;
+	private final Map<String,Semaphore> serverPermits = new ConcurrentHashMap<>();
+
+	QueryDispatcher(int maxConcurrentQueries, int maxQueriesPerServer, long timeoutMillis) {
+		this.maxQueriesPerServer = maxQueriesPerServer;
+		this.timeoutMillis = timeoutMillis;
+		this.queryPool = new ThreadPoolExecutor(maxConcurrentQueries, maxConcurrentQueries, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(MAX_QUEUED_QUERIES), daemonThreads("notebook-query"));
+		this.queryPool.allowCoreThreadTimeOut(true);
+		this.timeoutScheduler = new ScheduledThreadPoolExecutor(1, daemonThreads("notebook-query-timeout"));
+		// answered queries cancel their timeout, remove it at once rather than holding its callback until it expires
+		this.timeoutScheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	static ThreadFactory daemonThreads(String prefix) {
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * Run the query in the background, passing either its result or the failure to callback exactly once.
+	 * The failure is a {@link TimeoutException} if the query did not finish in time or a
+	 * {@link RejectedExecutionException} if too many queries are already waiting.
+	 * The callback must reply to its caller even if it throws, the exception is only logged.
+	 */
+	<T> void submit(String serverName, Callable<T> query, BiConsumer<T,Throwable> callback) {
+		AtomicBoolean answered = new AtomicBoolean(false);
+		AtomicReference<ScheduledFuture<?>> timeout = new AtomicReference<>();
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		Semaphore permits = serverPermits.computeIfAbsent(serverName, k -> new Semaphore(maxQueriesPerServer, true));
+		Future<?> f;
+		try {
+			f = queryPool.submit(() -> {
+				T r;
+				try {
+					if(!permits.tryAcquire(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS)) {
+						throw new TimeoutException("Too many queries running on " + serverName);
+					}
+					try {
+						r = query.call();
+					} finally {
+						permits.release();
+					}
+				} catch(InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch(Exception e) {
+					if(answered.compareAndSet(false, true)) {
+						cancel(timeout.get());
+						answer(callback, null, e);
+					}
+					return;
+				}
+				// The callback may be slow writing the result, it runs outside the permit and cannot be timed out.
+				if(answered.compareAndSet(false, true)) {
+					cancel(timeout.get());
+					answer(callback, r, null);
+				}
+			});
+		} catch(RejectedExecutionException ree) {
+			answered.set(true);
+			answer(callback, null, ree);
+			return;
+		}
+		timeout.set(timeoutScheduler.schedule(() -> {
+			if(answered.compareAndSet(false, true)) {
+				f.cancel(true);
+				answer(callback, null, new TimeoutException("Query timed out after " + (timeoutMillis / 1000) + " seconds"));
+			}
+		}, timeoutMillis, TimeUnit.MILLISECONDS));
+		if(answered.get()) {
+			cancel(timeout.get()); // answered before the timeout was set
+		}
+	}
+
+	/** Run the callback, logging any exception as the pool's Future or the scheduler would otherwise swallow it. */
+	private static <T> void answer(BiConsumer<T,Throwable> callback, T result, Throwable failure) {
+		try {
+			callback.accept(result, failure);
+		} catch(RuntimeException e) {
+			LOG.log(Level.WARNING, "query callback failed", e);
+		}
+	}
+
+	private static void cancel(ScheduledFuture<?> timeout) {
+		if(timeout != null) {
+			timeout.cancel(false);
+		}
+	}
+
+	@Override public void close() {
+		queryPool.shutdownNow();
+		timeoutScheduler.shutdownNow();
+	}
+}
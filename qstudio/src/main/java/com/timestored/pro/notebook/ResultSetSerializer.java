@@ -28,6 +28,7 @@ package com.timestored.pro.notebook;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Array;
 import java.sql.Blob;
 import java.sql.Clob;
@@ -108,7 +109,17 @@ public class ResultSetSerializer extends JsonSerializer<ResultSet> {
     
     public String toString(QueryResultI qr) throws IOException, JsonProcessingException {
     	ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
-    	JsonGenerator jgen = new JsonFactory().createGenerator(baos);
+    	write(qr, baos);
+        return baos.toString("UTF-8");
+    }
+
+    /**
+     * Write qr as JSON to out row by row, without building the document in memory first.
+     * out is flushed but not closed.
+     */
+    public void write(QueryResultI qr, OutputStream out) throws IOException, JsonProcessingException {
+    	JsonGenerator jgen = new JsonFactory().createGenerator(out);
+    	jgen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     	SimpleModule module = new SimpleModule();
     	module.addSerializer(Dict.class, new DictSerializer());
     	module.addSerializer(UUID.class, new UUIDSerializer());
@@ -150,7 +161,6 @@ public class ResultSetSerializer extends JsonSerializer<ResultSet> {
         
         jgen.writeEndObject();
         jgen.close();
-        return baos.toString("UTF-8");
     }
 
     class UUIDSerializer extends StdSerializer<UUID> {
@@ -586,7 +596,7 @@ public class ResultSetSerializer extends JsonSerializer<ResultSet> {
 		return isNumArray;
 	}
 	
-	private static long toEpochMillis(Object o) {
+	static long toEpochMillis(Object o) {
 		long epoch = Long.MIN_VALUE;
 		if(o instanceof java.sql.Date) {
 			epoch = ((java.sql.Date)o).getTime();
@@ -19,7 +19,8 @@ package com.timestored.qdoc;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.transform;
 
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
@@ -52,13 +53,11 @@ public class DocumentedMatcher implements DocCompleter {
 	private final boolean ignoreCasing;
 	private final CustomAutocompleteHandler filterSorter;
 	
-	/** cache previous result */
-	/** time in millis after which all docs are refetched */
-	private static final long STALE_TIME = 1000;
-	private List<DocumentedEntity> prevPrefixDocs;
-	private java.util.Calendar calendar = Calendar.getInstance();
-	private String prevPrefix;
-	private long prevMillis = calendar.getTimeInMillis();
+	/** time in millis after which all docs are refetched, for changes sources do not notify of e.g. folders still being parsed. */
+	private static final long STALE_TIME = 5000;
+	private volatile PrefixIndex prefixIndex;
+	/** Set when a source changed so that the next lookup re-indexes all docs. */
+	private volatile boolean invalidated = false;
 
 	private ContextualDocCompleter contextualDocCompleter;
 
@@ -206,7 +205,7 @@ public class DocumentedMatcher implements DocCompleter {
 	private List<DocumentedEntity> findByFullname(final String fullname) {
 		final String cleanName = removeArgs(fullname);
 		Predicate<DocumentedEntity> fullMatchFilter = de -> cleanName.equals(removeArgs(de.getDocName()));
-	    return Lists.newArrayList(filter(docSource.getDocs(), fullMatchFilter));
+	    return Lists.newArrayList(filter(getPrefixIndex().find(cleanName), fullMatchFilter));
 	}
 
 	private String removeArgs(String docName) {
@@ -238,34 +237,76 @@ public class DocumentedMatcher implements DocCompleter {
 	 * For given prefix return list of docs that contain elements starting with that prefix 
 	 */
 	private List<DocumentedEntity> findByPrefix(final String latestPrefix) {
-
-		List<DocumentedEntity> docs = null;
-		Predicate<DocumentedEntity> prefixFilter = new Predicate<DocumentedEntity>() {
-	        @Override public boolean apply(DocumentedEntity de) {
-	        	if(ignoreCasing) {
-		            return de.getDocName().toLowerCase().startsWith(latestPrefix.toLowerCase());
-	        	}
-	            return de.getDocName().startsWith(latestPrefix);
-	        }
-	    };
-
-	    long ticksNow = Calendar.getInstance().getTimeInMillis();
-	    boolean longTimeBetweenSearch = (ticksNow - prevMillis) > STALE_TIME;
-	    boolean extensionToLastSearch = prevPrefix!=null && latestPrefix.startsWith(prevPrefix);
-	    if(extensionToLastSearch && !longTimeBetweenSearch) {
-		    // just typed an extra letter, filter previous search further
-	    		docs = filterSortResults(Lists.newArrayList(filter(prevPrefixDocs, prefixFilter)), latestPrefix);
-	    } else { 
-			docs = filterSortResults(Lists.newArrayList(filter(docSource.getDocs(), prefixFilter)), latestPrefix);
-	    }
-		
-		prevPrefixDocs = docs;
-		prevPrefix = latestPrefix;
-
+		List<DocumentedEntity> docs = filterSortResults(getPrefixIndex().find(latestPrefix), latestPrefix);
 		LOG.info("Found " + docs.size() + " docs for prefix: " + latestPrefix);
 		return docs;
 	}
 
+	/** Re-index all docs on the next lookup, called when a {@link DocSource} has changed. */
+	public void invalidate() {
+		invalidated = true;
+	}
+
+	/**
+	 * @return The index of all docs, rebuilt on this, the calling EDT, thread if a source changed or it's stale.
+	 * Sources read the open documents and caches that are only safe to use there.
+	 */
+	private PrefixIndex getPrefixIndex() {
+		PrefixIndex idx = prefixIndex;
+		if(idx == null || invalidated || System.currentTimeMillis() - idx.createdMillis > STALE_TIME) {
+			invalidated = false;
+			idx = new PrefixIndex(docSource.getDocs(), ignoreCasing);
+			prefixIndex = idx;
+		}
+		return idx;
+	}
+
+	/** Docs sorted by name so that all those starting with a prefix are found by binary search. */
+	private static class PrefixIndex {
+		private final String[] names;
+		private final DocumentedEntity[] docs;
+		private final boolean ignoreCasing;
+		private final long createdMillis = System.currentTimeMillis();
+
+		PrefixIndex(List<? extends DocumentedEntity> docList, boolean ignoreCasing) {
+			this.ignoreCasing = ignoreCasing;
+			DocumentedEntity[] sorted = docList.toArray(new DocumentedEntity[0]);
+			String[] keys = new String[sorted.length];
+			Integer[] order = new Integer[sorted.length];
+			for(int i=0; i<sorted.length; i++) {
+				keys[i] = ignoreCasing ? sorted[i].getDocName().toLowerCase() : sorted[i].getDocName();
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+			names = new String[sorted.length];
+			docs = new DocumentedEntity[sorted.length];
+			for(int i=0; i<order.length; i++) {
+				names[i] = keys[order[i]];
+				docs[i] = sorted[order[i]];
+			}
+		}
+
+		/** @return Docs whose name starts with prefix, in a new modifiable list. */
+		List<DocumentedEntity> find(String prefix) {
+			String p = ignoreCasing ? prefix.toLowerCase() : prefix;
+			int lo = 0;
+			int hi = names.length;
+			while(lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if(names[mid].compareTo(p) < 0) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			List<DocumentedEntity> r = new ArrayList<>();
+			for(int i=lo; i<names.length && names[i].startsWith(p); i++) {
+				r.add(docs[i]);
+			}
+			return r;
+		}
+	}
+
 	@FunctionalInterface
 	public static interface CustomAutocompleteHandler {
 		List<DocumentedEntity> filterSortResults(List<DocumentedEntity> docs, String prefix);
@@ -0,0 +1,358 @@
+/*
+ * qStudio - Free SQL Analysis Tool
+ * Copyright C 2013-2024 TimeStored
+ *
+ * Licensed under the Apache License, Version 2.0 the "License";
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.timestored.qstudio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Preconditions;
+import com.timestored.misc.NativeDirWatch;
+
+/**
+ * Index of the trigrams within each text file below a folder so that a text search only needs to read
+ * the files that could contain it. Each file's lowercased trigrams are held as a bloom filter,
+ * sized to the file, giving a small index with occasional false positives that the search itself removes.
+ * The index is saved to {@link QStudioModel#APP_HOME} so that it survives restarts and is kept
+ * up to date in the background as files change.
+ */
+class FolderSearchIndex {
+
+	private static final Logger LOG = Logger.getLogger(FolderSearchIndex.class.getName());
+	private static final File INDEX_DIR = new File(QStudioModel.APP_HOME, "searchindex");
+	private static final int FORMAT_VERSION = 1;
+	/** Larger files are not searched. */
+	static final long MAX_FILE_SIZE = 11L * 1024 * 1024;
+	private static final int MIN_BITS = 512;
+	private static final int MAX_BITS = 1 << 16;
+
+	private final File root;
+	private final Pattern ignoredFolderPattern;
+	private final File indexFile;
+	private final NativeDirWatch dirWatch;
+	/** All searchable files below root as of the last refresh, null until first found. */
+	private volatile List<File> files = null;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicBoolean refreshQueued = new AtomicBoolean(false);
+	private volatile boolean closed = false;
+	/** True once changes below root are being watched, until then every search walks the folder. */
+	private volatile boolean watching = false;
+
+	/** Trigram bloom filter of a single file at the time it was last modified. */
+	private static class Entry {
+		private final long lastModified;
+		private final long length;
+		private final long[] bits;
+
+		private Entry(long lastModified, long length, long[] bits) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.bits = bits;
+		}
+
+		private boolean isCurrent(File f) {
+			return f.lastModified() == lastModified && f.length() == length;
+		}
+
+		/** Cheaper check for searches, relying on the folder watch to spot changes that keep the same modified time. */
+		private boolean isProbablyCurrent(File f) {
+			return f.lastModified() == lastModified;
+		}
+
+		private boolean mightContain(int[] trigramHashes) {
+			int mask = bits.length * 64 - 1;
+			for(int h : trigramHashes) {
+				int b = h & mask;
+				if((bits[b >>> 6] & (1L << b)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Start indexing root in the background, first loading any previously saved index.
+	 * @param ignoredFolderPattern Folders whose name matches are not indexed, may be null.
+	 */
+	FolderSearchIndex(File root, Pattern ignoredFolderPattern) {
+		this.root = Preconditions.checkNotNull(root);
+		this.ignoredFolderPattern = ignoredFolderPattern;
+		String key = root.getAbsolutePath() + "|" + (ignoredFolderPattern == null ? "" : ignoredFolderPattern.pattern());
+		this.indexFile = new File(INDEX_DIR, Integer.toHexString(key.hashCode()) + ".idx");
+		this.dirWatch = new NativeDirWatch(f -> !isIgnoredFolder(f));
+		dirWatch.addListener(this::requestRefresh);
+		BackgroundExecutor.EXECUTOR.execute(() -> {
+			load();
+			try {
+				dirWatch.setRoot(root);
+				watching = true;
+				if(closed) { // closed while starting, stop the watch that close() may have missed
+					dirWatch.stop();
+				}
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Could not watch " + root + " each search will walk the folder for changes", e);
+			}
+			requestRefresh();
+		});
+	}
+
+	/** @return true if this index is of the given folder and ignores the same folders. */
+	boolean isFor(File folder, Pattern ignoredFolderPattern) {
+		String p = ignoredFolderPattern == null ? null : ignoredFolderPattern.pattern();
+		String myP = this.ignoredFolderPattern == null ? null : this.ignoredFolderPattern.pattern();
+		return root.equals(folder) && Objects.equals(p, myP);
+	}
+
+	/**
+	 * @return All searchable files below the folder, e.g. for regular expressions the index can't narrow.
+	 * Without a watch on the folder it is walked again so that new and deleted files are found.
+	 */
+	List<File> getFiles() {
+		List<File> f = files;
+		if(f == null || !watching) {
+			f = new ArrayList<>();
+			walk(root, f);
+			f = Collections.unmodifiableList(f);
+			files = f;
+		}
+		return f;
+	}
+
+	/**
+	 * @return The files that may contain text ignoring case. Files not yet indexed
+	 * or changed since are always included. Text shorter than a trigram can't be narrowed.
+	 */
+	List<File> getCandidates(String text) {
+		List<File> all = getFiles();
+		if(text.length() < 3) {
+			return all;
+		}
+		int[] hashes = getTrigramHashes(text);
+		List<File> r = new ArrayList<>();
+		boolean stale = false;
+		for(File f : all) {
+			Entry e = entries.get(f.getPath());
+			if(e == null || !(watching ? e.isProbablyCurrent(f) : e.isCurrent(f))) {
+				stale = true;
+				r.add(f);
+			} else if(e.mightContain(hashes)) {
+				r.add(f);
+			}
+		}
+		if(stale) {
+			requestRefresh();
+		}
+		return r;
+	}
+
+	/** Stop watching for changes, the index must not be used after. */
+	void close() {
+		closed = true;
+		dirWatch.stop();
+	}
+
+	static boolean isTextFile(File file) {
+		String name = file.getName().toLowerCase();
+		return name.endsWith(".q") || name.endsWith(".sql") || name.endsWith(".txt") ||
+			   name.endsWith(".java") || name.endsWith(".js") || name.endsWith(".py") ||
+			   name.endsWith(".c") || name.endsWith(".cpp") || name.endsWith(".h") ||
+			   name.endsWith(".cs") || name.endsWith(".xml") || name.endsWith(".json") ||
+			   name.endsWith(".prql") || name.endsWith(".k") || name.endsWith(".dos") ||
+			   name.endsWith(".md") || name.endsWith(".rfl") || name.endsWith(".markdown") ||
+			   name.endsWith(".html") || name.endsWith(".css");
+	}
+
+	private boolean isIgnoredFolder(File f) {
+		return ignoredFolderPattern != null && f.isDirectory() && ignoredFolderPattern.matcher(f.getName()).matches();
+	}
+
+	private void requestRefresh() {
+		if(!closed && refreshQueued.compareAndSet(false, true)) {
+			BackgroundExecutor.EXECUTOR.execute(() -> {
+				synchronized (this) {
+					refreshQueued.set(false);
+					if(!closed) {
+						refresh();
+					}
+				}
+			});
+		}
+	}
+
+	/** Find all files, index those new or changed since last time and save if anything changed. */
+	private void refresh() {
+		long start = System.currentTimeMillis();
+		List<File> found = new ArrayList<>();
+		walk(root, found);
+		files = Collections.unmodifiableList(found);
+
+		List<File> changed = new ArrayList<>();
+		Set<String> paths = new HashSet<>();
+		for(File f : found) {
+			paths.add(f.getPath());
+			Entry e = entries.get(f.getPath());
+			if(e == null || !e.isCurrent(f)) {
+				changed.add(f);
+			}
+		}
+		changed.parallelStream().forEach(f -> {
+			if(!closed) {
+				Entry e = index(f);
+				if(e != null) {
+					entries.put(f.getPath(), e);
+				}
+			}
+		});
+		boolean removed = entries.keySet().retainAll(paths);
+		if((removed || !changed.isEmpty()) && !closed) {
+			save();
+		}
+		LOG.info("FolderSearchIndex refreshed " + root + " files=" + found.size() + " indexed=" + changed.size()
+				+ " in " + (System.currentTimeMillis() - start) + "ms");
+	}
+
+	private void walk(File folder, List<File> found) {
+		File[] children = folder.listFiles();
+		if(children == null || closed) {
+			return;
+		}
+		for(File f : children) {
+			if(f.isDirectory()) {
+				if(!isIgnoredFolder(f)) {
+					walk(f, found);
+				}
+			} else if(isTextFile(f) && f.length() <= MAX_FILE_SIZE) {
+				found.add(f);
+			}
+		}
+	}
+
+	/** @return Bloom filter of the file's content or null if it couldn't be read. */
+	private static Entry index(File f) {
+		long lastModified = f.lastModified();
+		long length = f.length();
+		String content;
+		try {
+			content = new String(Files.readAllBytes(f.toPath()), Charset.defaultCharset());
+		} catch (IOException e) {
+			return null;
+		}
+		int[] hashes = getTrigramHashes(content);
+		Arrays.sort(hashes);
+		int distinct = 0;
+		for(int i = 0; i < hashes.length; i++) {
+			if(i == 0 || hashes[i] != hashes[i - 1]) {
+				distinct++;
+			}
+		}
+		// 4 to 8 bits per trigram with one hash each gives a 5 letter search, 3 trigrams, about 0.2-1% false positives.
+		// Files capped at MAX_BITS have more.
+		int nbits = Integer.highestOneBit(Math.max(MIN_BITS, Math.min(MAX_BITS, distinct * 8 - 1)));
+		long[] bits = new long[nbits / 64];
+		int mask = nbits - 1;
+		for(int h : hashes) {
+			int b = h & mask;
+			bits[b >>> 6] |= 1L << b;
+		}
+		return new Entry(lastModified, length, bits);
+	}
+
+	private static int[] getTrigramHashes(String s) {
+		int n = Math.max(0, s.length() - 2);
+		int[] r = new int[n];
+		for(int i = 0; i < n; i++) {
+			int h = (Character.toLowerCase(s.charAt(i)) * 31 + Character.toLowerCase(s.charAt(i + 1))) * 31
+					+ Character.toLowerCase(s.charAt(i + 2));
+			h *= 0x9E3779B1;
+			r[i] = h ^ (h >>> 16);
+		}
+		return r;
+	}
+
+	private void load() {
+		if(!indexFile.exists()) {
+			return;
+		}
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if(in.readInt() != FORMAT_VERSION || !in.readUTF().equals(root.getAbsolutePath())) {
+				return;
+			}
+			int n = in.readInt();
+			for(int i = 0; i < n; i++) {
+				String path = in.readUTF();
+				long lastModified = in.readLong();
+				long length = in.readLong();
+				long[] bits = new long[in.readInt()];
+				for(int j = 0; j < bits.length; j++) {
+					bits[j] = in.readLong();
+				}
+				entries.put(path, new Entry(lastModified, length, bits));
+			}
+		} catch (IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Could not load search index " + indexFile, e);
+			entries.clear();
+		}
+	}
+
+	private void save() {
+		INDEX_DIR.mkdirs();
+		File tmp = new File(INDEX_DIR, indexFile.getName() + ".tmp");
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				List<Map.Entry<String, Entry>> es = new ArrayList<>(entries.entrySet());
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(root.getAbsolutePath());
+				out.writeInt(es.size());
+				for(Map.Entry<String, Entry> me : es) {
+					Entry e = me.getValue();
+					out.writeUTF(me.getKey());
+					out.writeLong(e.lastModified);
+					out.writeLong(e.length);
+					out.writeInt(e.bits.length);
+					for(long l : e.bits) {
+						out.writeLong(l);
+					}
+				}
+			}
+			Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not save search index " + indexFile, e);
+		}
+	}
+}
@@ -15,6 +15,7 @@ import javax.swing.JOptionPane;
 import com.google.common.base.Preconditions;
 import com.timestored.babeldb.BabelDBJdbcDriver;
 import com.timestored.babeldb.Dbrunner;
+import com.timestored.babeldb.ResultCache;
 import com.timestored.connections.ConnectionManager;
 import com.timestored.connections.JdbcTypes;
 import com.timestored.connections.ServerConfig;
@@ -186,10 +187,13 @@ public class QStudioModel {
 	@RequiredArgsConstructor
 	private static class MyDbRunner implements Dbrunner {
 		private final ConnectionManager connectionManager;
+		/** Dashboards refreshing the same query_db calls within their staleness window share results. */
+		private final ResultCache resultCache = new ResultCache(Runtime.getRuntime().maxMemory() / 10);
 
 		@Override public ResultSet executeQry(String serverName, String sql, int millisStalenessPermitted) throws IOException {
 			try {
-				return connectionManager.executeQuery(connectionManager.getServer(serverName), sql);
+				ServerConfig sc = connectionManager.getServer(serverName);
+				return resultCache.get(serverName, sql, millisStalenessPermitted, () -> connectionManager.executeQuery(sc, sql));
 			} catch (SQLException | IOException e) {
 				throw new IOException(e);
 			}
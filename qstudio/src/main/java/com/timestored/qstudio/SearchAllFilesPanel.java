@@ -34,8 +34,10 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -71,6 +73,8 @@ class SearchAllFilesPanel extends JPanel {
 
 	private static final long serialVersionUID = 1L;
 	private static final int MAX_HISTORY = 20;
+	/** Files searched in parallel at once, results are shown after each batch. */
+	private static final int SCAN_BATCH = 256;
 	
 	private final JTextField searchField;
 	private final JCheckBox caseSensitiveCheckbox;
@@ -87,6 +91,8 @@ class SearchAllFilesPanel extends JPanel {
 	private int historyIndex = -1;
 	private SwingWorker<Void, Void> currentSearchWorker = null;
 	private String lastSearchText = "";
+	/** Index of the selected folder, created when first searched. */
+	private FolderSearchIndex folderSearchIndex = null;
 	
 	SearchAllFilesPanel(OpenDocumentsModel openDocsModel) {
 		this.openDocsModel = openDocsModel;
@@ -342,6 +348,8 @@ class SearchAllFilesPanel extends JPanel {
 		
 		statusLabel.setText("Searching...");
 		clearResults();
+		final boolean regex = regexCheckbox.isSelected();
+		final FolderSearchIndex index = searchInFolderCheckbox.isSelected() ? getFolderSearchIndex() : null;
 		
 		// Perform search in background
 		currentSearchWorker = new SwingWorker<Void, Void>() {
@@ -366,11 +374,10 @@ class SearchAllFilesPanel extends JPanel {
 				}
 				
 				// Search in selected folder if checkbox is enabled
-				if (searchInFolderCheckbox.isSelected()) {
-					File selectedFolder = openDocsModel.getSelectedFolder();
-					if (selectedFolder != null && selectedFolder.isDirectory()) {
-						searchInFolder(selectedFolder, pattern, searchText);
-					}
+				if (index != null) {
+					// the index can only narrow plain text, regex must scan every file
+					List<File> files = regex ? index.getFiles() : index.getCandidates(searchText);
+					searchInFiles(files, pattern, searchText);
 				}
 				
 				return null;
@@ -383,31 +390,18 @@ class SearchAllFilesPanel extends JPanel {
 				}
 			}
 			
-			private void searchInFolder(File folder, Pattern pattern, String searchText) {
-				if (isCancelled()) {
-					return;
-				}
-				
-				File[] files = folder.listFiles();
-				if (files == null) {
-					return;
-				}
-				
-				for (File file : files) {
-					if (isCancelled()) {
-						return;
-					}
-					
-					if (file.isDirectory()) {
-						// Check if folder should be ignored
-						if (openDocsModel.getIgnoredFolderPattern() != null &&
-							openDocsModel.getIgnoredFolderPattern().matcher(file.getName()).matches()) {
-							continue;
-						}
-						searchInFolder(file, pattern, searchText);
-					} else if (file.isFile() && isTextFile(file) && !openDocsModel.isFileOpen(file)) {
+			/** Search the files in parallel batches, showing results in file order. */
+			private void searchInFiles(List<File> files, Pattern pattern, String searchText) {
+				List<File> closedFiles = files.stream().filter(f -> !openDocsModel.isFileOpen(f)).collect(Collectors.toList());
+				for (int i = 0; i < closedFiles.size() && !isCancelled(); i += SCAN_BATCH) {
+					List<File> batch = closedFiles.subList(i, Math.min(closedFiles.size(), i + SCAN_BATCH));
+					List<List<SearchResult>> found = batch.parallelStream()
+							.map(f -> searchInFile(f, pattern, searchText))
+							.collect(Collectors.toList());
+					for (List<SearchResult> fileResults : found) {
 						filesSearched++;
-						matchCount += searchInFile(file, pattern, searchText);
+						matchCount += fileResults.size();
+						fileResults.forEach(r -> addResult(r));
 					}
 				}
 			}
@@ -433,32 +427,24 @@ class SearchAllFilesPanel extends JPanel {
 				}
 				return matches;
 			}
-			private static final long MAX_FILE_SIZE = 11L * 1024 * 1024; // 11 MB
 
-			private int searchInFile(File file, Pattern pattern, String searchText) {
-			    // Skip large files
-			    if (file.length() > MAX_FILE_SIZE) {
-			        return 0;
+			private List<SearchResult> searchInFile(File file, Pattern pattern, String searchText) {
+			    if (isCancelled()) {
+			        return Collections.emptyList();
 			    }
-
-			    int matches = 0;
+			    List<SearchResult> matches = new ArrayList<>();
 
 			    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
 			        String line;
 			        int lineNumber = 0;
 
 			        while ((line = reader.readLine()) != null) {
-			            if (isCancelled()) {
-			                return matches;
-			            }
-
 			            lineNumber++;
 
 			            Matcher matcher = pattern.matcher(line);
 			            if (matcher.find()) {
-			                matches++;
 			                String highlightedContent = highlightMatch(line.trim(), searchText, pattern);
-			                addResult(new FileSearchResult(file, lineNumber, highlightedContent));
+			                matches.add(new FileSearchResult(file, lineNumber, highlightedContent));
 			            }
 			        }
 
@@ -468,23 +454,34 @@ class SearchAllFilesPanel extends JPanel {
 
 			    return matches;
 			}
-
-			
-			private boolean isTextFile(File file) {
-				String name = file.getName().toLowerCase();
-				return name.endsWith(".q") || name.endsWith(".sql") || name.endsWith(".txt") ||
-					   name.endsWith(".java") || name.endsWith(".js") || name.endsWith(".py") ||
-					   name.endsWith(".c") || name.endsWith(".cpp") || name.endsWith(".h") ||
-					   name.endsWith(".cs") || name.endsWith(".xml") || name.endsWith(".json") ||
-					   name.endsWith(".prql") || name.endsWith(".k") || name.endsWith(".dos") ||
-					   name.endsWith(".md") || name.endsWith(".rfl") || name.endsWith(".markdown") ||
-					   name.endsWith(".html") || name.endsWith(".css") || name.endsWith(".md");
-			}
 		};
 		
 		currentSearchWorker.execute();
 	}
 	
+	/** Stop the index watching the folder once the panel is closed, it is recreated from its saved copy if shown again. */
+	@Override public void removeNotify() {
+		super.removeNotify();
+		if (folderSearchIndex != null) {
+			folderSearchIndex.close();
+			folderSearchIndex = null;
+		}
+	}
+
+	/** @return Index of the selected folder, replacing any previous index if the folder or ignored pattern changed. */
+	private FolderSearchIndex getFolderSearchIndex() {
+		File folder = openDocsModel.getSelectedFolder();
+		Pattern ignored = openDocsModel.getIgnoredFolderPattern();
+		if (folderSearchIndex != null && !folderSearchIndex.isFor(folder, ignored)) {
+			folderSearchIndex.close();
+			folderSearchIndex = null;
+		}
+		if (folderSearchIndex == null && folder != null && folder.isDirectory()) {
+			folderSearchIndex = new FolderSearchIndex(folder, ignored);
+		}
+		return folderSearchIndex;
+	}
+	
 	/**
 	 * Highlight the matched text in the content line by surrounding it with ** markers
 	 */
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
@@ -97,7 +98,7 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 			
 			@Override public void serverListingChanged(List<String> serverNames) {
 				// Adding immediately to prevent cache miss later.
-				serverNames.forEach(sn -> serverContainer.put(sn, new ServerModel(connectionManager, connectionManager.getServer(sn))));
+				serverNames.forEach(sn -> serverContainer.put(sn, new ServerModel(connectionManager, queryManager, connectionManager.getServer(sn))));
 				BackgroundExecutor.EXECUTOR.execute(new Runnable() {
 					@Override public void run() {
 						refresh();	
@@ -160,7 +161,7 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 						ServerModel sm = null;
 						for(int i=0; i<serverModels.size(); i++) {
 							if(sconf.equals(serverModels.get(i).getServerConfig())) {
-								sm = new ServerModel(connectionManager, sconf);
+								sm = new ServerModel(connectionManager, queryManager, sconf);
 								sm.refresh();
 								serverContainer.put(sconf.getName(), sm);
 								serverModels.set(i, sm);
@@ -205,7 +206,7 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 			if(!hardRefresh && cacheSM!=null && cacheSM.getServerConfig().equals(sconf)) {
 				sm = cacheSM;
 			} else {
-				sm = new ServerModel(connectionManager, sconf);
+				sm = new ServerModel(connectionManager, queryManager, sconf);
 //				modelsNeedingRefreshed.add(sm);
 			}
 			
@@ -329,6 +330,20 @@ public class AdminModel implements ConnectionManager.Listener,DocSource {
 		setSelection(servername, namespace, category,  null);
 	}
 	
+	/**
+	 * Query the selected server without being blocked by any query running in the editor, see {@link QueryManager#queryAsync(String, String)}.
+	 * @return future completed with the raw kdb+ result or exceptionally if it failed or no server is selected.
+	 */
+	public CompletableFuture<Object> queryAsync(String query) {
+		String sn = selectedServerName;
+		if(sn == null) {
+			CompletableFuture<Object> failed = new CompletableFuture<>();
+			failed.completeExceptionally(new IllegalStateException("No server selected"));
+			return failed;
+		}
+		return queryManager.queryAsync(sn, query);
+	}
+
 	/**
 	 * @return {@link KdbConnection} if possible otherwise null. 
 	 */
@@ -22,6 +22,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -73,6 +76,8 @@ import com.timestored.theme.Theme;
 	private long maxReturnedObjectSize;
 
 	private KdbConnection conn;
+	/** Connections shared by {@link #queryAsync(String, String)} calls, one per server, with queries pipelined. */
+	private final Map<String, KdbConnection> pipelinedConns = new ConcurrentHashMap<>();
 
 
 	/**
@@ -92,6 +97,7 @@ import com.timestored.theme.Theme;
 						// force dropping of connection in case it no longer exists.
 					}
 				}
+				closePipelinedConnections();
 			}
 
 			@Override public void statusChange(ServerConfig serverConfig, 
@@ -353,11 +359,63 @@ import com.timestored.theme.Theme;
 
 	}
 
+	/**
+	 * Send a query to a kdb+ server without waiting for, or being blocked by, any query already
+	 * in progress. Queries to the same server share one connection and are pipelined, so many
+	 * small lookups can be issued together and are answered in the order sent.
+	 * Unlike {@link #sendQuery(String)} the query is sent as-is and listeners are not notified.
+	 * @param serverName name of a kdb+ server in {@link ConnectionManager}.
+	 * @return future completed with the raw kdb+ result or exceptionally if it failed.
+	 */
+	public CompletableFuture<Object> queryAsync(String serverName, String query) {
+		try {
+			return getPipelinedConnection(serverName).queryAsync(query);
+		} catch (Exception e) {
+			CompletableFuture<Object> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+	}
+
+	private KdbConnection getPipelinedConnection(String serverName) throws Exception {
+		synchronized (pipelinedConns) {
+			KdbConnection kc = pipelinedConns.get(serverName);
+			// not connected includes the response reader having died, replies would never arrive
+			if(kc == null || !kc.isConnected()) {
+				if(kc != null) {
+					pipelinedConns.remove(serverName);
+					try {
+						kc.close();
+					} catch (IOException e) {
+						// force dropping of connection in case it no longer exists.
+					}
+				}
+				kc = connectionManager.tryKdbConnection(serverName);
+				pipelinedConns.put(serverName, kc);
+			}
+			return kc;
+		}
+	}
+
+	private void closePipelinedConnections() {
+		synchronized (pipelinedConns) {
+			for(KdbConnection kc : pipelinedConns.values()) {
+				try {
+					kc.close();
+				} catch (IOException e) {
+					// force dropping of connection in case it no longer exists.
+				}
+			}
+			pipelinedConns.clear();
+		}
+	}
+
 	@Override public void close() throws Exception {
 		if(conn != null) {
 			conn.close();
 			conn = null;		
 		}
+		closePipelinedConnections();
 	}
 	
 	public void sendQRtoListeners(ServerConfig sc, QueryResult qr) {
@@ -427,7 +485,15 @@ import com.timestored.theme.Theme;
 		boolean changeToNull = serverName == null && this.selectedServerName!=null;
 		boolean actualChange = serverName!=null && !serverName.equals(this.selectedServerName);
 		if(changeToNull || actualChange) {
+			KdbConnection prevConn = conn;
 			conn = null;
+			if(prevConn != null && !querying) {
+				try {
+					prevConn.close(); // hands a persisted connection back to the pool
+				} catch (IOException e) {
+					// force dropping of connection in case it no longer exists.
+				}
+			}
 			this.selectedServerName = null;
 			if(actualChange) {
 				ServerConfig sc = connectionManager.getServer(serverName);
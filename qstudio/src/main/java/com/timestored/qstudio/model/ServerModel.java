@@ -16,8 +16,8 @@
  */
 package com.timestored.qstudio.model;
 
-import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,9 +42,11 @@ public class ServerModel {
 	private ServerSlashConfig serverSlashConfig;
 	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
 	private final ConnectionManager connectionManager;
+	private final QueryManager queryManager;
 	
-	public ServerModel(ConnectionManager connectionManager, ServerConfig serverConfig) {
+	public ServerModel(ConnectionManager connectionManager, QueryManager queryManager, ServerConfig serverConfig) {
 		this.connectionManager = connectionManager;
+		this.queryManager = queryManager;
 		this.serverConfig = serverConfig;
 	}
 
@@ -54,29 +56,25 @@ public class ServerModel {
 
 	void refresh() {
 		
-		serverObjectTree = new ServerObjectTree(connectionManager, serverConfig);
-		
-		KdbConnection kdbConnection = connectionManager.getKdbConnection(serverConfig);
-		if(kdbConnection!= null) {
-			
-			try {
-				try {
-					serverReport = new ServerReport(kdbConnection);
-					serverSlashConfig = new ServerSlashConfig(kdbConnection);
-				} catch(Exception e) {
-					LOG.log(Level.WARNING, "Error retrieving Server Properties.", e);
-				}
-			} finally {
-				try {
-					kdbConnection.close();
-				} catch (IOException e) {
-					LOG.log(Level.WARNING, "problem closing kdb connection", e);
-				}
-			}
+		if(!serverConfig.isKDB()) {
+			serverObjectTree = new ServerObjectTree(connectionManager, queryManager, serverConfig);
+			return;
+		}
+		// All lookups are pipelined together on the shared connection, not held up by any query running in the editor.
+		CompletableFuture<Object> report = queryManager.queryAsync(serverConfig.getName(), ServerReport.QUERY);
+		CompletableFuture<Object> slashConfig = queryManager.queryAsync(serverConfig.getName(), ServerSlashConfig.QUERY);
+		serverObjectTree = new ServerObjectTree(connectionManager, queryManager, serverConfig);
+		try {
+			serverReport = new ServerReport(KdbConnection.await(report));
+			serverSlashConfig = new ServerSlashConfig(KdbConnection.await(slashConfig));
+		} catch(Exception e) {
+			LOG.log(Level.WARNING, "Error retrieving Server Properties.", e);
+		}
+		if(connectionManager.isConnected(serverConfig)) {
 			for(Listener l : listeners) {
 				l.changeOccurred();
 			}
-		} 
+		}
 	}
 	
 	public KdbConnection getConnection() {
@@ -86,6 +86,7 @@ public class ServerObjectTree {
 	private RefreshResult refreshResult;
 	private final ServerConfig serverConfig;
 	private final ConnectionManager connectionManager;
+	private final QueryManager queryManager;
 	private boolean errorRetrievingTree = false;
 
 	@Data @AllArgsConstructor
@@ -98,12 +99,14 @@ public class ServerObjectTree {
 	/**
 	 * Construct tree for given config / connection. Connection is allowed to be null.
 	 * @param connectionManager connection to relevant server or null if no connection possible.
+	 * @param queryManager used to query kdb servers, so the tree is pipelined with other lookups.
 	 * @param serverConfig
 	 */
-	ServerObjectTree(ConnectionManager connectionManager, ServerConfig serverConfig) {
+	ServerObjectTree(ConnectionManager connectionManager, QueryManager queryManager, ServerConfig serverConfig) {
 		
 		this.serverConfig = Preconditions.checkNotNull(serverConfig);
 		this.connectionManager = Preconditions.checkNotNull(connectionManager);
+		this.queryManager = Preconditions.checkNotNull(queryManager);
 		
 		refreshResult = new RefreshResult();
 		refreshFromServer();
@@ -111,11 +114,11 @@ public class ServerObjectTree {
 
 
 	private void refreshFromServer() {
-		refreshResult = refreshTree(serverConfig, connectionManager);
+		refreshResult = refreshTree(serverConfig, connectionManager, queryManager);
 	}
 		
 	
-	private static RefreshResult refreshTree(ServerConfig serverConfig, ConnectionManager connectionManager) {
+	private static RefreshResult refreshTree(ServerConfig serverConfig, ConnectionManager connectionManager, QueryManager queryManager) {
 		Preconditions.checkNotNull(serverConfig);
 		Preconditions.checkNotNull(connectionManager);
 
@@ -125,7 +128,7 @@ public class ServerObjectTree {
 		
 		try {
 			if(serverConfig.isKDB()) {
-				namespaceListingMap = getNSListing(serverConfig, connectionManager);
+				namespaceListingMap = getNSListing(serverConfig, queryManager);
 			} else if(serverConfig.getJdbcType().equals(JdbcTypes.DOLPHINDB)) {
 				namespaceListingMap = getNSListingForDolphin(serverConfig, connectionManager);
 			} else {
@@ -282,17 +285,12 @@ public class ServerObjectTree {
 	}
 
 
-	private static Map<String, NamespaceListing> getNSListing(ServerConfig serverConfig, ConnectionManager connectionManager)
+	private static Map<String, NamespaceListing> getNSListing(ServerConfig serverConfig, QueryManager queryManager)
 			throws IOException, KException, UnsupportedDataTypeException {
 		if(GET_TREE_QUERY == null) {
 			return Collections.emptyMap();
 		}
-		KdbConnection kdbConn = connectionManager.getKdbConnection(serverConfig);
-		if(kdbConn == null) {
-			throw new IOException("Could not connect to kdb server");
-		}
-		
-		Object o = kdbConn.query(GET_TREE_QUERY);
+		Object o = KdbConnection.await(queryManager.queryAsync(serverConfig.getName(), GET_TREE_QUERY));
 		String errMsg = "";
 		
 		if(!(o instanceof Dict)) {
@@ -327,12 +325,6 @@ public class ServerObjectTree {
 			QStudioLauncher.ERR_REPORTER.showReportErrorDialog(msg);
 		}
 		
-		try {
-			kdbConn.close();
-		} catch(IOException ioe) {
-			LOG.log(Level.SEVERE, "Error closing kdbConn for server tree");
-		}
-		
 		return ns2e;
 	}
 	
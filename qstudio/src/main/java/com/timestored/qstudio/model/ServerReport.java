@@ -17,17 +17,14 @@
 package com.timestored.qstudio.model;
 
 import java.awt.Component;
-import java.io.IOException;
 
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
 
-import kx.c.KException;
 import lombok.Data;
 import net.jcip.annotations.Immutable;
 
 import com.google.common.base.Preconditions;
-import com.timestored.kdb.KdbConnection;
 import com.timestored.qstudio.kdb.KdbHelper;
 
 
@@ -62,19 +59,18 @@ public class ServerReport {
 	/** K code to retrieve a table reporting memory usage */
 	private static final String MEMORY_REPORT_TAB_K = "+:{,x}'.Q.w[]";
 
+	/** Query whose result a report is constructed from. */
+	static final String QUERY = "k)("
+			+ SEGMENTS_PARTITIONS_TAB_K + ";" + MEMORY_REPORT_TAB_K + ";"
+			+ INFO_K + ")";
+
 	/**
-	 * use the kdbConn to try and retrieve a server report. If invalid response returned
+	 * Construct a server report from the result of {@link #QUERY}. If invalid response passed
 	 * all kinds of exeptions may be thrown.
 	 */
-	ServerReport(KdbConnection kdbConn) throws IOException, KException {
-
-		Preconditions.checkNotNull(kdbConn);
-		Preconditions.checkArgument(kdbConn.isConnected());
-
-		Object k = kdbConn.query("k)("
-				+ SEGMENTS_PARTITIONS_TAB_K + ";" + MEMORY_REPORT_TAB_K + ";"
-				+ INFO_K + ")");
+	ServerReport(Object k) {
 
+		Preconditions.checkNotNull(k);
 		Object[] resArray = (Object[]) k;
 		
 		this.diskTab = KdbHelper.getJXTable(resArray[0]);
@@ -16,16 +16,12 @@
  */
 package com.timestored.qstudio.model;
 
-import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.activation.UnsupportedDataTypeException;
 
-import kx.c.KException;
-
-import com.timestored.kdb.KdbConnection;
 import com.timestored.kdb.SysCommand;
 
 /**
@@ -33,7 +29,8 @@ import com.timestored.kdb.SysCommand;
  */
 public class ServerSlashConfig {
 
-	private final String GET_CONFIG_K = ".:'[\"\\\\\",/:\"cCegopPstTWz\"]";
+	/** Query whose result a config is constructed from. */
+	static final String QUERY = "k).:'[\"\\\\\",/:\"cCegopPstTWz\"]";
 
 	private final Map<SysCommand, String> sysCmdToVal = new HashMap<SysCommand, String>();
 	
@@ -52,12 +49,11 @@ public class ServerSlashConfig {
 	private final int weekOffset;
 	private final int dateMode;
 	/**
-	 * use the kdbConn to try and retrieve a server report. If invalid response returned
+	 * Construct the config from the result of {@link #QUERY}. If invalid response passed
 	 * all kinds of exeptions may be thrown.
 	 */
-	ServerSlashConfig(KdbConnection kdbConn) throws IOException, KException {
+	ServerSlashConfig(Object o) throws UnsupportedDataTypeException {
 
-		Object o = kdbConn.query("k)" + GET_CONFIG_K);
 		if(!(o instanceof Object[])) {
 			throw new UnsupportedDataTypeException("ServerSlashConfig");
 		}
@@ -119,7 +119,15 @@ class FunctionEditingPanel extends JPanel {
 					+ KdbHelper.escape(codeEditor.getText()) + "\"];"
 					+ "system \"d .\"}[]";
 			LOG.info("saveQuery = " + saveQuery);
-			adminModel.getKdbConnection().query(saveQuery);
+			KdbConnection conn = adminModel.getKdbConnection();
+			if(conn == null) {
+				throw new IOException("Could not get connection");
+			}
+			try {
+				conn.query(saveQuery);
+			} finally {
+				conn.close();
+			}
 //			kdbSOModel.refreshTree();
 		} catch (IOException e) {
 			JOptionPane.showMessageDialog(null, "Error saving function");
@@ -139,7 +147,11 @@ class FunctionEditingPanel extends JPanel {
 			descContainerPanel.removeAll();
 			
 			if(conn!=null) {
-				res = conn.query(FunctionValue.GET_DEF_Q + queryName);
+				try {
+					res = conn.query(FunctionValue.GET_DEF_Q + queryName);
+				} finally {
+					conn.close();
+				}
 				
 				funcVal = new FunctionValue(res);
 				JPanel descriptionPanel = new JPanel(new GridLayout(4, 2, Theme.GAP, Theme.GAP));
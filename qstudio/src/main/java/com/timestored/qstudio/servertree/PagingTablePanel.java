@@ -37,7 +37,6 @@ import com.timestored.kdb.KdbConnection;
 import com.timestored.qstudio.QStudioLauncher;
 import com.timestored.qstudio.kdb.KdbHelper;
 import com.timestored.qstudio.model.AdminModel;
-import com.timestored.theme.Theme;
 
 /**
  * Displays tables as pa
@@ -147,54 +146,37 @@ public class PagingTablePanel extends JPanel {
 	private void refreshToShow(long offset) {
 		
 		// wipe GUI
-		KdbConnection kdbConnection = null;
 		remove(scrollPane);
 		Component sp = new JPanel();
 		Exception e = null;
 
 		this.offset = offset;
-		// perform necessary query
+		// perform necessary query, pipelined so paging works even while a long query runs in the editor
 		String query = getTableQuery(queryName, offset, ROWS_SHOWN);
 		
-		kdbConnection = adminModel.getKdbConnection();
 		boolean prevPossible = false;
 		boolean nextPossible = false;
 		String posText = "";
 		
 		try {
-			
-			if(kdbConnection!=null) {
-				Object[] resArray = (Object[]) kdbConnection.query(query); 
-				count = ((Number) resArray[0]).longValue();
+			Object[] resArray = (Object[]) KdbConnection.await(adminModel.queryAsync(query));
+			count = ((Number) resArray[0]).longValue();
 
-				// configure controls
-				prevPossible = (offset>0);
-				nextPossible = ((offset+ROWS_SHOWN) < count);
-				
-				// table of results, update view
-				long np = (offset + ROWS_SHOWN);
-				posText = offset + "-" + ((np > count) ? count :  np)+ " of " + count;
-				
-				sp = KdbHelper.getJXTable(resArray[1]);
-			} else {
-				String txt = "Could not establish a connection to server: " + adminModel.getSelectedServerName();
-				sp = Theme.getErrorBox("No Connection", Theme.getTextArea("errTxt", txt));
-			}
+			// configure controls
+			prevPossible = (offset>0);
+			nextPossible = ((offset+ROWS_SHOWN) < count);
 			
+			// table of results, update view
+			long np = (offset + ROWS_SHOWN);
+			posText = offset + "-" + ((np > count) ? count :  np)+ " of " + count;
+			
+			sp = KdbHelper.getJXTable(resArray[1]);
 		} catch (KException ke) {
 			e = ke;
 		} catch (IOException ioe) {
 			e = ioe;
 		} catch (Exception ex) {
 			e = ex;
-		} finally {
-			if(kdbConnection!=null) {
-				try {
-					kdbConnection.close();
-				} catch (IOException ioe) {
-					LOG.log(Level.WARNING, "Problem closing KDB connection", e);
-				}
-			}
 		}
 		
 		// set gui appearance
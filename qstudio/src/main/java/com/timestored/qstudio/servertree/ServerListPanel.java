@@ -539,7 +539,11 @@ public class ServerListPanel extends JPanel  implements AdminModel.Listener {
 				            	if(kdbConn == null) {
 				            		throw new IOException("Could not connect to server: " + serverModel.getName());
 				            	}
-				            	reportGenerator.generate(kdbConn, savedDocFile);
+				            	try {
+				            		reportGenerator.generate(kdbConn, savedDocFile);
+				            	} finally {
+				            		kdbConn.close();
+				            	}
 	
 								SwingUtils.offerToOpenFile(Msg.get(Key.DOCS_GENERATED), savedDocFile, 
 										Msg.get(Key.OPEN_DOCS_NOW), Msg.get(Key.CLOSE));
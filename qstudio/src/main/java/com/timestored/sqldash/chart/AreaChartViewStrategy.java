@@ -37,7 +37,7 @@ class AreaChartViewStrategy extends AbstractCategoryViewStrategy {
 	}
 
 	@Override public boolean isQuickToRender(ResultSet rs, int rowCount, int numColumnCount) {
-		return (numColumnCount*rowCount) < 10_000; // 1.5 seconds on Ryans PC
+		return true; // large results are downsampled
 	}
 	
 	@Override public String getPulseName() { return "area"; }
@@ -3,6 +3,7 @@ package com.timestored.sqldash.chart;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.EventQueue;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -10,6 +11,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -51,14 +54,15 @@ public enum AutoRedrawViewStrategy implements ViewStrategy {
 		
 		private final ChartTheme theme;
 		private final ChartAppearanceConfig appearanceConfig;
-		private UpdateableView delegateView;
+		/** Created by the first {@link #getComponent()}, only accessed on the EDT. */
 		private JPanel containerPanel;
+		/** Fills the container for the latest update if it has not been shown yet. */
+		private final AtomicReference<Consumer<JPanel>> pending = new AtomicReference<>();
 		
 		AutoUpdateableView(ChartTheme theme, ChartAppearanceConfig appearanceConfig) {
 			this.theme = theme;
 			this.appearanceConfig = appearanceConfig;
-			this.containerPanel = new JPanel(new BorderLayout());
-			containerPanel.add(Theme.getHtmlText("Waiting for data..."), BorderLayout.CENTER);
+			pending.set(p -> p.add(Theme.getHtmlText("Waiting for data..."), BorderLayout.CENTER));
 		}
 		
 		@Override public void update(ResultSet rs, ChartResultSet chartResultSet) throws ChartFormatException {
@@ -68,6 +72,7 @@ public enum AutoRedrawViewStrategy implements ViewStrategy {
 				selectedStrategy = selectStrategy(rs, chartResultSet);
 			}
 			// Pass appearance config to the delegate if the strategy supports it
+			UpdateableView delegateView;
 			if(selectedStrategy == null) {
 				delegateView =null;
 			} else if (selectedStrategy.supportsAppearanceConfig() && appearanceConfig != null) {
@@ -76,33 +81,49 @@ public enum AutoRedrawViewStrategy implements ViewStrategy {
 				delegateView = selectedStrategy.getView(theme);
 			}
 
-			containerPanel.removeAll();
 			if(!displayChartActivated) {
-				// centre the button and highlight for emphasis
-				JButton activateChartBtn = new JButton("Activate Auto Charting", Theme.CIcon.CHART_CURVE_ADD.get16());
-				activateChartBtn.addActionListener(e -> {
-					displayChartActivated = true;
-					try {
-						update(rs, chartResultSet);
-					} catch (ChartFormatException e1) {	}
+				pending.set(p -> {
+					// centre the button and highlight for emphasis
+					JButton activateChartBtn = new JButton("Activate Auto Charting", Theme.CIcon.CHART_CURVE_ADD.get16());
+					activateChartBtn.addActionListener(e -> {
+						displayChartActivated = true;
+						try {
+							update(rs, chartResultSet);
+							showPending();
+						} catch (ChartFormatException e1) {	}
+					});
+					JPanel btnPanel = new JPanel();
+					btnPanel.add(activateChartBtn);
+					btnPanel.setBorder(BorderFactory.createEmptyBorder(20,20,20,20));
+					p.add(btnPanel, BorderLayout.NORTH);
+					p.add(Theme.getHtmlText("Auto Charting is deactivated. Please enable to see chart."), BorderLayout.CENTER);
 				});
-				JPanel btnPanel = new JPanel();
-				btnPanel.add(activateChartBtn);
-				btnPanel.setBorder(BorderFactory.createEmptyBorder(20,20,20,20));
-				containerPanel.add(btnPanel, BorderLayout.NORTH);
-				containerPanel.add(Theme.getHtmlText("Auto Charting is deactivated. Please enable to see chart."), BorderLayout.CENTER);
 			} else if(delegateView == null) {
-				containerPanel.add(Theme.getHtmlText("Result is large. Choose specific chart to try charting."), BorderLayout.CENTER);
+				pending.set(p -> p.add(
+						Theme.getHtmlText("Result is large. Choose specific chart to try charting."), BorderLayout.CENTER));
 			} else {
-				containerPanel.add(delegateView.getComponent(), BorderLayout.CENTER);
 				delegateView.update(rs, chartResultSet);
+				pending.set(p -> p.add(delegateView.getComponent(), BorderLayout.CENTER));
+			}
+			EventQueue.invokeLater(this::showPending);
+		}
+		
+		/** Refill the container for the latest update, if the container exists. Must be called on the EDT. */
+		private void showPending() {
+			Consumer<JPanel> fill = containerPanel == null ? null : pending.getAndSet(null);
+			if(fill != null) {
+				containerPanel.removeAll();
+				fill.accept(containerPanel);
+				containerPanel.revalidate();
+				containerPanel.repaint();
 			}
-			
-			containerPanel.revalidate();
-			containerPanel.repaint();
 		}
 		
 		@Override public Component getComponent() {
+			if(containerPanel == null) {
+				containerPanel = new JPanel(new BorderLayout());
+			}
+			showPending();
 			return containerPanel;
 		}
 	}
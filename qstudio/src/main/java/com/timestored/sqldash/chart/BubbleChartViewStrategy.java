@@ -4,7 +4,6 @@ import java.sql.ResultSet;
 import java.util.List;
 
 import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
@@ -40,10 +39,10 @@ enum BubbleChartViewStrategy implements ViewStrategy {
 		XYPlot xyplot = (XYPlot) chart.getPlot();
 		xyplot.setForegroundAlpha(0.65F);
 
-		ChartPanel cp = new ChartPanel(theme.apply(chart));
+		JFreeChart themedChart = theme.apply(chart);
 		chart.getXYPlot().getRenderer().setBaseToolTipGenerator(Tooltip.getXYZNumbersGenerator());
 		
-		return new XYZDatasetUpdateableView(cp, dataset);
+		return new XYZDatasetUpdateableView(themedChart, dataset);
 	}
 
 
@@ -12,6 +12,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -96,7 +97,7 @@ public enum CandleStickViewStrategy implements ViewStrategy {
 		
 		return new HardRefreshUpdateableView(new HardRefreshUpdateableView.ViewGetter() {
 
-			@Override public Component getView(ResultSet resultSet, ChartResultSet chartResultSet) 
+			@Override public Supplier<Component> getView(ResultSet resultSet, ChartResultSet chartResultSet) 
 					throws ChartFormatException {
 
 				if(chartResultSet == null) {
@@ -133,9 +134,8 @@ public enum CandleStickViewStrategy implements ViewStrategy {
 				plot.setOrientation(PlotOrientation.VERTICAL);
 
 				JFreeChart chart = new JFreeChart("", JFreeChart.DEFAULT_TITLE_FONT, plot, false);
-				ChartPanel cp = new ChartPanel(theme.apply(chart));
-				
-				return cp;
+				JFreeChart themedChart = theme.apply(chart);
+				return () -> new ChartPanel(themedChart);
 			}
 		});
 		
@@ -6,6 +6,8 @@ import java.awt.Font;
 import java.awt.Paint;
 import java.sql.ResultSet;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -31,7 +33,9 @@ import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
 class CategoryDatasetUpdateableView implements UpdateableView {
 
 	private static final Font TINY_FONT = new Font("Times New Roman", Font.PLAIN, 0);
-	private final ChartPanel chartPanel;
+	private final JFreeChart chart;
+	/** Created by the first {@link #getComponent()} on the EDT. */
+	private ChartPanel chartPanel;
 	private DefaultCategoryDataset dataset;
 	private final ChartAppearanceConfig appearanceConfig;
 	private final ChartTheme theme;
@@ -70,7 +74,7 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 		// This must happen AFTER theme.apply() so config overrides theme defaults
 		ChartConfigApplier.applyConfig(themedChart, appearanceConfig);
 		
-		chartPanel = new ChartPanel(themedChart, false, true, true, false, true);
+		this.chart = themedChart;
 	}
 
 	@Override public void update(ResultSet rs, ChartResultSet chartRS) throws ChartFormatException {
@@ -83,7 +87,6 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 		}
 		
 		// name axis using column names etc.
-		JFreeChart chart = chartPanel.getChart();
 		CategoryPlot cplot = chart.getCategoryPlot();
 		CategoryItemRenderer renderer = cplot.getRenderer();
 		
@@ -117,7 +120,15 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 		
 		// Populate datasets, potentially splitting between left and right axis
 		DefaultCategoryDataset rightDataset = new DefaultCategoryDataset();
-		boolean hasRightAxis = addWithAxisConfig(chartRS, dataset, rightDataset, appearanceConfig);
+		int[] rows = null;
+		if(isDownsampled(renderer) && ChartDownsampler.isLarge(chartRS.getRowCount(), ChartDownsampler.DEFAULT_WIDTH)) {
+			List<double[]> cols = new ArrayList<>();
+			for(NumericCol nc : chartRS.getNumericColumns()) {
+				cols.add(nc.getDoubles());
+			}
+			rows = ChartDownsampler.minMaxRows(cols, chartRS.getRowCount(), ChartDownsampler.DEFAULT_WIDTH);
+		}
+		boolean hasRightAxis = addWithAxisConfig(chartRS, dataset, rightDataset, appearanceConfig, rows);
 		
 		// Set up right axis if needed
 		if(hasRightAxis && rightDataset.getRowCount() > 0) {
@@ -178,6 +189,9 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 	}
 
 	@Override public Component getComponent() {
+		if(chartPanel == null) {
+			chartPanel = new ChartPanel(chart, false, true, true, false, true);
+		}
 		return chartPanel;
 	}
 
@@ -191,20 +205,36 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 	
 	/** Add a single series to a dataset */
 	private static void addSeriesToDataset(NumericCol numCol, ChartResultSet chartRS, DefaultCategoryDataset dataset) {
+		addSeriesToDataset(numCol, chartRS, dataset, null);
+	}
+	
+	/** Add a single series to a dataset, only the given rows if not null. */
+	private static void addSeriesToDataset(NumericCol numCol, ChartResultSet chartRS, DefaultCategoryDataset dataset, int[] rows) {
 		String seriesName = numCol.getLabel();
 		double[] vals = numCol.getDoubles();
-		for (int i = 0; i < vals.length; i++) {
+		int n = rows == null ? vals.length : rows.length;
+		for (int j = 0; j < n; j++) {
+			int i = rows == null ? j : rows[j];
 			dataset.addValue(vals[i], seriesName, chartRS.getRowLabel(i));
 		}
 	}
 	
+	/**
+	 * Lines and areas of more rows than can be seen are drawn from a sample of rows,
+	 * whereas every bar needs its own category.
+	 */
+	private static boolean isDownsampled(CategoryItemRenderer renderer) {
+		return renderer instanceof LineAndShapeRenderer || renderer instanceof AreaRenderer;
+	}
+	
 	/**
 	 * Add data to left and right datasets based on appearance config axis assignments.
 	 * Also respects visibility setting.
+	 * @param rows The rows to add or null for all.
 	 * @return true if any series was assigned to the right axis
 	 */
 	private static boolean addWithAxisConfig(ChartResultSet chartRS, DefaultCategoryDataset leftDataset, 
-			DefaultCategoryDataset rightDataset, ChartAppearanceConfig config) {
+			DefaultCategoryDataset rightDataset, ChartAppearanceConfig config, int[] rows) {
 		boolean hasRightAxis = false;
 		for (NumericCol numCol : chartRS.getNumericColumns()) {
 			String seriesName = numCol.getLabel();
@@ -220,7 +250,7 @@ class CategoryDatasetUpdateableView implements UpdateableView {
 			if(axisPos == AxisPosition.RIGHT) {
 				hasRightAxis = true;
 			}
-			addSeriesToDataset(numCol, chartRS, targetDataset);
+			addSeriesToDataset(numCol, chartRS, targetDataset, rows);
 		}
 		return hasRightAxis;
 	}
@@ -0,0 +1,214 @@
+package com.timestored.sqldash.chart;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reduces large series to the few points per pixel that can actually be seen so that
+ * charts of millions of rows draw instantly while still showing every spike.
+ * <ul>
+ * <li>Lines keep the first, minimum, maximum and last point of each pixel wide bucket,
+ * 	which draws the same as the full data at that width.</li>
+ * <li>Scatter plots keep one point for each occupied cell of a grid a couple of pixels square.</li>
+ * </ul>
+ */
+final class ChartDownsampler {
+
+	/** Width used before a chart is on screen, roughly that of a full HD monitor. */
+	static final int DEFAULT_WIDTH = 1920;
+	static final int DEFAULT_HEIGHT = 1080;
+	/** Series with no more than this many points per pixel are drawn in full. */
+	private static final int POINTS_PER_PIXEL = 4;
+	private static final int SCATTER_CELL_PIXELS = 2;
+
+	private ChartDownsampler() {}
+
+	/** @return true if a series of this many rows has more points than can be seen at the given width. */
+	static boolean isLarge(int rowCount, int width) {
+		return rowCount > width * POINTS_PER_PIXEL;
+	}
+
+	/**
+	 * @param x Ascending x values or null to use the row index.
+	 * @return Ascending indices within from to to of the first, min, max and last
+	 *  non-NaN y value of each of buckets equally wide ranges of x.
+	 */
+	static int[] minMax(double[] x, double[] y, int from, int to, int buckets) {
+		int n = to - from;
+		if(n <= 0) {
+			return new int[0];
+		}
+		double x0 = x == null ? from : x[from];
+		double span = (x == null ? to - 1 : x[to - 1]) - x0;
+		int[] res = new int[Math.min(n, buckets * POINTS_PER_PIXEL)];
+		int count = 0;
+		int bucket = -1;
+		int first = -1, min = -1, max = -1, last = -1;
+		for(int i = from; i < to; i++) {
+			double v = y[i];
+			if(Double.isNaN(v)) {
+				continue;
+			}
+			double xi = x == null ? i : x[i];
+			int b = span > 0 ? (int) Math.min(buckets - 1, (long) ((xi - x0) / span * buckets)) : 0;
+			if(b != bucket) {
+				count = flush(res, count, first, min, max, last);
+				bucket = b;
+				first = min = max = last = i;
+			} else {
+				if(v < y[min]) {
+					min = i;
+				} else if(v > y[max]) {
+					max = i;
+				}
+				last = i;
+			}
+		}
+		count = flush(res, count, first, min, max, last);
+		return count == res.length ? res : Arrays.copyOf(res, count);
+	}
+
+	/** Append the distinct indices of one bucket in ascending order. */
+	private static int flush(int[] res, int count, int first, int min, int max, int last) {
+		if(first == -1) {
+			return count;
+		}
+		res[count++] = first;
+		int lo = Math.min(min, max);
+		int hi = Math.max(min, max);
+		if(lo != first) {
+			res[count++] = lo;
+		}
+		if(hi != lo && hi != last) {
+			res[count++] = hi;
+		}
+		if(last != first) {
+			res[count++] = last;
+		}
+		return count;
+	}
+
+	/**
+	 * @return Ascending rows that must be kept for every column to draw the same as in full,
+	 * 	i.e. the union of each column's {@link #minMax(double[], double[], int, int, int)} by row index.
+	 */
+	static int[] minMaxRows(List<double[]> cols, int rowCount, int buckets) {
+		BitSet keep = new BitSet(rowCount);
+		for(double[] y : cols) {
+			for(int i : minMax(null, y, 0, rowCount, buckets)) {
+				keep.set(i);
+			}
+		}
+		int[] res = new int[keep.cardinality()];
+		int count = 0;
+		for(int i = keep.nextSetBit(0); i >= 0; i = keep.nextSetBit(i + 1)) {
+			res[count++] = i;
+		}
+		return res;
+	}
+
+	/**
+	 * @param x Ascending x values.
+	 * @return Ascending indices within from to to of the first non-NaN point found in each
+	 * 	occupied cell of a grid covering the points and sized for the given pixels.
+	 */
+	static int[] grid(double[] x, double[] y, int from, int to, int width, int height) {
+		double yMin = Double.POSITIVE_INFINITY;
+		double yMax = Double.NEGATIVE_INFINITY;
+		for(int i = from; i < to; i++) {
+			double v = y[i];
+			if(v < yMin) {
+				yMin = v;
+			}
+			if(v > yMax) {
+				yMax = v;
+			}
+		}
+		if(yMin > yMax) {
+			return new int[0];
+		}
+		int xCells = Math.max(1, width / SCATTER_CELL_PIXELS);
+		int yCells = Math.max(1, height / SCATTER_CELL_PIXELS);
+		double x0 = x[from];
+		double xSpan = x[to - 1] - x0;
+		double ySpan = yMax - yMin;
+		BitSet occupied = new BitSet(xCells * yCells);
+		int[] res = new int[Math.min(to - from, xCells * yCells)];
+		int count = 0;
+		for(int i = from; i < to && count < res.length; i++) {
+			double v = y[i];
+			if(Double.isNaN(v)) {
+				continue;
+			}
+			int cx = xSpan > 0 ? (int) Math.min(xCells - 1, (long) ((x[i] - x0) / xSpan * xCells)) : 0;
+			int cy = ySpan > 0 ? (int) Math.min(yCells - 1, (long) ((v - yMin) / ySpan * yCells)) : 0;
+			int cell = cx * yCells + cy;
+			if(!occupied.get(cell)) {
+				occupied.set(cell);
+				res[count++] = i;
+			}
+		}
+		return count == res.length ? res : Arrays.copyOf(res, count);
+	}
+
+	/** @return The index of the first x value not less than v, x must be ascending. */
+	static int lowerBound(double[] x, double v) {
+		int lo = 0;
+		int hi = x.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(x[mid] < v) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/** @return The indices of non-NaN x in ascending order of x, stable for equal values. */
+	static int[] sortedOrder(double[] x) {
+		int n = 0;
+		for(double v : x) {
+			if(!Double.isNaN(v)) {
+				n++;
+			}
+		}
+		int[] order = new int[n];
+		for(int i = 0, j = 0; i < x.length; i++) {
+			if(!Double.isNaN(x[i])) {
+				order[j++] = i;
+			}
+		}
+		mergeSort(order.clone(), order, 0, order.length, x);
+		return order;
+	}
+
+	private static void mergeSort(int[] src, int[] dest, int low, int high, double[] x) {
+		if(high - low < 7) {
+			for(int i = low; i < high; i++) {
+				for(int j = i; j > low && x[dest[j - 1]] > x[dest[j]]; j--) {
+					int t = dest[j];
+					dest[j] = dest[j - 1];
+					dest[j - 1] = t;
+				}
+			}
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, x);
+		mergeSort(dest, src, mid, high, x);
+		if(x[src[mid - 1]] <= x[src[mid]]) {
+			System.arraycopy(src, low, dest, low, high - low);
+			return;
+		}
+		for(int i = low, p = low, q = mid; i < high; i++) {
+			if(q >= high || (p < mid && x[src[p]] <= x[src[q]])) {
+				dest[i] = src[p++];
+			} else {
+				dest[i] = src[q++];
+			}
+		}
+	}
+}
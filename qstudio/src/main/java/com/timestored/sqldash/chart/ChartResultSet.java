@@ -47,6 +47,8 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 class ChartResultSet {
 
+	private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
 	private final List<NumericCol> numericColumns;
 	private final List<StringyCol> stringyColumns;
 	private final TimeCol timeCol;
@@ -213,12 +215,67 @@ class ChartResultSet {
 	/** Represents a titled column containing temporal data. */
 	public static class TimeCol extends StringyCol {
 		
-		private volatile Date[] dates = null;
+		private volatile double[] epochMillis = null;
 		
 		TimeCol(String name, int type, List<Object> vals) {
 			super(name, type, vals);
 		}
 		
+		/**
+		 * @return The start of each row's time in milliseconds since epoch, the same instant as the start of
+		 * 	the corresponding {@link #getRegularTimePeriods()}, or NaN where a row has no time.
+		 * 	Calculated once and shared, so must not be modified.
+		 * @throws IllegalArgumentException if no rows could be converted.
+		 */
+		public double[] getEpochMillis() {
+			double[] r = epochMillis;
+			if(r == null) {
+				r = convertToEpochMillis(vals);
+				epochMillis = r;
+			}
+			return r;
+		}
+
+		private static double[] convertToEpochMillis(List<Object> timeObjects) {
+			final int rowCount = timeObjects.size();
+			double[] res = new double[rowCount];
+			int unconvertedRows = 0;
+			ZoneId zone = ZoneId.systemDefault();
+			for(int row = 0; row < rowCount; row++) {
+				Object o = timeObjects.get(row);
+				double t = Double.NaN;
+				// Dates start at local midnight and times are UTC, matching the periods of convertToJFreeTime
+				if(o instanceof RegularTimePeriod) {
+					t = ((RegularTimePeriod) o).getFirstMillisecond();
+				} else if(o instanceof java.time.YearMonth) {
+					t = ((java.time.YearMonth) o).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+				} else if(o instanceof java.sql.Time || o instanceof java.sql.Timestamp) {
+					t = ((Date) o).getTime();
+				} else if(o instanceof OffsetTime) {
+					t = ((OffsetTime) o).getLong(ChronoField.MILLI_OF_DAY);
+				} else if(o instanceof OffsetDateTime) {
+					t = ((OffsetDateTime) o).toInstant().atZone(zone).toLocalDate().atStartOfDay(zone).toInstant().toEpochMilli();
+				} else if(o instanceof LocalTime) {
+					t = ((LocalTime) o).getLong(ChronoField.MILLI_OF_DAY);
+				} else if(o instanceof LocalDate) {
+					t = ((LocalDate) o).atStartOfDay(zone).toInstant().toEpochMilli();
+				} else if(o instanceof LocalDateTime) {
+					t = ((LocalDateTime) o).toInstant(ZoneOffset.UTC).toEpochMilli();
+				} else if(o instanceof Date) {
+					t = Math.floorDiv(((Date) o).getTime(), MILLIS_PER_DAY) * MILLIS_PER_DAY;
+				} else if(o instanceof Instant) {
+					t = ((Instant) o).toEpochMilli();
+				} else {
+					unconvertedRows++;
+				}
+				res[row] = t;
+			}
+			if(rowCount>0 && unconvertedRows == rowCount) {
+				throw new IllegalArgumentException("Could not convert any rows of the time column");
+			}
+			return res;
+		}
+		
 		/** @return The time data contained in this {@link Col} as a RegularTimePeriod[] array. */
 		public RegularTimePeriod[] getRegularTimePeriods() {
 			return convertToJFreeTime(vals);
@@ -0,0 +1,492 @@
+package com.timestored.sqldash.chart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+
+import org.jdesktop.swingx.sort.SortController;
+import org.jdesktop.swingx.sort.StringValueProvider;
+
+import com.google.common.base.Preconditions;
+import com.timestored.qstudio.BackgroundExecutor;
+import com.timestored.sqldash.chart.TableFactory.ColumnarTableModel;
+
+import kx.c;
+
+/**
+ * Sorts and filters a {@link ColumnarTableModel} on a background thread so that large results never freeze the UI.
+ * Sort keys are compared as primitives read straight from the column arrays, e.g. the longs of a kdb timestamp column
+ * or a rank for each distinct symbol. The row order is found by a stable merge sort and swapped in on the EDT once complete,
+ * until then the previous order is shown. Columns of other objects fall back to the column's comparator.
+ */
+class ColumnarRowSorter extends RowSorter<ColumnarTableModel> implements SortController<ColumnarTableModel> {
+
+	private static final Logger LOG = Logger.getLogger(ColumnarRowSorter.class.getName());
+	private static final int MAX_SORT_KEYS = 3;
+
+	private final ColumnarTableModel model;
+	private List<SortKey> sortKeys = Collections.emptyList();
+	private RowFilter<? super ColumnarTableModel, ? super Integer> rowFilter;
+	private String filterText = "";
+	private final Map<Integer, Comparator<?>> comparators = new HashMap<>();
+	private final Set<Integer> unsortableColumns = new HashSet<>();
+	private boolean sortable = true;
+	private boolean sortsOnUpdates = false;
+	private SortOrder[] sortOrderCycle = { SortOrder.ASCENDING, SortOrder.DESCENDING };
+	private StringValueProvider stringValueProvider;
+
+	/** Null when all rows are shown in model order. */
+	private int[] viewToModel;
+	private int[] modelToView;
+	/** The last applied text filter and the rows it accepted, so that typing further only rechecks those rows. */
+	private String appliedFilterText = "";
+	private int[] textFilteredRows;
+	/** Incremented by each request so that the result of a superseded background sort is discarded. */
+	private final AtomicInteger generation = new AtomicInteger();
+
+	ColumnarRowSorter(ColumnarTableModel model) {
+		this.model = Preconditions.checkNotNull(model);
+	}
+
+	/** Show only rows where the text of any cell contains filterText, ignoring case. */
+	public void setFilterText(String filterText) {
+		String ft = filterText == null ? "" : filterText.toLowerCase(Locale.ROOT);
+		if(!ft.equals(this.filterText)) {
+			this.filterText = ft;
+			refresh();
+		}
+	}
+
+	@Override public ColumnarTableModel getModel() { return model; }
+
+	@Override public void toggleSortOrder(int column) {
+		checkColumn(column);
+		if(!isSortable(column)) {
+			return;
+		}
+		List<SortKey> keys = new ArrayList<>(sortKeys);
+		SortOrder order = sortOrderCycle.length > 0 ? sortOrderCycle[0] : SortOrder.UNSORTED;
+		for(int i = 0; i < keys.size(); i++) {
+			if(keys.get(i).getColumn() == column) {
+				if(i == 0) {
+					order = nextInCycle(keys.get(0).getSortOrder());
+				}
+				keys.remove(i);
+				break;
+			}
+		}
+		if(order != SortOrder.UNSORTED) {
+			keys.add(0, new SortKey(column, order));
+		}
+		setSortKeys(keys.size() > MAX_SORT_KEYS ? keys.subList(0, MAX_SORT_KEYS) : keys);
+	}
+
+	private SortOrder nextInCycle(SortOrder current) {
+		int pos = Arrays.asList(sortOrderCycle).indexOf(current);
+		return sortOrderCycle.length == 0 ? SortOrder.UNSORTED : sortOrderCycle[(pos + 1) % sortOrderCycle.length];
+	}
+
+	@Override public int convertRowIndexToModel(int index) {
+		int[] v = viewToModel;
+		if(index < 0 || index >= (v == null ? model.getRowCount() : v.length)) {
+			throw new IndexOutOfBoundsException("Invalid index");
+		}
+		return v == null ? index : v[index];
+	}
+
+	@Override public int convertRowIndexToView(int index) {
+		if(index < 0 || index >= model.getRowCount()) {
+			throw new IndexOutOfBoundsException("Invalid index");
+		}
+		int[] m = modelToView;
+		return m == null ? index : m[index];
+	}
+
+	@Override public void setSortKeys(List<? extends SortKey> keys) {
+		List<SortKey> newKeys = keys == null ? Collections.<SortKey>emptyList() : Collections.unmodifiableList(new ArrayList<SortKey>(keys));
+		for(SortKey k : newKeys) {
+			checkColumn(Preconditions.checkNotNull(k).getColumn());
+		}
+		if(!newKeys.equals(sortKeys)) {
+			sortKeys = newKeys;
+			fireSortOrderChanged();
+			refresh();
+		}
+	}
+
+	@Override public List<? extends SortKey> getSortKeys() { return sortKeys; }
+	@Override public int getViewRowCount() { return viewToModel == null ? model.getRowCount() : viewToModel.length; }
+	@Override public int getModelRowCount() { return model.getRowCount(); }
+
+	@Override public void modelStructureChanged() {
+		sortKeys = Collections.emptyList();
+		textFilteredRows = null;
+		refresh();
+	}
+
+	@Override public void allRowsChanged() {
+		textFilteredRows = null;
+		refresh();
+	}
+
+	@Override public void rowsInserted(int firstRow, int endRow) { allRowsChanged(); }
+	@Override public void rowsDeleted(int firstRow, int endRow) { allRowsChanged(); }
+
+	@Override public void rowsUpdated(int firstRow, int endRow) {
+		if(sortsOnUpdates) {
+			allRowsChanged();
+		}
+	}
+
+	@Override public void rowsUpdated(int firstRow, int endRow, int column) { rowsUpdated(firstRow, endRow); }
+
+	@Override public void setSortable(boolean sortable) { this.sortable = sortable; }
+	@Override public boolean isSortable() { return sortable; }
+
+	@Override public void setSortable(int column, boolean sortable) {
+		if(sortable) {
+			unsortableColumns.remove(column);
+		} else {
+			unsortableColumns.add(column);
+		}
+	}
+
+	@Override public boolean isSortable(int column) { return sortable && !unsortableColumns.contains(column); }
+	@Override public void setComparator(int column, Comparator<?> comparator) { comparators.put(column, comparator); }
+	@Override public Comparator<?> getComparator(int column) { return comparators.get(column); }
+	@Override public void setSortOrderCycle(SortOrder... cycles) { this.sortOrderCycle = cycles.clone(); }
+	@Override public SortOrder[] getSortOrderCycle() { return sortOrderCycle.clone(); }
+	@Override public void setSortsOnUpdates(boolean sortsOnUpdates) { this.sortsOnUpdates = sortsOnUpdates; }
+	@Override public boolean getSortsOnUpdates() { return sortsOnUpdates; }
+	@Override public void setStringValueProvider(StringValueProvider provider) { this.stringValueProvider = provider; }
+	@Override public StringValueProvider getStringValueProvider() { return stringValueProvider; }
+
+	@Override public void setSortOrder(int column, SortOrder sortOrder) {
+		checkColumn(column);
+		if(!isSortable(column)) {
+			return;
+		}
+		List<SortKey> keys = new ArrayList<>(sortKeys);
+		keys.removeIf(k -> k.getColumn() == column);
+		if(sortOrder != SortOrder.UNSORTED) {
+			keys.add(0, new SortKey(column, sortOrder));
+		}
+		setSortKeys(keys.size() > MAX_SORT_KEYS ? keys.subList(0, MAX_SORT_KEYS) : keys);
+	}
+
+	@Override public SortOrder getSortOrder(int column) {
+		for(SortKey k : sortKeys) {
+			if(k.getColumn() == column) {
+				return k.getSortOrder();
+			}
+		}
+		return SortOrder.UNSORTED;
+	}
+
+	@Override public void resetSortOrders() { setSortKeys(null); }
+
+	@Override public void setRowFilter(RowFilter<? super ColumnarTableModel, ? super Integer> filter) {
+		this.rowFilter = filter;
+		refresh();
+	}
+
+	@Override public RowFilter<? super ColumnarTableModel, ? super Integer> getRowFilter() { return rowFilter; }
+
+	private void checkColumn(int column) {
+		if(column < 0 || column >= model.getColumnCount()) {
+			throw new IndexOutOfBoundsException("column beyond range of TableModel");
+		}
+	}
+
+	/** Snapshot the current settings and recalculate the view in the background. */
+	private void refresh() {
+		final int gen = generation.incrementAndGet();
+		final List<SortKey> keys = sortKeys;
+		final RowFilter<? super ColumnarTableModel, ? super Integer> filter = rowFilter;
+		final String text = filterText;
+		final boolean narrowing = !appliedFilterText.isEmpty() && text.contains(appliedFilterText) && textFilteredRows != null;
+		final int[] candidates = narrowing ? textFilteredRows : null;
+		final Map<Integer, Comparator<?>> cmps = new HashMap<>(comparators);
+		final StringValueProvider svp = stringValueProvider;
+		BackgroundExecutor.EXECUTOR.execute(() -> {
+			try {
+				long start = System.currentTimeMillis();
+				int[] textRows = text.isEmpty() ? null : filterText(text, candidates, svp);
+				int[] rows = applyRowFilter(filter, textRows);
+				if(!keys.isEmpty()) {
+					rows = rows == null ? identity(model.getRowCount()) : rows;
+					sort(rows, getRowComparator(keys, cmps));
+				}
+				LOG.fine("sorted " + model.getRowCount() + " rows in " + (System.currentTimeMillis() - start) + "ms");
+				final int[] result = rows;
+				SwingUtilities.invokeLater(() -> {
+					if(gen == generation.get()) {
+						appliedFilterText = text;
+						textFilteredRows = textRows;
+						apply(result);
+					}
+				});
+			} catch(RuntimeException e) {
+				LOG.log(Level.WARNING, "Could not sort table", e);
+			}
+		});
+	}
+
+	private void apply(int[] newViewToModel) {
+		int[] previous = viewToModel != null ? viewToModel : identity(model.getRowCount());
+		int[] m = null;
+		if(newViewToModel != null) {
+			m = new int[model.getRowCount()];
+			Arrays.fill(m, -1);
+			for(int i = 0; i < newViewToModel.length; i++) {
+				m[newViewToModel[i]] = i;
+			}
+		}
+		viewToModel = newViewToModel;
+		modelToView = m;
+		fireRowSorterChanged(previous);
+	}
+
+	private static int[] identity(int n) {
+		int[] r = new int[n];
+		for(int i = 0; i < n; i++) {
+			r[i] = i;
+		}
+		return r;
+	}
+
+	/** @return the rows, from candidates if given else all, where any cell's text contains text. */
+	private int[] filterText(String text, int[] candidates, StringValueProvider svp) {
+		int n = candidates == null ? model.getRowCount() : candidates.length;
+		int cols = model.getColumnCount();
+		int[] r = new int[n];
+		int count = 0;
+		for(int i = 0; i < n; i++) {
+			int row = candidates == null ? i : candidates[i];
+			for(int col = 0; col < cols; col++) {
+				Object o = model.getValueAt(row, col);
+				String s = svp != null ? svp.getStringValue(row, col).getString(o) : String.valueOf(o);
+				if(s != null && s.toLowerCase(Locale.ROOT).contains(text)) {
+					r[count++] = row;
+					break;
+				}
+			}
+		}
+		return Arrays.copyOf(r, count);
+	}
+
+	/** @return the rows, from candidates if given else all, that the filter accepts or candidates if there is no filter. */
+	private int[] applyRowFilter(RowFilter<? super ColumnarTableModel, ? super Integer> filter, int[] candidates) {
+		if(filter == null) {
+			return candidates;
+		}
+		int n = candidates == null ? model.getRowCount() : candidates.length;
+		int[] r = new int[n];
+		int count = 0;
+		ModelEntry entry = new ModelEntry();
+		for(int i = 0; i < n; i++) {
+			entry.row = candidates == null ? i : candidates[i];
+			if(filter.include(entry)) {
+				r[count++] = entry.row;
+			}
+		}
+		return Arrays.copyOf(r, count);
+	}
+
+	private class ModelEntry extends RowFilter.Entry<ColumnarTableModel, Integer> {
+		private int row;
+		@Override public ColumnarTableModel getModel() { return model; }
+		@Override public int getValueCount() { return model.getColumnCount(); }
+		@Override public Object getValue(int index) { return model.getValueAt(row, index); }
+		@Override public Integer getIdentifier() { return row; }
+	}
+
+	/** Compares two model rows. */
+	private interface RowComparator {
+		int compare(int a, int b);
+	}
+
+	private RowComparator getRowComparator(List<SortKey> keys, Map<Integer, Comparator<?>> cmps) {
+		final RowComparator[] rcs = new RowComparator[keys.size()];
+		for(int i = 0; i < rcs.length; i++) {
+			SortKey key = keys.get(i);
+			RowComparator rc = getColumnComparator(key.getColumn(), cmps.get(key.getColumn()));
+			rcs[i] = key.getSortOrder() == SortOrder.DESCENDING ? (a, b) -> rc.compare(b, a) : rc;
+		}
+		if(rcs.length == 1) {
+			return rcs[0];
+		}
+		return (a, b) -> {
+			for(RowComparator rc : rcs) {
+				int r = rc.compare(a, b);
+				if(r != 0) {
+					return r;
+				}
+			}
+			return 0;
+		};
+	}
+
+	private RowComparator getColumnComparator(int column, Comparator<?> comparator) {
+		Object arr = model.getColumnArray(column);
+		if(arr instanceof c.TemporalVector) {
+			c.TemporalVector tv = (c.TemporalVector) arr;
+			arr = tv.j != null ? tv.j : tv.i != null ? (Object) tv.i : tv.f;
+		}
+		if(arr instanceof long[]) {
+			long[] k = (long[]) arr;
+			return (a, b) -> Long.compare(k[a], k[b]);
+		} else if(arr instanceof int[]) {
+			int[] k = (int[]) arr;
+			return (a, b) -> Integer.compare(k[a], k[b]);
+		} else if(arr instanceof double[]) {
+			double[] k = (double[]) arr;
+			return (a, b) -> compareNullsFirst(k[a], k[b]);
+		} else if(arr instanceof float[]) {
+			float[] k = (float[]) arr;
+			return (a, b) -> compareNullsFirst(k[a], k[b]);
+		} else if(arr instanceof short[]) {
+			short[] k = (short[]) arr;
+			return (a, b) -> Short.compare(k[a], k[b]);
+		} else if(arr instanceof byte[]) {
+			byte[] k = (byte[]) arr;
+			return (a, b) -> Byte.compare(k[a], k[b]);
+		} else if(arr instanceof char[]) {
+			char[] k = (char[]) arr;
+			return (a, b) -> Character.compare(k[a], k[b]);
+		} else if(arr instanceof boolean[]) {
+			boolean[] k = (boolean[]) arr;
+			return (a, b) -> Boolean.compare(k[a], k[b]);
+		}
+		Object[] vals = arr instanceof Object[] ? (Object[]) arr : readColumn(column);
+		return getObjectComparator(vals, comparator);
+	}
+
+	private Object[] readColumn(int column) {
+		Object[] vals = new Object[model.getRowCount()];
+		for(int row = 0; row < vals.length; row++) {
+			vals[row] = model.getValueAt(row, column);
+		}
+		return vals;
+	}
+
+	/**
+	 * Where all values are of one kind convert them to primitive keys once, nulls first,
+	 * strings and symbols are ranked. Otherwise compare the objects.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static RowComparator getObjectComparator(Object[] vals, Comparator comparator) {
+		boolean allText = true, allTime = true, allIntegral = true, allNumber = true;
+		for(Object o : vals) {
+			if(o != null) {
+				allText &= o instanceof String || o instanceof char[];
+				allTime &= o instanceof java.util.Date;
+				allIntegral &= o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte;
+				allNumber &= o instanceof Number;
+			}
+		}
+		if(allText) {
+			int[] k = rank(vals);
+			return (a, b) -> Integer.compare(k[a], k[b]);
+		} else if(allTime || allIntegral) {
+			long[] k = new long[vals.length];
+			for(int i = 0; i < vals.length; i++) {
+				Object o = vals[i];
+				k[i] = o == null ? Long.MIN_VALUE : allIntegral ? ((Number) o).longValue() : toNanos((java.util.Date) o);
+			}
+			return (a, b) -> Long.compare(k[a], k[b]);
+		} else if(allNumber) {
+			double[] k = new double[vals.length];
+			for(int i = 0; i < vals.length; i++) {
+				k[i] = vals[i] == null ? Double.NaN : ((Number) vals[i]).doubleValue();
+			}
+			return (a, b) -> compareNullsFirst(k[a], k[b]);
+		}
+		Comparator cmp = comparator != null ? comparator : Comparator.nullsFirst(Comparator.naturalOrder());
+		return (a, b) -> cmp.compare(vals[a], vals[b]);
+	}
+
+	/** NaN is the kdb float null so sorts first like the other nulls, unlike {@link Double#compare}. */
+	private static int compareNullsFirst(double a, double b) {
+		boolean aNull = Double.isNaN(a), bNull = Double.isNaN(b);
+		return aNull || bNull ? Boolean.compare(!aNull, !bNull) : Double.compare(a, b);
+	}
+
+	private static long toNanos(java.util.Date d) {
+		if(d instanceof java.sql.Timestamp) {
+			return Math.floorDiv(d.getTime(), 1000) * 1_000_000_000L + ((java.sql.Timestamp) d).getNanos();
+		}
+		return d.getTime() * 1_000_000L;
+	}
+
+	/** @return The position of each value within the sorted distinct values, -1 for null. */
+	private static int[] rank(Object[] vals) {
+		Map<String, Integer> codes = new HashMap<>();
+		String[] strings = new String[vals.length];
+		for(int i = 0; i < vals.length; i++) {
+			Object o = vals[i];
+			if(o != null) {
+				strings[i] = o instanceof char[] ? new String((char[]) o) : (String) o;
+				codes.putIfAbsent(strings[i], 0);
+			}
+		}
+		String[] distinct = codes.keySet().toArray(new String[0]);
+		Arrays.sort(distinct);
+		for(int i = 0; i < distinct.length; i++) {
+			codes.put(distinct[i], i);
+		}
+		int[] r = new int[vals.length];
+		for(int i = 0; i < vals.length; i++) {
+			r[i] = strings[i] == null ? -1 : codes.get(strings[i]);
+		}
+		return r;
+	}
+
+	/** Stable merge sort of rows. */
+	private static void sort(int[] rows, RowComparator c) {
+		mergeSort(rows.clone(), rows, 0, rows.length, c);
+	}
+
+	private static void mergeSort(int[] src, int[] dest, int low, int high, RowComparator c) {
+		int length = high - low;
+		if(length < 7) {
+			for(int i = low; i < high; i++) {
+				for(int j = i; j > low && c.compare(dest[j - 1], dest[j]) > 0; j--) {
+					int t = dest[j];
+					dest[j] = dest[j - 1];
+					dest[j - 1] = t;
+				}
+			}
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, c);
+		mergeSort(dest, src, mid, high, c);
+		if(c.compare(src[mid - 1], src[mid]) <= 0) {
+			System.arraycopy(src, low, dest, low, length);
+			return;
+		}
+		for(int i = low, p = low, q = mid; i < high; i++) {
+			if(q >= high || p < mid && c.compare(src[p], src[q]) <= 0) {
+				dest[i] = src[p++];
+			} else {
+				dest[i] = src[q++];
+			}
+		}
+	}
+}
@@ -3,15 +3,20 @@ package com.timestored.sqldash.chart;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.EventQueue;
 import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JPanel;
 import javax.swing.JTable;
+import javax.swing.table.TableModel;
 
 import com.google.common.collect.ImmutableList;
+import com.timestored.babeldb.DBHelper;
+import com.timestored.babeldb.DBHelper.ColumnInfo;
 import com.timestored.connections.JdbcTypes;
 import com.timestored.theme.Icon;
 import com.timestored.theme.Theme.CIcon;
@@ -67,28 +72,44 @@ public class DataTableViewStrategy implements ViewStrategy {
 	 * A view that displays {@link ResultSet} data as a fresh {@link JTable} each time new data arrives.
 	 */
 	private static class DataTableUpdateableView implements UpdateableView {
-		private final JPanel p;
+		/** Created by the first {@link #getComponent()} on the EDT. */
+		private JPanel p;
 		private final boolean debugView;
+		/** The model read from the latest ResultSet that has not been shown yet. */
+		private final AtomicReference<TableModel> pendingModel = new AtomicReference<>();
+		private volatile ColumnInfo[] columnInfos;
 		
 	
 		public DataTableUpdateableView(boolean debugView) {
 			this.debugView = debugView;
-			p = new JPanel(new BorderLayout());
 		}
 	
 		@Override public void update(ResultSet rs, ChartResultSet chartResultSet) 
 				throws ChartFormatException {
 			try {
-				p.removeAll();
-				Component tbl = TableFactory.getTable(rs, Integer.MAX_VALUE, true);
-				p.add(tbl, BorderLayout.CENTER);
-				p.revalidate();
+				columnInfos = DBHelper.getColumnInfos(rs);
+				pendingModel.set(TableFactory.buildTableModel(rs, Integer.MAX_VALUE));
+				EventQueue.invokeLater(this::showPending);
 			} catch (SQLException e) {
 				throw new ChartFormatException("Could not create ResultSet.");
 			}
 		}
+		
+		/** Swap in a table for the latest model, if the panel exists. Must be called on the EDT. */
+		private void showPending() {
+			TableModel tableModel = p == null ? null : pendingModel.getAndSet(null);
+			if(tableModel != null) {
+				p.removeAll();
+				p.add(TableFactory.getTable(tableModel, columnInfos, true), BorderLayout.CENTER);
+				p.revalidate();
+			}
+		}
 	
 		@Override public Component getComponent() {
+			if(p == null) {
+				p = new JPanel(new BorderLayout());
+			}
+			showPending();
 			return p;
 		}
 	
@@ -0,0 +1,280 @@
+package com.timestored.sqldash.chart;
+
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.Range;
+import org.jfree.data.xy.AbstractXYDataset;
+
+import com.google.common.base.Preconditions;
+import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
+
+/**
+ * An XYDataset whose series share one array of x values and each have an array of y values,
+ * e.g. the epoch millis of a {@link ChartResultSet.TimeCol} and {@link ChartResultSet.NumericCol#getDoubles()},
+ * used directly without creating an object per point. Only the points needed to draw the visible domain
+ * range at the chart's size are exposed, see {@link ChartDownsampler}, NaN y values are skipped.
+ * Once {@link #bind(ChartPanel)} is called it re-samples from the full data whenever the chart is zoomed,
+ * panned or resized. The first and last points are always shown so that auto ranging covers all the data.
+ */
+class DownsampledXYDataset extends AbstractXYDataset {
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean scatter;
+	private double[] x;
+	private int rowCount;
+	/** The rows of the original arrays in ascending x order or null if already ascending with no NaN. */
+	private final int[] order;
+	private final List<String> keys = new ArrayList<>();
+	private final List<double[]> ys = new ArrayList<>();
+	private final List<int[]> shown = new ArrayList<>();
+	/** Columns deliberately not shown, e.g. hidden by the user. */
+	private final Set<String> hiddenKeys = new HashSet<>();
+
+	private double lo = Double.NEGATIVE_INFINITY;
+	private double hi = Double.POSITIVE_INFINITY;
+	private int width = ChartDownsampler.DEFAULT_WIDTH;
+	private int height = ChartDownsampler.DEFAULT_HEIGHT;
+
+	/**
+	 * @param x The x values shared by all series, not modified, rows with NaN are ignored.
+	 * 	If not ascending a sorted copy is taken.
+	 * @param scatter true to sample for points on a grid, false to sample for lines joining them.
+	 */
+	DownsampledXYDataset(double[] x, boolean scatter) {
+		this.scatter = scatter;
+		this.rowCount = x.length;
+		boolean ascending = true;
+		double prev = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < x.length && ascending; i++) {
+			ascending = prev <= x[i]; // false for NaN
+			prev = x[i];
+		}
+		if(ascending) {
+			this.x = x;
+			this.order = null;
+		} else {
+			this.order = ChartDownsampler.sortedOrder(x);
+			this.x = get(x, order);
+		}
+	}
+
+	private static double[] get(double[] vals, int[] idx) {
+		double[] r = new double[idx.length];
+		for(int i = 0; i < idx.length; i++) {
+			r[i] = vals[idx[i]];
+		}
+		return r;
+	}
+
+	/** Add a series, y must be the same length as x and is not modified. */
+	void addSeries(String key, double[] y) {
+		Preconditions.checkArgument(y.length == rowCount);
+		keys.add(key);
+		ys.add(order == null ? y : get(y, order));
+		shown.add(sample(x, ys.get(ys.size() - 1)));
+		fireDatasetChanged();
+	}
+
+	/** Record a column that was deliberately not added as a series so that it is not mistaken for a new column. */
+	void addHiddenSeries(String key) {
+		hiddenKeys.add(key);
+	}
+
+	/** @return true if the column is shown as a series or was deliberately not shown. */
+	boolean hasColumn(String key) {
+		return keys.contains(key) || hiddenKeys.contains(key);
+	}
+
+	/**
+	 * Find the data for every series from the same named column in latest, without changing this dataset.
+	 * @param x The new x values, the same as the current ones other than the last appendedRows
+	 * 	and any rows dropped from the start.
+	 * @return The y values for each series to pass to {@link #setData(double[], List)},
+	 * 	or null if not possible as a column is missing or x is no longer ascending.
+	 */
+	List<double[]> getLatestYs(double[] x, ChartResultSet latest, int appendedRows) {
+		if(order != null) {
+			return null;
+		}
+		for(int i = Math.max(1, x.length - appendedRows); i < x.length; i++) {
+			if(!(x[i - 1] <= x[i])) {
+				return null;
+			}
+		}
+		List<double[]> latestYs = new ArrayList<>(keys.size());
+		for(String key : keys) {
+			NumericCol nc = null;
+			for(NumericCol c : latest.getNumericColumns()) {
+				if(c.getLabel().equals(key)) {
+					nc = c;
+				}
+			}
+			if(nc == null || nc.getDoubles().length != x.length) {
+				return null;
+			}
+			latestYs.add(nc.getDoubles());
+		}
+		return latestYs;
+	}
+
+	/**
+	 * Replace the data of every series, re-sampling for the current view.
+	 * @param latestYs As returned by {@link #getLatestYs(double[], ChartResultSet, int)} for x.
+	 */
+	void setData(double[] x, List<double[]> latestYs) {
+		Preconditions.checkArgument(latestYs.size() == keys.size());
+		this.x = x;
+		this.rowCount = x.length;
+		for(int s = 0; s < keys.size(); s++) {
+			ys.set(s, latestYs.get(s));
+			shown.set(s, sample(x, latestYs.get(s)));
+		}
+		fireDatasetChanged();
+	}
+
+	/** Remove the most recently added series, e.g. because it had no values. */
+	void removeLastSeries() {
+		int last = keys.size() - 1;
+		keys.remove(last);
+		ys.remove(last);
+		shown.remove(last);
+		fireDatasetChanged();
+	}
+
+	/** Re-sample all series for the given visible domain range and chart size in pixels. */
+	void resample(double lo, double hi, int width, int height) {
+		if(lo == this.lo && hi == this.hi && width == this.width && height == this.height) {
+			return;
+		}
+		this.lo = lo;
+		this.hi = hi;
+		this.width = width;
+		this.height = height;
+		for(int s = 0; s < shown.size(); s++) {
+			shown.set(s, sample(x, ys.get(s)));
+		}
+		fireDatasetChanged();
+	}
+
+	private int[] sample(double[] x, double[] y) {
+		int n = x.length;
+		int firstRow = 0;
+		while(firstRow < n && Double.isNaN(y[firstRow])) {
+			firstRow++;
+		}
+		int lastRow = n - 1;
+		while(lastRow > firstRow && Double.isNaN(y[lastRow])) {
+			lastRow--;
+		}
+		if(firstRow == n) {
+			return new int[0];
+		}
+		// include a point either side of the visible range so lines continue off the edge
+		int from = Math.max(firstRow, ChartDownsampler.lowerBound(x, lo) - 1);
+		int to = Math.min(lastRow + 1, ChartDownsampler.lowerBound(x, Math.nextUp(hi)) + 1);
+		int[] idx;
+		if(from >= to) {
+			idx = new int[0];
+		} else if(!ChartDownsampler.isLarge(to - from, width)) {
+			idx = new int[to - from];
+			int count = 0;
+			for(int i = from; i < to; i++) {
+				if(!Double.isNaN(y[i])) {
+					idx[count++] = i;
+				}
+			}
+			idx = count == idx.length ? idx : Arrays.copyOf(idx, count);
+		} else if(scatter) {
+			idx = ChartDownsampler.grid(x, y, from, to, width, height);
+		} else {
+			idx = ChartDownsampler.minMax(x, y, from, to, width);
+		}
+		boolean addFirst = idx.length == 0 || idx[0] != firstRow;
+		boolean addLast = lastRow != firstRow && (idx.length == 0 || idx[idx.length - 1] != lastRow);
+		if(!addFirst && !addLast) {
+			return idx;
+		}
+		int[] res = new int[idx.length + (addFirst ? 1 : 0) + (addLast ? 1 : 0)];
+		int p = 0;
+		if(addFirst) {
+			res[p++] = firstRow;
+		}
+		System.arraycopy(idx, 0, res, p, idx.length);
+		if(addLast) {
+			res[res.length - 1] = lastRow;
+		}
+		return res;
+	}
+
+	/** Re-sample this dataset whenever the domain axis of the chart within the panel changes range or it's resized. */
+	void bind(final ChartPanel chartPanel) {
+		final XYPlot plot = chartPanel.getChart().getXYPlot();
+		final ValueAxis axis = plot.getDomainAxis();
+		final Runnable update = () -> {
+			Range r = axis.getRange();
+			Rectangle2D area = chartPanel.getScreenDataArea();
+			int w = area.getWidth() > 0 ? (int) area.getWidth() : ChartDownsampler.DEFAULT_WIDTH;
+			int h = area.getHeight() > 0 ? (int) area.getHeight() : ChartDownsampler.DEFAULT_HEIGHT;
+			// while auto ranging the axis covers all data, don't re-sample just because shown points moved the bounds
+			boolean all = axis.isAutoRange();
+			resample(all ? Double.NEGATIVE_INFINITY : r.getLowerBound(), all ? Double.POSITIVE_INFINITY : r.getUpperBound(), w, h);
+		};
+		axis.addChangeListener(e -> update.run());
+		chartPanel.addComponentListener(new ComponentAdapter() {
+			@Override public void componentResized(ComponentEvent e) {
+				update.run();
+			}
+		});
+	}
+
+	/** Bind every {@link DownsampledXYDataset} within the panel's chart, if it is an XY chart, to follow zooming. */
+	static void bindAll(ChartPanel chartPanel) {
+		if(chartPanel.getChart().getPlot() instanceof XYPlot) {
+			XYPlot plot = chartPanel.getChart().getXYPlot();
+			for(int i = 0; i < plot.getDatasetCount(); i++) {
+				if(plot.getDataset(i) instanceof DownsampledXYDataset) {
+					((DownsampledXYDataset) plot.getDataset(i)).bind(chartPanel);
+				}
+			}
+		}
+	}
+
+	@Override public int getSeriesCount() {
+		return keys.size();
+	}
+
+	@Override public Comparable<?> getSeriesKey(int series) {
+		return keys.get(series);
+	}
+
+	@Override public int getItemCount(int series) {
+		return shown.get(series).length;
+	}
+
+	@Override public double getXValue(int series, int item) {
+		return x[shown.get(series)[item]];
+	}
+
+	@Override public double getYValue(int series, int item) {
+		return ys.get(series)[shown.get(series)[item]];
+	}
+
+	@Override public Number getX(int series, int item) {
+		return getXValue(series, item);
+	}
+
+	@Override public Number getY(int series, int item) {
+		return getYValue(series, item);
+	}
+}
@@ -5,18 +5,35 @@ import java.awt.Component;
 import java.awt.EventQueue;
 import java.sql.ResultSet;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
 import javax.swing.JPanel;
 
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.xy.XYDataset;
+
 import com.google.common.base.Preconditions;
+import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
 
 /**
  * Decorates a viewGetter to provide an {@link UpdateableView} that works by totally regenerating
- * the whole GUI on each update.
+ * the whole GUI on each update. Charts whose datasets are all {@link DownsampledXYDataset}s can
+ * instead {@link #append(ChartResultSet, TblDelta)} new rows in place.
+ * The data and chart are built by update, the Swing components only once shown on the EDT.
  */
 class HardRefreshUpdateableView implements UpdateableView {
 
 	private final ViewGetter viewGetter;
-	private final JPanel panel = new JPanel(new BorderLayout());
+	/** Created by the first {@link #getComponent()}, only accessed on the EDT. */
+	private JPanel panel;
+	/** The latest component from the viewGetter, only accessed on the EDT. */
+	private Component view;
+	/** Creates the component for the latest update if it has not been shown yet. */
+	private final AtomicReference<Supplier<Component>> pending = new AtomicReference<>();
 	
 	public HardRefreshUpdateableView(ViewGetter viewGetter) {
 		this.viewGetter = Preconditions.checkNotNull(viewGetter);
@@ -29,27 +46,81 @@ class HardRefreshUpdateableView implements UpdateableView {
 			throw new ChartFormatException("Could not construct ResultSet.");
 		}
 		
-		Component c = viewGetter.getView(resultSet, chartResultSet);
-		
+		Supplier<Component> c = viewGetter.getView(resultSet, chartResultSet);
 		if(c!=null) {
-			final Component com = c;
-			EventQueue.invokeLater(new Runnable() {
-				
-				@Override public void run() {
-					panel.removeAll();
-					panel.add(com, BorderLayout.CENTER);
-					panel.revalidate();
-				}
-			});
+			pending.set(c);
+			EventQueue.invokeLater(this::showPending);
+		}
+	}
+	
+	/** Swap in the component for the latest update, if the panel exists. Must be called on the EDT. */
+	private void showPending() {
+		if(panel == null) {
+			return;
+		}
+		Supplier<Component> c = pending.getAndSet(null);
+		if(c != null) {
+			view = c.get();
+			panel.removeAll();
+			panel.add(view, BorderLayout.CENTER);
+			panel.revalidate();
+		}
+	}
+
+	@Override public boolean append(ChartResultSet latest, TblDelta delta) {
+		if(!(view instanceof ChartPanel) || !(((ChartPanel) view).getChart().getPlot() instanceof XYPlot) 
+				|| latest.getTimeCol() == null) {
+			return false;
+		}
+		XYPlot plot = ((ChartPanel) view).getChart().getXYPlot();
+		List<DownsampledXYDataset> datasets = new ArrayList<>();
+		for(int i = 0; i < plot.getDatasetCount(); i++) {
+			XYDataset ds = plot.getDataset(i);
+			if(ds instanceof DownsampledXYDataset) {
+				datasets.add((DownsampledXYDataset) ds);
+			} else if(ds != null) {
+				return false;
+			}
+		}
+		if(datasets.isEmpty()) {
+			return false;
 		}
+		// a column that is not shown, e.g. one without values before, needs a rebuild to be added
+		for(NumericCol nc : latest.getNumericColumns()) {
+			if(datasets.stream().noneMatch(ds -> ds.hasColumn(nc.getLabel()))) {
+				return false;
+			}
+		}
+		// check every dataset can be updated before changing any so the chart is never left half updated
+		double[] x = latest.getTimeCol().getEpochMillis();
+		List<List<double[]>> latestYs = new ArrayList<>();
+		for(DownsampledXYDataset ds : datasets) {
+			List<double[]> ys = ds.getLatestYs(x, latest, delta.getAppendedRows());
+			if(ys == null) {
+				return false;
+			}
+			latestYs.add(ys);
+		}
+		for(int i = 0; i < datasets.size(); i++) {
+			datasets.get(i).setData(x, latestYs.get(i));
+		}
+		return true;
 	}
 
 	@Override public Component getComponent() {
+		if(panel == null) {
+			panel = new JPanel(new BorderLayout());
+		}
+		showPending();
 		return panel;
 	}
 	
 	public static interface ViewGetter {
-		public Component getView(ResultSet resultSet, ChartResultSet chartResultSet) 
+		/**
+		 * Build the chart for the data, this may be off the EDT.
+		 * @return A supplier that creates the component showing the chart, it is called on the EDT.
+		 */
+		public Supplier<Component> getView(ResultSet resultSet, ChartResultSet chartResultSet) 
 				throws ChartFormatException;
 	}
 }
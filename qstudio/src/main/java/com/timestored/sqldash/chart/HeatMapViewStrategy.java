@@ -5,6 +5,7 @@ import java.sql.ResultSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import javax.swing.BorderFactory;
 import javax.swing.border.EtchedBorder;
@@ -44,15 +45,17 @@ public enum HeatMapViewStrategy implements ViewStrategy {
 		return new HardRefreshUpdateableView(new HardRefreshUpdateableView.ViewGetter() {
 
 
-			@Override public Component getView(ResultSet resultSet, ChartResultSet chartResultSet) 
+			@Override public Supplier<Component> getView(ResultSet resultSet, ChartResultSet chartResultSet) 
 					throws ChartFormatException {
 
-				JTreeMap treeMap = new JTreeMap(createTreeMapDataset(chartResultSet));
-		        treeMap.setBorder(BorderFactory.createEtchedBorder(EtchedBorder.LOWERED));
-		        treeMap.setColorProvider(new RedGreenColorProvider(treeMap));
-		        new ZoomPopupMenu(treeMap);
-		        
-				return treeMap;
+				TreeMapNode root = createTreeMapDataset(chartResultSet);
+				return () -> {
+					JTreeMap treeMap = new JTreeMap(root);
+			        treeMap.setBorder(BorderFactory.createEtchedBorder(EtchedBorder.LOWERED));
+			        treeMap.setColorProvider(new RedGreenColorProvider(treeMap));
+			        new ZoomPopupMenu(treeMap);
+					return treeMap;
+				};
 			}
 		});
 	}
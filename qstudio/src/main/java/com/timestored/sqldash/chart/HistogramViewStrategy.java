@@ -77,9 +77,11 @@ public enum HistogramViewStrategy implements ViewStrategy {
 	
 	private static class HistogramUpdateableView implements UpdateableView {
 
-		private final ChartPanel chartPanel;
+		/** Created by the first {@link #getComponent()} on the EDT. */
+		private ChartPanel chartPanel;
 		private final ChartTheme theme;
 		private final ChartAppearanceConfig appearanceConfig;
+		private final boolean showTooltips;
 		private final JFreeChart chart;
 
 		public HistogramUpdateableView(ChartTheme theme, ChartAppearanceConfig appearanceConfig) {
@@ -90,9 +92,9 @@ public enum HistogramViewStrategy implements ViewStrategy {
 			
 			String chartTitle = (appearanceConfig != null && appearanceConfig.getChartTitle() != null) 
 					? appearanceConfig.getChartTitle() : "";
-			boolean showTooltips = (appearanceConfig == null) || appearanceConfig.isTooltipEnabled();
+			showTooltips = (appearanceConfig == null) || appearanceConfig.isTooltipEnabled();
 			
-			chart = ChartFactory.createHistogram(chartTitle, 
+			JFreeChart chart = ChartFactory.createHistogram(chartTitle, 
 					null, "Frequency", null, PlotOrientation.VERTICAL, true, showTooltips, false);
 			
 			if (showTooltips) {
@@ -105,7 +107,7 @@ public enum HistogramViewStrategy implements ViewStrategy {
 			// Then apply chart-level config
 			ChartConfigApplier.applyConfig(themedChart, appearanceConfig);
 			
-			chartPanel = new ChartPanel(themedChart, false, showTooltips, true, false, true);
+			this.chart = themedChart;
 		}
 		
 		@Override public void update(ResultSet rs, ChartResultSet chartRS) throws ChartFormatException {
@@ -127,7 +129,7 @@ public enum HistogramViewStrategy implements ViewStrategy {
 				dataset.addSeries(seriesName, numCol.getDoubles(), NUMBER_BINS);
 			}
 			
-			XYPlot xyplot = ((XYPlot) chartPanel.getChart().getPlot());
+			XYPlot xyplot = ((XYPlot) chart.getPlot());
 			xyplot.setDataset(dataset);
 			
 			// Apply domain axis label from config or data
@@ -158,6 +160,9 @@ public enum HistogramViewStrategy implements ViewStrategy {
 		}
 
 		@Override public Component getComponent() {
+			if(chartPanel == null) {
+				chartPanel = new ChartPanel(chart, false, showTooltips, true, false, true);
+			}
 			return chartPanel;
 		}
 
@@ -1,9 +1,11 @@
 package com.timestored.sqldash.chart;
 
 import com.timestored.TimeStored;
+import com.timestored.babeldb.ColumnarResultSet;
 import com.timestored.babeldb.DBHelper;
 import com.timestored.kdb.KError;
 import com.timestored.misc.InfoLink;
+import com.timestored.qstudio.BackgroundExecutor;
 import com.timestored.theme.*;
 
 import java.awt.BorderLayout;
@@ -15,9 +17,14 @@ import java.lang.reflect.InvocationTargetException;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sql.RowSet;
+import javax.sql.rowset.CachedRowSet;
 import javax.swing.BorderFactory;
 import javax.swing.JEditorPane;
 import javax.swing.JLabel;
@@ -28,6 +35,7 @@ import org.jfree.util.Log;
 
 import kx.c.KException;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
 import com.google.common.base.Preconditions;
@@ -50,10 +58,39 @@ public class JdbcChartPanel extends JPanel {
 	
 	/** cache previous RS so that if chart type selected changed we can fill some data */
 	private ResultSet prevRS = null;
+	/** A cursor over prevRS that only builds of this panel move, so the callers cursor is never moved off the EDT. */
+	private ResultSet buildRS = null;
 	private Exception e = null;
 	/** contains resulting exception (if any) of latest redraw attempt. **/
-	private ChartFormatException lastChartFormatException = null;
+	private volatile ChartFormatException lastChartFormatException = null;
+	/** The chart result set of prevRS once a redraw has created it, guarded by buildLock */
 	private ChartResultSet prevCRS = null;
+	private ResultSet prevCRSsource = null;
+	
+	/** Incremented for every redraw requested so that builds for older requests can be abandoned. */
+	private final AtomicLong latestRequest = new AtomicLong();
+	/** Only one chart is built at a time as the builds read the same {@link ResultSet}. */
+	private final Object buildLock = new Object();
+	/** What is currently displayed, only changed on the EDT. */
+	private volatile Drawing shown = null;
+	
+	/** A built chart or message and what it was built from so that later results can be appended to it. */
+	@RequiredArgsConstructor private static class Drawing {
+		/** Creates the Swing component, only called on the EDT when the drawing is shown. */
+		private final Supplier<Component> component;
+		/** The chart view or null if the component is a message. */
+		private final UpdateableView view;
+		private final ResultSet rs;
+		private final ChartResultSet crs;
+		private final ViewStrategy viewStrategy;
+		private final ChartTheme theme;
+		private final ChartAppearanceConfig appearanceConfig;
+		
+		private boolean isAppendable(ResultSet latestRS, ViewStrategy vs, ChartTheme ct, ChartAppearanceConfig config) {
+			return view != null && crs != null && latestRS != null && latestRS != rs 
+					&& vs == viewStrategy && ct == theme && config == appearanceConfig;
+		}
+	}
 
 	/** Construct a chart panel using inital {@link ViewStrategy} and {@link ViewTheme} */
 	JdbcChartPanel(ViewStrategy viewCreator, ChartTheme theme) {
@@ -84,13 +121,73 @@ public class JdbcChartPanel extends JPanel {
 		}
 	}
 
+	/**
+	 * Redraw the chart for the latest result. Analysing the result and building the chart happens in the background,
+	 * only the Swing component is created and swapped in on the EDT. Builds for older requests are abandoned.
+	 */
 	private void refreshGUI() {
 		LOG.fine("JdbcChartPanel refreshGUI()");
 
-		//TODO with invokeLater all the unit test screenshots break, fix this!?
-		final ResultSet rs = prevRS;
+		final long request = latestRequest.incrementAndGet();
+		final ResultSet rs = buildRS;
 		final Exception err = e;
-		runInUIthread(() ->runn(rs,err), TEST_MODE);
+		final ViewStrategy vs = viewCreator;
+		final ChartTheme ct = theme;
+		final ChartAppearanceConfig config = appearanceConfig;
+		final boolean renderLarge = renderLargeDataSets;
+		final Drawing current = shown;
+		Runnable r = () -> redraw(request, rs, err, vs, ct, config, renderLarge, current);
+		//TODO with invokeLater all the unit test screenshots break, fix this!?
+		if(TEST_MODE || (rs != null && rs == prevRS)) {
+			runInUIthread(r, true);
+		} else {
+			BackgroundExecutor.EXECUTOR.execute(r);
+		}
+	}
+	
+	/**
+	 * Where only the data of a chart changed and the rows were only appended and/or dropped from the start,
+	 * as for a refreshing time-series query, update the current chart in place. Otherwise build a new one.
+	 */
+	private void redraw(long request, ResultSet rs, Exception err, ViewStrategy vs, 
+			ChartTheme ct, ChartAppearanceConfig config, boolean renderLarge, Drawing current) {
+		if(current != null && current.isAppendable(rs, vs, ct, config)) {
+			ChartResultSet latest;
+			synchronized (buildLock) {
+				if(request != latestRequest.get()) {
+					return;
+				}
+				latest = getChartResultSet(rs);
+			}
+			TblDelta delta = latest == null ? null : TblDelta.calculate(current.crs, latest);
+			if(delta != null) {
+				AtomicBoolean appended = new AtomicBoolean(false);
+				runInUIthread(() -> {
+					if(request == latestRequest.get() && shown == current && current.view.append(latest, delta)) {
+						shown = new Drawing(current.component, current.view, rs, latest, vs, ct, config);
+						appended.set(true);
+					}
+				}, true);
+				if(appended.get()) {
+					return;
+				}
+			}
+		}
+		Drawing d = build(request, rs, err, vs, ct, config, renderLarge);
+		if(d != null) {
+			runInUIthread(() -> show(request, d), TEST_MODE);
+		}
+	}
+	
+	/** Create and display the component if no newer request was made while building it. */
+	private void show(long request, Drawing d) {
+		if(request == latestRequest.get()) {
+			shown = d;
+			removeAll();
+			add(d.component.get());
+			revalidate();
+			repaint();
+		}
 	}
 	
 	public static void runInUIthread(Runnable r, boolean invokeAndWait) {
@@ -115,64 +212,100 @@ public class JdbcChartPanel extends JPanel {
 			 || sqlType == java.sql.Types.TINYINT;
 	}
 
-	private void runn(ResultSet rs, Exception err) {
-		Component c = null;
-		try {
-			updateableView = viewCreator.getView(theme, appearanceConfig);
-			if(rs!=null) {
-				// TODO this line threw a null pointer exception from JfreeChary DefaulHighLowDataset
-				// should i let these spiral up or show an error screen?
-				boolean isVerySafeToRender = true;
-				try {
-					int rowCount = DBHelper.getSize(rs);
-					int numColCount = 0;
-					ResultSetMetaData rsmd = prevRS.getMetaData();
-					for(int col=1; col<=rsmd.getColumnCount(); col++) {
-						if(isNumType(rsmd.getColumnType(col))) {
-							numColCount++;
+	/**
+	 * Build the chart showing the result or prepare the error message, Swing components are left for {@link #show(long, Drawing)}.
+	 * @return The drawing and what it was built from or null if a newer request made it unnecessary.
+	 */
+	private Drawing build(long request, ResultSet rs, Exception err, ViewStrategy viewCreator, 
+			ChartTheme theme, ChartAppearanceConfig appearanceConfig, boolean renderLargeDataSets) {
+		synchronized (buildLock) {
+			if(request != latestRequest.get()) {
+				return null;
+			}
+			Supplier<Component> c = null;
+			ChartFormatException cfe = null;
+			UpdateableView view = null;
+			ChartResultSet crs = null;
+			try {
+				view = viewCreator.getView(theme, appearanceConfig);
+				if(rs!=null) {
+					// TODO this line threw a null pointer exception from JfreeChary DefaulHighLowDataset
+					// should i let these spiral up or show an error screen?
+					boolean isVerySafeToRender = true;
+					try {
+						int rowCount = DBHelper.getSize(rs);
+						int numColCount = 0;
+						ResultSetMetaData rsmd = rs.getMetaData();
+						for(int col=1; col<=rsmd.getColumnCount(); col++) {
+							if(isNumType(rsmd.getColumnType(col))) {
+								numColCount++;
+							}
 						}
+						isVerySafeToRender = viewCreator.isQuickToRender(rs, rowCount, numColCount);
+					} catch (SQLException e) {
+						Log.warn("Problem assessing how safe it is to render chart:" + err);
 					}
-					isVerySafeToRender = viewCreator.isQuickToRender(rs, rowCount, numColCount);
-				} catch (SQLException e) {
-					Log.warn("Problem assessing how safe it is to render chart:" + err);
-				}
-				lastChartFormatException = null;
-				if(isVerySafeToRender || renderLargeDataSets) {
-					updateableView.update(prevRS, prevCRS);
-					c = updateableView.getComponent();
-				} else {
-        			String html = "<html>The data is large, it has many rows and/or columns."
-        					+ "<br /><b>To continue and draw the chart click the checkbox on the left hand side.</b>"
-        					+ "<br />This may take some time and consume significant memory.</html>";
-        	        c = Theme.getErrorBox("Dataset very large", Theme.getHtmlText(html));
-				}
-				
-			} else {
-				if(e instanceof KException) {
-					c = new JScrollPane(KError.getDescriptionComponent((KException)e));
-				} else if(e != null) {
-					String msg = "Error retrieving query";
-					if(e != null) {
-						msg = e.getMessage();
+					if(isVerySafeToRender || renderLargeDataSets) {
+						crs = getChartResultSet(rs);
+						if(request != latestRequest.get()) {
+							return null;
+						}
+						view.update(rs, crs);
+						c = view::getComponent;
+					} else {
+	        			String html = "<html>The data is large, it has many rows and/or columns."
+	        					+ "<br /><b>To continue and draw the chart click the checkbox on the left hand side.</b>"
+	        					+ "<br />This may take some time and consume significant memory.</html>";
+	        	        c = () -> Theme.getErrorBox("Dataset very large", Theme.getHtmlText(html));
+	        	        view = null;
 					}
-					Component errDetails = Theme.getTextArea("qryErr", msg);
-					c = new JScrollPane(Theme.getErrorBox("Query Error", errDetails));
+					
 				} else {
-					c = new JScrollPane(Theme.getTextArea("noRes", "No table returned."));
+					if(err instanceof KException) {
+						c = () -> new JScrollPane(KError.getDescriptionComponent((KException)err));
+					} else if(err != null) {
+						String msg = err.getMessage() != null ? err.getMessage() : "Error retrieving query";
+						c = () -> new JScrollPane(Theme.getErrorBox("Query Error", Theme.getTextArea("qryErr", msg)));
+					} else {
+						c = () -> new JScrollPane(Theme.getTextArea("noRes", "No table returned."));
+					}
+					view = null;
 				}
+				if(request != latestRequest.get()) {
+					return null;
+				}
+				updateableView = view;
+			} catch(ChartFormatException e) {
+				cfe = e;
+				c = () -> getChartFormatExplaination(viewCreator, e);
+				view = null;
+			} catch(Exception npe) {
+				String txt = "Problem updating view from RecordSet";
+				LOG.log(Level.SEVERE, txt, npe);
+				c = () -> getChartFormatExplaination(viewCreator, null);
+				view = null;
 			}
-		} catch(ChartFormatException cfe) {
 			lastChartFormatException = cfe;
-			c = getChartFormatExplaination(viewCreator, cfe);
-		} catch(Exception npe) {
-			String txt = "Problem updating view from RecordSet";
-			LOG.log(Level.SEVERE, txt, npe);
-			c =  getChartFormatExplaination(viewCreator, null);
+			return new Drawing(c, view, rs, crs, viewCreator, theme, appearanceConfig);
 		}
-		
-		removeAll();
-		add(c);
-		revalidate();
+	}
+
+	/** @return The chart result set for rs, reusing the previous one if it was for the same rs. Must hold buildLock. */
+	private ChartResultSet getChartResultSet(ResultSet rs) {
+		if(rs != prevCRSsource) {
+			prevCRS = null;
+			prevCRSsource = rs;
+			try {
+				prevCRS = ChartResultSet.getInstance(rs);
+			} catch (SQLException e) {
+				LOG.log(Level.INFO, "could not create chartResultSet ", e);
+			} catch (IllegalArgumentException e) {
+				LOG.log(Level.WARNING, "could not create chartResultSet ", e);
+			} catch (NullPointerException e) {
+				LOG.log(Level.WARNING, "could not create chartResultSet ", e);
+			}
+		}
+		return prevCRS;
 	}
 
 	private static Component getChartFormatExplaination(ViewStrategy viewStrategy, ChartFormatException cfe) {
@@ -207,21 +340,37 @@ public class JdbcChartPanel extends JPanel {
 	 * 	for an unknown reason.
 	 */
 	public void update(ResultSet resultSet) {
+		if(resultSet != prevRS || buildRS == null) {
+			buildRS = getOwnCursor(resultSet);
+		}
 		prevRS = resultSet;
 		e = null;
-		prevCRS = null;
-		if(resultSet != null) {
-			try {
-				prevCRS = ChartResultSet.getInstance(resultSet);
-			} catch (SQLException e) {
-				LOG.log(Level.INFO, "could not create chartResultSet ", e);
-			} catch (IllegalArgumentException e) {
-				LOG.log(Level.WARNING, "could not create chartResultSet ", e);
-			} catch (NullPointerException e) {
-				LOG.log(Level.WARNING, "could not create chartResultSet ", e);
+		refreshGUI();
+	}
+	
+	/**
+	 * @return A cursor over the same rows as rs that other users of rs do not move, taking an in-memory copy
+	 * 	if rs cannot share its data. If neither is possible rs itself, which must then only be read on the EDT.
+	 */
+	private static ResultSet getOwnCursor(ResultSet rs) {
+		if(rs == null) {
+			return null;
+		}
+		try {
+			if(rs instanceof CachedRowSet) {
+				RowSet shared = ((CachedRowSet) rs).createShared();
+				if(shared != null) {
+					return shared;
+				}
 			}
+			rs.beforeFirst();
+			ResultSet copy = ColumnarResultSet.from(rs);
+			rs.beforeFirst();
+			return copy;
+		} catch(SQLException | RuntimeException e) {
+			LOG.log(Level.WARNING, "could not copy result for chart, drawing on the EDT", e);
+			return rs;
 		}
-		refreshGUI();
 	}
 	
 
@@ -230,8 +379,8 @@ public class JdbcChartPanel extends JPanel {
 	 */
 	public void update(Exception e) {
 		prevRS = null;
+		buildRS = null;
 		this.e = Preconditions.checkNotNull(e);
-		prevCRS = null;
 		refreshGUI();
 	}
 	
@@ -39,7 +39,7 @@ public class LineChartViewStrategy  extends AbstractCategoryViewStrategy {
 	}
 
 	@Override public boolean isQuickToRender(ResultSet rs, int rowCount, int numColumnCount) {
-		return (numColumnCount*rowCount) < 10_000; // 1.5 seconds on Ryans PC
+		return true; // large results are downsampled
 	}
 
 	@Override public String getPulseName() { return "line"; }
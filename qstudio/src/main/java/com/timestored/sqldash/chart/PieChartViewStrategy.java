@@ -6,6 +6,7 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -45,7 +46,7 @@ public enum PieChartViewStrategy implements ViewStrategy {
 		return new HardRefreshUpdateableView(new HardRefreshUpdateableView.ViewGetter() {
 
 
-			@Override public Component getView(ResultSet resultSet, ChartResultSet colResultSet) 
+			@Override public Supplier<Component> getView(ResultSet resultSet, ChartResultSet colResultSet) 
 					throws ChartFormatException {
 				
 		        if(colResultSet.getNumericColumns().size() < 1) {
@@ -82,9 +83,8 @@ public enum PieChartViewStrategy implements ViewStrategy {
 					p.setLabelGenerator(null);
 				}
 				
-				ChartPanel cp = new ChartPanel(theme.apply(chart), false, true, true, false, true);
-
-				return cp;
+				JFreeChart themedChart = theme.apply(chart);
+				return () -> new ChartPanel(themedChart, false, true, true, false, true);
 			}
 		});
 		
@@ -5,6 +5,7 @@ import java.awt.Component;
 import java.sql.ResultSet;
 import java.text.NumberFormat;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -15,7 +16,6 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.data.xy.DefaultXYDataset;
 import org.jfree.data.xy.XYDataset;
 
 import com.google.common.base.Joiner;
@@ -47,7 +47,7 @@ public enum ScatterPlotViewStrategy implements ViewStrategy {
 		
 		return new HardRefreshUpdateableView(new HardRefreshUpdateableView.ViewGetter() {
 
-			@Override public Component getView(ResultSet resultSet, ChartResultSet colResultSet) 
+			@Override public Supplier<Component> getView(ResultSet resultSet, ChartResultSet colResultSet) 
 					throws ChartFormatException {
 
 		        if(colResultSet == null) {
@@ -57,9 +57,9 @@ public enum ScatterPlotViewStrategy implements ViewStrategy {
 		        final boolean isTS = colResultSet.getTimeCol() != null;
 		        XYDataset dataset = null;
 		        if(isTS) {
-					dataset = TimeseriesViewStrategy.generateTimeSeries(colResultSet);		        	
+					dataset = TimeseriesViewStrategy.generateTimeSeries(colResultSet, true);		        	
 		        } else {
-		        	dataset = createXYDataset(colResultSet, appearanceConfig);		        	
+		        	dataset = createXYDataset(colResultSet, appearanceConfig, true);		        	
 		        }
 		        
 		        String chartTitle = (appearanceConfig != null && appearanceConfig.getChartTitle() != null) 
@@ -116,7 +116,11 @@ public enum ScatterPlotViewStrategy implements ViewStrategy {
 					xyRenderer.setBaseShapesVisible(true);  // Always show markers
 				}
 				
-				return new ChartPanel(themedChart, false, showTooltips, true, false, true);
+				return () -> {
+					ChartPanel cp = new ChartPanel(themedChart, false, showTooltips, true, false, true);
+					DownsampledXYDataset.bindAll(cp);
+					return cp;
+				};
 			}
 		});
 		
@@ -128,9 +132,10 @@ public enum ScatterPlotViewStrategy implements ViewStrategy {
 	/**
 	 * First column becomes the Y-axis values, all other columns become graphs
 	 * with points ( firstCol[i], selecteedCol[i])
+	 * @param scatter true if the points will be drawn unconnected, which affects how large data is sampled.
 	 * @return the transformed data set.
 	 */
-	static XYDataset createXYDataset(ChartResultSet chartResultSet, ChartAppearanceConfig config) 
+	static XYDataset createXYDataset(ChartResultSet chartResultSet, ChartAppearanceConfig config, boolean scatter) 
 			throws ChartFormatException {
 
         List<NumericCol> numCols = chartResultSet.getNumericColumns();
@@ -138,9 +143,7 @@ public enum ScatterPlotViewStrategy implements ViewStrategy {
         	throw new ChartFormatException("There must be atleast two numeric columns.");
         }
 			
-    	// convert the RS to array of doubles
-		DefaultXYDataset dataset = new DefaultXYDataset();
-    	double[] xAxis = numCols.get(0).getDoubles();
+		DownsampledXYDataset dataset = new DownsampledXYDataset(numCols.get(0).getDoubles(), scatter);
 		for (int i=1; i < numCols.size(); i++) {
     		String sTitle = numCols.get(i).getLabel();
     		
@@ -150,7 +153,7 @@ public enum ScatterPlotViewStrategy implements ViewStrategy {
     			continue; // Skip hidden series
     		}
     		
-            dataset.addSeries(sTitle, new double[][] { xAxis, numCols.get(i).getDoubles()});
+            dataset.addSeries(sTitle, numCols.get(i).getDoubles());
 		}
     	
         return dataset;
@@ -206,7 +209,7 @@ public enum ScatterPlotViewStrategy implements ViewStrategy {
 	}
 	
 	@Override public boolean isQuickToRender(ResultSet rs, int rowCount, int columnCount) {
-		return rowCount < 41_000; // 1.5 seconds on Ryans PC
+		return true; // large results are downsampled
 	}
 
 	@Override public String getPulseName() { return "scatter"; }
@@ -6,6 +6,7 @@ import java.sql.ResultSet;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import net.jcip.annotations.Immutable;
 
@@ -18,7 +19,6 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.data.time.TimeSeriesCollection;
 import org.jfree.data.xy.XYDataset;
 import org.jfree.util.Log;
 
@@ -47,7 +47,7 @@ import com.timestored.theme.Icon;
 		
 		return new HardRefreshUpdateableView(new HardRefreshUpdateableView.ViewGetter() {
 
-			@Override public Component getView(ResultSet resultSet, ChartResultSet colResultSet) 
+			@Override public Supplier<Component> getView(ResultSet resultSet, ChartResultSet colResultSet) 
 					throws ChartFormatException {
 
 		        if(colResultSet == null) {
@@ -55,17 +55,19 @@ import com.timestored.theme.Icon;
 		        }
 
 		        XYDataset dataset = null;
-		        TimeSeriesCollection leftDataset = new TimeSeriesCollection();
-		        TimeSeriesCollection rightDataset = new TimeSeriesCollection();
+		        XYDataset leftDataset = null;
+		        XYDataset rightDataset = null;
 		        List<String> seriesNames = new ArrayList<String>();
 		        boolean isTimeSeries = false;
 		        
 		        try {
-		        	TimeseriesViewStrategy.generateTimeSeriesWithConfig(colResultSet, appearanceConfig, leftDataset, rightDataset, seriesNames);
+		        	XYDataset[] datasets = TimeseriesViewStrategy.generateTimeSeriesWithConfig(colResultSet, appearanceConfig, seriesNames, false);
+		        	leftDataset = datasets[0];
+		        	rightDataset = datasets[1];
 		        	dataset = leftDataset;
 		        	isTimeSeries = true;
 		        } catch(ChartFormatException cfe) {
-		        	dataset = ScatterPlotViewStrategy.createXYDataset(colResultSet, appearanceConfig);
+		        	dataset = ScatterPlotViewStrategy.createXYDataset(colResultSet, appearanceConfig, false);
 		        }
 		        
 		        String chartTitle = (appearanceConfig != null && appearanceConfig.getChartTitle() != null) 
@@ -181,7 +183,11 @@ import com.timestored.theme.Icon;
 					TimeseriesViewStrategy.setTimeTooltipRenderer(colResultSet, renderer);
 				}
 				
-				return new ChartPanel(themedChart, false, showTooltips, true, false, true);
+				return () -> {
+					ChartPanel cp = new ChartPanel(themedChart, false, showTooltips, true, false, true);
+					DownsampledXYDataset.bindAll(cp);
+					return cp;
+				};
 			}
 		});
 		
@@ -218,7 +224,7 @@ import com.timestored.theme.Icon;
 	}
 
 	@Override public boolean isQuickToRender(ResultSet rs, int rowCount, int columnCount) {
-		return rowCount < 211_000; // 2 seconds on Ryans PC
+		return true; // large results are downsampled
 	}
 	
 	@Override public String getPulseName() { return "timeseries"; }
@@ -16,6 +16,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Vector;
+import java.util.function.IntFunction;
 import java.util.logging.Logger;
 
 import javax.sql.rowset.serial.SerialArray;
@@ -42,11 +43,13 @@ import org.jdesktop.swingx.decorator.Highlighter;
 import org.jdesktop.swingx.renderer.DefaultTableRenderer;
 import org.jdesktop.swingx.renderer.StringValue;
 import org.jdesktop.swingx.renderer.StringValues;
+import org.jdesktop.swingx.table.ColumnFactory;
 import org.jdesktop.swingx.table.TableColumnExt;
 
 import com.timestored.StringUtils;
 import com.timestored.babeldb.DBHelper;
 import com.timestored.babeldb.DBHelper.ColumnInfo;
+import com.timestored.babeldb.SimpleResultSet;
 import com.timestored.misc.HtmlUtils;
 import com.timestored.qstudio.QStudioFrame;
 import com.timestored.qstudio.kdb.DataComparator;
@@ -71,15 +74,21 @@ public class TableFactory {
 	/** Once a column is over this width, restrict it to cutoff some text **/
 	private static final int MAX_COL_WIDTH = 700;	
 
+	/** Column widths are found by measuring at most this many rows spread evenly through the table. */
+	private static final int PACK_SAMPLE_ROWS = 1000;
+
 	private static final Comparator MANY_COMPARATOR = new DataComparator();
 
 	public static JScrollPane getTable(final TableModel tableModel, ColumnInfo[] columnInfos, boolean negativeShownRed) {
 		final JXTable table = Theme.getStripedTable(tableModel);
+		table.setColumnFactory(new SampledColumnFactory());
+		ColumnarRowSorter columnarRowSorter = null;
+		if(tableModel instanceof ColumnarTableModel) {
+			columnarRowSorter = new ColumnarRowSorter((ColumnarTableModel) tableModel);
+			table.setRowSorter(columnarRowSorter);
+		}
 		table.setCellSelectionEnabled(true);
-		int keyColCount = 0;
-		if(tableModel instanceof EnrichedTableModel) {
-			keyColCount = ((EnrichedTableModel) tableModel).getKeyedColumnCount(); 
-		}		
+		int keyColCount = getKeyedColumnCount(tableModel);
 		
 		for(int i=0; i<keyColCount; i++) {
 			table.getColumnExt(i).setHighlighters(KEY_COL_HIGHLIGHTER );
@@ -116,6 +125,9 @@ public class TableFactory {
 
 		
 		SaveTableMouseAdapter saveTableMouseAdapter = setPresentation(table, negativeShownRed);
+		if(columnarRowSorter != null) {
+			saveTableMouseAdapter.setRowTextFilter(columnarRowSorter::setFilterText);
+		}
 		for(int ci=0; ci<table.getColumnCount(); ci++) {
 			TableColumnExt tce = table.getColumnExt(ci);
 			if(columnInfos != null && ci < columnInfos.length) {
@@ -154,6 +166,7 @@ public class TableFactory {
 			@Override public Class<?> getColumnClass(int columnIndex) {return Number.class;}
 		};
 		JXTable rowTable = new JXTable(rowTableModel);
+		rowTable.setColumnFactory(new SampledColumnFactory());
 		rowTable.getColumnExt(0).setComparator(MANY_COMPARATOR);
 		rowTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
 		rowTable.getRowSorter().addRowSorterListener(new RowSorterListener() {
@@ -302,18 +315,16 @@ public class TableFactory {
 			            TableModel model = table.getModel();
 			            Object val = model.getValueAt(modelRow, modelCol);
 			            System.out.println(val);
-			            if(model instanceof EnrichedTableModel) {
-			            	ExtendedResultSet nestedRS = ((EnrichedTableModel)model).getNestedResultSetAt(modelRow, modelCol);
-							if(nestedRS != null) {
-			            		try {
-									Component nestedTable = getTable(nestedRS, Integer.MAX_VALUE, negativeShownRed);
-									String title = nestedRS.getName().length() == 0 ? "nested" : nestedRS.getName();
-						            Window w = SwingUtilities.getWindowAncestor(table);
-									QStudioFrame.showPopup(w, nestedTable, title, Theme.CIcon.TABLE_ROW_DELETE.get16().getImage());
-								} catch (SQLException e) {
-									// TODO Auto-generated catch block
-									e.printStackTrace();
-								}
+			            ExtendedResultSet nestedRS = getNestedResultSetAt(model, modelRow, modelCol);
+			            if(nestedRS != null) {
+			            	try {
+			            		Component nestedTable = getTable(nestedRS, Integer.MAX_VALUE, negativeShownRed);
+			            		String title = nestedRS.getName().length() == 0 ? "nested" : nestedRS.getName();
+			            		Window w = SwingUtilities.getWindowAncestor(table);
+			            		QStudioFrame.showPopup(w, nestedTable, title, Theme.CIcon.TABLE_ROW_DELETE.get16().getImage());
+			            	} catch (SQLException e) {
+			            		// TODO Auto-generated catch block
+			            		e.printStackTrace();
 			            	}
 			            }
 			            // your valueChanged overridden method
@@ -396,8 +407,16 @@ public class TableFactory {
 	}
 	
 
-	public static DefaultTableModel buildTableModel(ResultSet rs, int maxRowsShown) throws SQLException {
+	/**
+	 * @return A model of the ResultSet, reading cells directly from it where it is already held in memory as columns,
+	 * 	otherwise a copy of at most maxRowsShown rows.
+	 */
+	public static TableModel buildTableModel(ResultSet rs, int maxRowsShown) throws SQLException {
 
+		TableModel columnarModel = ColumnarTableModel.of(rs);
+		if(columnarModel != null) {
+			return columnarModel;
+		}
 	    ResultSetMetaData metaData = rs.getMetaData();
 
 	    // names of columns
@@ -476,13 +495,126 @@ public class TableFactory {
 
 	}
 	
+	/**
+	 * Reads cells on demand from a result already held in memory as column arrays rather than copying every row,
+	 * so that results of millions of rows can be scrolled in full without doubling their memory.
+	 */
+	public static class ColumnarTableModel extends AbstractTableModel {
+		private static final long serialVersionUID = 1L;
+
+		private interface CellReader {
+			Object get(int row, int column) throws SQLException;
+		}
+
+		private final String[] columnNames;
+		private final int rowCount;
+		private final transient CellReader cellReader;
+		private final transient IntFunction<Object> columnArrays;
+		private final transient ExtendedResultSet rs;
+		@Getter private final int keyedColumnCount;
+
+		private ColumnarTableModel(ResultSet rs, int rowCount, CellReader cellReader, IntFunction<Object> columnArrays) throws SQLException {
+			ResultSetMetaData metaData = rs.getMetaData();
+			this.columnNames = new String[metaData.getColumnCount()];
+			for(int c = 0; c < columnNames.length; c++) {
+				columnNames[c] = metaData.getColumnName(c + 1);
+			}
+			this.rowCount = rowCount;
+			this.cellReader = cellReader;
+			this.columnArrays = columnArrays;
+			this.rs = rs instanceof ExtendedResultSet ? (ExtendedResultSet) rs : null;
+			this.keyedColumnCount = this.rs == null ? 0 : this.rs.getKeyedColumnCount();
+		}
+
+		/** @return A model reading directly from rs if it allows random access to all rows, otherwise null. */
+		public static ColumnarTableModel of(ResultSet rs) throws SQLException {
+			if(rs instanceof SimpleResultSet) {
+				SimpleResultSet srs = (SimpleResultSet) rs;
+				return new ColumnarTableModel(rs, srs.size(), srs::getObjectAt, srs::getColumnArray);
+			} else if(rs instanceof ExtendedResultSet && ((ExtendedResultSet) rs).getRowCount() >= 0) {
+				ExtendedResultSet ers = (ExtendedResultSet) rs;
+				return new ColumnarTableModel(rs, ers.getRowCount(), ers::getObjectAt, ers::getColumnArray);
+			}
+			return null;
+		}
+
+		@Override public int getRowCount() { return rowCount; }
+		@Override public int getColumnCount() { return columnNames.length; }
+		@Override public String getColumnName(int column) { return columnNames[column]; }
+
+		@Override public Object getValueAt(int rowIndex, int columnIndex) {
+			try {
+				return cellReader.get(rowIndex, columnIndex);
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public ExtendedResultSet getNestedResultSetAt(int modelRow, int modelCol) {
+			return rs==null ? null : rs.getNestedResultSetAt(modelRow,modelCol);
+		}
+
+		/**
+		 * @return The array holding all values of the column, e.g. long[] or a kdb list, if it can be read directly, otherwise null.
+		 * 	It must not be modified.
+		 */
+		public Object getColumnArray(int column) {
+			return columnArrays.apply(column);
+		}
+	}
+
+	private static int getKeyedColumnCount(TableModel model) {
+		if(model instanceof EnrichedTableModel) {
+			return ((EnrichedTableModel) model).getKeyedColumnCount();
+		} else if(model instanceof ColumnarTableModel) {
+			return ((ColumnarTableModel) model).getKeyedColumnCount();
+		}
+		return 0;
+	}
+
+	/** @return The nested table within a cell of a kdb result that can be dived into, otherwise null. */
+	public static ExtendedResultSet getNestedResultSetAt(TableModel model, int modelRow, int modelCol) {
+		if(model instanceof EnrichedTableModel) {
+			return ((EnrichedTableModel) model).getNestedResultSetAt(modelRow, modelCol);
+		} else if(model instanceof ColumnarTableModel) {
+			return ((ColumnarTableModel) model).getNestedResultSetAt(modelRow, modelCol);
+		}
+		return null;
+	}
+
+	/**
+	 * Packs columns to fit a sample of rows spread through the table rather than every row,
+	 * otherwise packing a table of millions of rows renders every cell.
+	 */
+	private static class SampledColumnFactory extends ColumnFactory {
+		@Override public void packColumn(JXTable table, TableColumnExt columnExt, int margin, int max) {
+			if(!columnExt.isVisible()) {
+				throw new IllegalStateException("column must be visible to pack");
+			}
+			int column = table.convertColumnIndexToView(columnExt.getModelIndex());
+			int width = calcHeaderWidth(table, columnExt);
+			TableCellRenderer renderer = getCellRenderer(table, columnExt);
+			int rows = getRowCount(table);
+			int step = Math.max(1, rows / PACK_SAMPLE_ROWS);
+			for(int r = 0; r < rows; r += step) {
+				Component comp = table.prepareRenderer(renderer, r, column);
+				width = Math.max(width, comp.getPreferredSize().width);
+			}
+			width += 2 * (margin < 0 ? getDefaultPackMargin() : margin);
+			if(max != -1 && width > max) {
+				width = max;
+			}
+			columnExt.setPreferredWidth(width);
+		}
+	}
+	
 	public static Component getTable(ResultSet rs, int maxRowsShown, boolean negativeShownRed) throws SQLException {
 		if(rs != null) {
-			DefaultTableModel tableModel = buildTableModel(rs, maxRowsShown);
+			TableModel tableModel = buildTableModel(rs, maxRowsShown);
 			ColumnInfo[] columnInfos = DBHelper.getColumnInfos(rs);
 			JScrollPane scrollPane = getTable(tableModel, columnInfos, negativeShownRed);
 
-			if(DBHelper.getSize(rs) > maxRowsShown) {
+			if(!(tableModel instanceof ColumnarTableModel) && DBHelper.getSize(rs) > maxRowsShown) {
 				Box b = Box.createVerticalBox();
 				b.add(new JLabel("<html><b>Warning: some rows not shown " +
 						"as over max display limit: " + maxRowsShown + "</b></html>"));
@@ -0,0 +1,98 @@
+package com.timestored.sqldash.chart;
+
+import java.util.List;
+
+import com.timestored.sqldash.chart.ChartResultSet.NumericCol;
+import com.timestored.sqldash.chart.ChartResultSet.TimeCol;
+
+import lombok.Data;
+
+/**
+ * The difference between two consecutive results of a regularly refreshed time-series query,
+ * which usually only has rows appended at the end and, if the query covers a moving window, old rows dropped from the start.
+ * e.g. <pre>
+ * previous [RRR AAAAAAABBBBBB]
+ * latest       [AAAAAAABBBBBB ZZZZ]  = 3 dropped head rows, 4 appended rows
+ * </pre>
+ */
+@Data class TblDelta {
+
+	private final int droppedHeadRows;
+	private final int appendedRows;
+
+	/** @return true if latest is the same as the previous result. */
+	boolean isUnchanged() {
+		return droppedHeadRows == 0 && appendedRows == 0;
+	}
+
+	/**
+	 * Find the rows of previous still within latest using the time column as the key.
+	 * The time and numeric columns of those rows must be identical and in ascending time order for the
+	 * delta to be found, other columns are not compared.
+	 * @return The delta or null if latest is not previous with rows only dropped from the start and appended,
+	 * 	e.g. the columns differ or history was changed.
+	 */
+	static TblDelta calculate(ChartResultSet previous, ChartResultSet latest) {
+		TimeCol prevTC = previous.getTimeCol();
+		TimeCol latestTC = latest.getTimeCol();
+		if(prevTC == null || latestTC == null || !prevTC.getLabel().equals(latestTC.getLabel())) {
+			return null;
+		}
+		List<NumericCol> prevNCs = previous.getNumericColumns();
+		List<NumericCol> latestNCs = latest.getNumericColumns();
+		if(prevNCs.size() != latestNCs.size()) {
+			return null;
+		}
+		for(int i = 0; i < prevNCs.size(); i++) {
+			if(!prevNCs.get(i).getLabel().equals(latestNCs.get(i).getLabel())) {
+				return null;
+			}
+		}
+
+		double[] prevKeys;
+		double[] latestKeys;
+		try {
+			prevKeys = prevTC.getEpochMillis();
+			latestKeys = latestTC.getEpochMillis();
+		} catch(IllegalArgumentException e) {
+			return null;
+		}
+		if(latestKeys.length == 0) {
+			return null;
+		}
+		// binary search for the first previous row still present, keys must be ascending for this to be valid
+		int dropped = ChartDownsampler.lowerBound(prevKeys, latestKeys[0]);
+		int overlap = prevKeys.length - dropped;
+		if(overlap > latestKeys.length || (overlap == 0 && prevKeys.length > 0)) {
+			return null;
+		}
+		if(!isAscending(prevKeys, dropped) || !rangeEquals(prevKeys, dropped, latestKeys, overlap)) {
+			return null;
+		}
+		for(int i = 0; i < prevNCs.size(); i++) {
+			if(!rangeEquals(prevNCs.get(i).getDoubles(), dropped, latestNCs.get(i).getDoubles(), overlap)) {
+				return null;
+			}
+		}
+		return new TblDelta(dropped, latestKeys.length - overlap);
+	}
+
+	private static boolean isAscending(double[] a, int from) {
+		for(int i = from + 1; i < a.length; i++) {
+			if(!(a[i - 1] <= a[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return true if a from aFrom and the start of b are bitwise equal for length values, so NaN equals NaN. */
+	private static boolean rangeEquals(double[] a, int aFrom, double[] b, int length) {
+		for(int i = 0; i < length; i++) {
+			if(Double.doubleToLongBits(a[aFrom + i]) != Double.doubleToLongBits(b[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
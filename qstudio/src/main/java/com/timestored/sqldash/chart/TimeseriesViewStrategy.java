@@ -13,6 +13,7 @@ import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -22,9 +23,7 @@ import org.jfree.chart.labels.StandardXYToolTipGenerator;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.data.time.RegularTimePeriod;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
+import org.jfree.data.xy.XYDataset;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
@@ -60,14 +59,13 @@ public enum TimeseriesViewStrategy implements ViewStrategy {
 
 		return new HardRefreshUpdateableView(new HardRefreshUpdateableView.ViewGetter() {
 
-			@Override public Component getView(ResultSet rs, ChartResultSet colResultSet) 
+			@Override public Supplier<Component> getView(ResultSet rs, ChartResultSet colResultSet) 
 					throws ChartFormatException {
 
-				TimeSeriesCollection leftDataset = new TimeSeriesCollection();
-				TimeSeriesCollection rightDataset = new TimeSeriesCollection();
 				List<String> seriesNames = new ArrayList<String>();
-				
-				generateTimeSeriesWithConfig(colResultSet, appearanceConfig, leftDataset, rightDataset, seriesNames);
+				XYDataset[] datasets = generateTimeSeriesWithConfig(colResultSet, appearanceConfig, seriesNames, false);
+				XYDataset leftDataset = datasets[0];
+				XYDataset rightDataset = datasets[1];
 				
 				String chartTitle = (appearanceConfig != null && appearanceConfig.getChartTitle() != null) 
 						? appearanceConfig.getChartTitle() : "";
@@ -165,12 +163,15 @@ public enum TimeseriesViewStrategy implements ViewStrategy {
 				// Apply all chart-level config settings (background, gridlines, legend, etc.)
 				ChartConfigApplier.applyConfig(themedChart, appearanceConfig);
 				
-				ChartPanel cp = new ChartPanel(themedChart, false, showTooltips, true, false, true);
 				if (showTooltips) {
 					setTimeTooltipRenderer(colResultSet, themedLeftRenderer);
 				}
 				
-				return cp;
+				return () -> {
+					ChartPanel cp = new ChartPanel(themedChart, false, showTooltips, true, false, true);
+					DownsampledXYDataset.bindAll(cp);
+					return cp;
+				};
 			}
 				
 		});
@@ -194,24 +195,21 @@ public enum TimeseriesViewStrategy implements ViewStrategy {
 		}
 	}
 	
-	static TimeSeriesCollection generateTimeSeries(ChartResultSet colResultSet) throws ChartFormatException {
-		TimeSeriesCollection leftDataset = new TimeSeriesCollection();
-		TimeSeriesCollection rightDataset = new TimeSeriesCollection();
-		List<String> seriesNames = new ArrayList<String>();
-		generateTimeSeriesWithConfig(colResultSet, null, leftDataset, rightDataset, seriesNames);
-		return leftDataset;
+	static XYDataset generateTimeSeries(ChartResultSet colResultSet, boolean scatter) throws ChartFormatException {
+		return generateTimeSeriesWithConfig(colResultSet, null, new ArrayList<String>(), scatter)[0];
 	}
 	
 	/**
 	 * Generate time series data and split into left/right datasets based on configuration.
+	 * The datasets share the arrays of the result set and only expose as many points as can be seen.
 	 * @param colResultSet The chart result set
 	 * @param config Optional appearance configuration
-	 * @param leftDataset Dataset for left axis (will be populated)
-	 * @param rightDataset Dataset for right axis (will be populated)
 	 * @param seriesNames List to be populated with series names in order
+	 * @param scatter true if the points will be drawn unconnected, which affects how large data is sampled.
+	 * @return The datasets for the left and right axis.
 	 */
-	static void generateTimeSeriesWithConfig(ChartResultSet colResultSet, ChartAppearanceConfig config, 
-			TimeSeriesCollection leftDataset, TimeSeriesCollection rightDataset, List<String> seriesNames) throws ChartFormatException {
+	static XYDataset[] generateTimeSeriesWithConfig(ChartResultSet colResultSet, ChartAppearanceConfig config, 
+			List<String> seriesNames, boolean scatter) throws ChartFormatException {
 
 		if(colResultSet==null) {
 			throw new ChartFormatException("Could not create chart result set.");
@@ -222,44 +220,37 @@ public enum TimeseriesViewStrategy implements ViewStrategy {
 			throw new ChartFormatException("No Time Column Found.");
 		}
 			
-		// time series chart
-		if(timeCol != null) {
-			RegularTimePeriod[] timePeriods = null;
-			try {
-				timePeriods = timeCol.getRegularTimePeriods();
-			} catch(IllegalArgumentException iae) {
-				throw new ChartFormatException(iae.toString());
+		double[] x = null;
+		try {
+			x = timeCol.getEpochMillis();
+		} catch(IllegalArgumentException iae) {
+			throw new ChartFormatException(iae.toString());
+		}
+		
+		DownsampledXYDataset leftDataset = new DownsampledXYDataset(x, scatter);
+		DownsampledXYDataset rightDataset = new DownsampledXYDataset(x, scatter);
+    	// create time series for each column
+		for(NumericCol nc : colResultSet.getNumericColumns()) {
+			String seriesName = nc.getLabel();
+			
+    		// Check if this series should be visible
+			DownsampledXYDataset ds = isRightAxis(config, seriesName) ? rightDataset : leftDataset;
+			if(config == null || config.isSeriesVisible(seriesName)) {
+				ds.addSeries(seriesName, nc.getDoubles());
+				if(ds.getItemCount(ds.getSeriesCount() - 1) > 0) {
+					seriesNames.add(seriesName);
+				} else {
+					ds.removeLastSeries();
+				}
+			} else {
+				ds.addHiddenSeries(seriesName);
 			}
-	    	// create time series for each column
-	    	for(NumericCol nc : colResultSet.getNumericColumns()) {
-	    		String seriesName = nc.getLabel();
-	    		
-	    		// Check if this series should be visible
-	    		boolean isVisible = (config == null) || config.isSeriesVisible(seriesName);
-	    		if(!isVisible) {
-	    			continue; // Skip hidden series
-	    		}
-	    		
-    	    	TimeSeries tSeries = new TimeSeries(seriesName);
-    	    	int row = 0;
-		        for(double d : nc.getDoubles()) {
-		        	if(!Double.isNaN(d)) {
-		        		tSeries.addOrUpdate(timePeriods[row], d);
-		        	}
-		        	row++;
-		        }
-	    		if(!tSeries.isEmpty()) {
-	    			seriesNames.add(seriesName);
-	    			// Check if this series should go on the right axis
-	    			AxisPosition axisPos = (config != null) ? config.getSeriesAxisPosition(seriesName) : AxisPosition.LEFT;
-	    			if(axisPos == AxisPosition.RIGHT) {
-	    				rightDataset.addSeries(tSeries);
-	    			} else {
-	    				leftDataset.addSeries(tSeries);
-	    			}
-	    		}
-	    	}
 		}
+		return new XYDataset[] { leftDataset, rightDataset };
+	}
+	
+	private static boolean isRightAxis(ChartAppearanceConfig config, String seriesName) {
+		return config != null && config.getSeriesAxisPosition(seriesName) == AxisPosition.RIGHT;
 	}
 	
 	public static SimpleDateFormat getDateFormat(int timeType) {
@@ -317,7 +308,7 @@ public enum TimeseriesViewStrategy implements ViewStrategy {
 	}
 	
 	@Override public boolean isQuickToRender(ResultSet rs, int rowCount, int numColumnCount) {
-		return rowCount < 211_000; // 2 seconds on Ryans PC
+		return true; // large results are downsampled
 	}
 	@Override public String getPulseName() { return "timeseries"; }
 }
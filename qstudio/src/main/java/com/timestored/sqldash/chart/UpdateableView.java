@@ -10,7 +10,8 @@ interface UpdateableView {
 	
 	/**
 	 * Update the view with new data, in some cases this means regenerating for just new data
-	 * in other cases the new RS data is just appended.
+	 * in other cases the new RS data is just appended. May be called off the EDT so only the data
+	 * and chart are changed, Swing components are left to {@link #getComponent()}.
 	 * @param rs The raw {@link ResultSet} as retrieved from database.
 	 * @param chartResultSet Where possible a more chart oriented {@link ResultSet} that many
 	 * 	{@link ViewStrategy}'s need. Generated higher level to save regerating each time.
@@ -18,5 +19,17 @@ interface UpdateableView {
 	 */
 	public void update(ResultSet rs, ChartResultSet chartResultSet) throws ChartFormatException;
 	
+	/**
+	 * Show the latest data by changing the existing chart in place rather than rebuilding it,
+	 * only possible for some views. Must be called on the EDT.
+	 * @param latest The new data, equal to that last shown other than the rows described by delta.
+	 * @return true if the view now shows latest, false if it was not possible and {@link #update(ResultSet, ChartResultSet)}
+	 * 	should be used instead.
+	 */
+	public default boolean append(ChartResultSet latest, TblDelta delta) {
+		return false;
+	}
+	
+	/** @return The component showing the latest update, created when first requested. Must be called on the EDT. */
 	public Component getComponent();
 }
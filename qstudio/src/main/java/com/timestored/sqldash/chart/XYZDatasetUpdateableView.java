@@ -5,6 +5,7 @@ import java.sql.ResultSet;
 import java.util.List;
 
 import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.NumberAxis;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.data.general.Dataset;
@@ -24,12 +25,14 @@ class XYZDatasetUpdateableView implements UpdateableView {
 	// TODO convert this to tagged rows, where we can group into colours, have individual lables
 	// But this is too much time right now.
 	
-	private final ChartPanel chartPanel;
+	private final JFreeChart chart;
 	private final DefaultXYZDataset dataset;
+	/** Created by the first {@link #getComponent()} on the EDT. */
+	private ChartPanel chartPanel;
 
-	public XYZDatasetUpdateableView(ChartPanel chartPanel, DefaultXYZDataset dataset) {
+	public XYZDatasetUpdateableView(JFreeChart chart, DefaultXYZDataset dataset) {
 		this.dataset = dataset;
-		this.chartPanel = chartPanel;
+		this.chart = chart;
 	}
 	
 	@Override public void update(ResultSet rs, ChartResultSet chartResultSet) 
@@ -48,7 +51,7 @@ class XYZDatasetUpdateableView implements UpdateableView {
 		/*
 		 * This code was designed for bubble chart, could be specific to just it 
 		 */
-		XYPlot xyplot = chartPanel.getChart().getXYPlot();
+		XYPlot xyplot = chart.getXYPlot();
 		if(xyplot != null) {
 			// we always want to show origin
 			double minY = 0;
@@ -87,6 +90,9 @@ class XYZDatasetUpdateableView implements UpdateableView {
 	}
 
 	@Override public Component getComponent() {
+		if(chartPanel == null) {
+			chartPanel = new ChartPanel(chart);
+		}
 		return chartPanel;
 	}
 	
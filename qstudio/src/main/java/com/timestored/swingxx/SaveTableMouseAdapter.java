@@ -1,5 +1,6 @@
 package com.timestored.swingxx;
 
+import java.awt.Component;
 import java.awt.Desktop;
 import java.awt.Toolkit;
 import java.awt.Window;
@@ -13,17 +14,22 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.AbstractAction;
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
 import javax.swing.TransferHandler;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import org.jdesktop.swingx.JXTable;
 import org.jdesktop.swingx.renderer.StringValue;
@@ -34,6 +40,8 @@ import com.timestored.sqldash.chart.TableFactory;
 import com.timestored.sqldash.chart.TableFactory.TransposedTableModel;
 import com.timestored.theme.Theme;
 
+import lombok.Setter;
+
 
 /**
  * Mouse adapter that provides a right click menu for a table that allows saving as various formats.
@@ -50,6 +58,10 @@ public class SaveTableMouseAdapter extends MouseAdapter {
 	private final ImageIcon csvIcon;
 	private final boolean negativeShownRed;
 	private final ColumnFormatManager formatManager;
+	/** When set the menu offers to show only rows containing some text, it is passed the text as each key is typed. */
+	@Setter private Consumer<String> rowTextFilter;
+	private final JTextField rowFilterField = new JTextField(20);
+	private final JPopupMenu rowFilterPopup = new JPopupMenu();
 
 		
 	/**
@@ -61,6 +73,14 @@ public class SaveTableMouseAdapter extends MouseAdapter {
 		this.csvIcon = csvIcon;
 		this.negativeShownRed = negativeShownRed;
 		this.formatManager = new ColumnFormatManager(table, negativeShownRed);
+		rowFilterField.getDocument().addDocumentListener(new DocumentListener() {
+			@Override public void insertUpdate(DocumentEvent e) { filterRows(); }
+			@Override public void removeUpdate(DocumentEvent e) { filterRows(); }
+			@Override public void changedUpdate(DocumentEvent e) { filterRows(); }
+		});
+		rowFilterField.addActionListener(ae -> rowFilterPopup.setVisible(false));
+		rowFilterPopup.add(new JLabel(" Show rows containing: "));
+		rowFilterPopup.add(rowFilterField);
 
 		// override so that copied contents are the converted presentation values
 		String property = stringValue!= null ? stringValue.toString() : null;
@@ -97,6 +117,11 @@ public class SaveTableMouseAdapter extends MouseAdapter {
 			menu.add(formatManager.buildFlatMenu(colName, type));
 			
 			menu.addSeparator();
+			if(rowTextFilter != null) {
+				menu.add(new AAction("Filter Rows...", Theme.CIcon.EDIT_FIND.get16(), ae -> {
+					showRowFilter(e.getComponent(), e.getX(), e.getY());
+				}));
+			}
 			ImageIcon icon = Theme.CIcon.TABLE_PIVOT.get16();
 			menu.add(new AAction("Transpose Row(s)", icon, ae -> {
 				int[] rows = table.getSelectedRows();
@@ -131,6 +156,19 @@ public class SaveTableMouseAdapter extends MouseAdapter {
 		}
 		super.mouseReleased(e);
 	}
+
+	private void filterRows() {
+		if(rowTextFilter != null) {
+			rowTextFilter.accept(rowFilterField.getText());
+		}
+	}
+
+	/** Show a field where rows are filtered as the user types, the filter stays applied after it closes. */
+	private void showRowFilter(Component invoker, int x, int y) {
+		rowFilterPopup.show(invoker, x, y);
+		rowFilterField.selectAll();
+		rowFilterField.requestFocusInWindow();
+	}
 	
 		
 	/** Allow saving table or selected cols/rows as csv */
@@ -48,7 +48,6 @@ import com.timestored.babeldb.DBHelper;
 import com.timestored.misc.HtmlUtils;
 import com.timestored.qstudio.kdb.KdbHelper;
 import com.timestored.sqldash.chart.TableFactory;
-import com.timestored.sqldash.chart.TableFactory.EnrichedTableModel;
 
 import kx.c.Flip;
 import kx.jdbc.ExtendedResultSet;
@@ -267,16 +266,13 @@ public class Theme {
 	                	 String vs = value.toString();
 	                	 String s = null;
 
-	                	 if(model instanceof EnrichedTableModel) {
-							 EnrichedTableModel etm = (EnrichedTableModel) model;
-							 ExtendedResultSet rs = etm.getNestedResultSetAt(modelRow, modelCol);
-							 if(rs != null) {
-								 try {
-									 s = DBHelper.toString(rs, false);
-									 s = "Double-click to dive into:\n" + s;
-								 } catch (SQLException e1) {}
-                		 	}
-	                	 } 
+	                	 ExtendedResultSet rs = TableFactory.getNestedResultSetAt(model, modelRow, modelCol);
+	                	 if(rs != null) {
+	                		 try {
+	                			 s = DBHelper.toString(rs, false);
+	                			 s = "Double-click to dive into:\n" + s;
+	                		 } catch (SQLException e1) {}
+	                	 }
 
 	                	 if(s == null && vs.length() > 100) {
 	                		 try {
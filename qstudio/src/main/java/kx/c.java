@@ -15,10 +15,14 @@ package kx;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Array;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.time.LocalDate;
@@ -30,8 +34,12 @@ import java.time.ZoneOffset;
 import java.text.DecimalFormat;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Queue;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
@@ -137,6 +145,14 @@ public class c implements AutoCloseable {
    * greater than 2000 bytes and connection is not localhost)
    */
   boolean zip;
+  /**
+   * Interns decoded symbols so that repeated symbols share one String, null when interning is disabled.
+   */
+  private SymbolCache symbolCache=new SymbolCache(SymbolCache.DEFAULT_SLOTS);
+  /**
+   * Whether temporal vectors are deserialized to {@link TemporalVector} rather than object arrays.
+   */
+  private boolean primitiveTemporals;
 public String host;
 public int port;
 
@@ -175,6 +191,24 @@ private static char[][] toChars(final String[] monadics) {
   public void zip(boolean b){
     zip=b;
   }
+  /**
+   * Sets whether decoded symbols are interned through a bounded per-connection table. A sym column of millions of
+   * rows usually holds few distinct values, interning means each distinct value is allocated once rather than per row.
+   * @param b true to intern symbols. Default is true.
+   */
+  public void setInternSymbols(boolean b){
+    symbolCache=b?new SymbolCache(SymbolCache.DEFAULT_SLOTS):null;
+  }
+  /**
+   * Sets whether temporal vectors (types 12-19) are deserialized as {@link TemporalVector}s holding primitives
+   * rather than as arrays of Instant, LocalDate etc. A 20M row timestamp column then costs 160MB of longs rather
+   * than 20M Instant objects. Only enable when all consumers of the results understand {@link TemporalVector},
+   * {@link #n(Object)}, {@link #at(Object, int)} and {@link #t(Object)} do.
+   * @param b true to decode to primitives. Default is false.
+   */
+  public void setPrimitiveTemporals(boolean b){
+    primitiveTemporals=b;
+  }
   /**
    * Prepare socket for kdb+ ipc comms
    * @param x socket to setup
@@ -490,6 +524,72 @@ private static char[][] toChars(final String[] monadics) {
       return (int)(j^(j>>>32));
     }
   }
+  /**
+   * {@code TemporalVector} holds a kdb+ temporal vector (types 12-19) in its wire form, one primitive per element
+   * rather than one object. Returned from deserialization when {@link #setPrimitiveTemporals(boolean)} is enabled.
+   * Elements are only boxed, to the same classes an object array would hold, when {@link #get(int)} is called.
+   */
+  public static final class TemporalVector{
+    /** kdb+ type number, 12 to 19. */
+    public final int type;
+    /** Nanoseconds since 2000 for timestamps (12) and nanoseconds for timespans (16), otherwise null. */
+    public final long[] j;
+    /** Months since 2000 (13), days since 2000 (14), minutes (17), seconds (18) or milliseconds (19), otherwise null. */
+    public final int[] i;
+    /** Days since 2000 for datetimes (15), otherwise null. */
+    public final double[] f;
+    TemporalVector(int type,long[] j,int[] i,double[] f){
+      this.type=type;
+      this.j=j;
+      this.i=i;
+      this.f=f;
+    }
+    /** @return Number of elements. */
+    public int length(){
+      return j!=null?j.length:i!=null?i.length:f.length;
+    }
+    /** @return true if the element at idx is the kdb+ null for this type. */
+    public boolean isNull(int idx){
+      return j!=null?j[idx]==nj:i!=null?i[idx]==ni:Double.isNaN(f[idx]);
+    }
+    /** @return The element at idx boxed as Instant, Month, LocalDate, LocalDateTime, Timespan, Minute, Second or LocalTime. */
+    public Object get(int idx){
+      switch(type){
+        case 12: return toInstant(j[idx]);
+        case 13: return new Month(i[idx]);
+        case 14: return toLocalDate(i[idx]);
+        case 15: return toLocalDateTime(f[idx]);
+        case 16: return new Timespan(j[idx]);
+        case 17: return new Minute(i[idx]);
+        case 18: return new Second(i[idx]);
+        default: return toLocalTime(i[idx]);
+      }
+    }
+    /**
+     * @return Milliseconds since 1970 for timestamp, month, date and datetime elements,
+     * milliseconds since midnight for timespan, minute, second and time elements.
+     */
+    public long getMillis(int idx){
+      switch(type){
+        case 12: return MILLS_BETWEEN_1970_2000+Math.floorDiv(j[idx],1000000L);
+        case 13: return LocalDate.of(2000,1,1).plusMonths(i[idx]).toEpochDay()*MILLS_IN_DAY;
+        case 14: return (DAYS_BETWEEN_1970_2000+(long)i[idx])*MILLS_IN_DAY;
+        case 15: return MILLS_BETWEEN_1970_2000+Math.round(8.64e7*f[idx]);
+        case 16: return j[idx]/1000000L;
+        case 17: return i[idx]*60000L;
+        case 18: return i[idx]*1000L;
+        default: return i[idx];
+      }
+    }
+    /** @return The equivalent object array, e.g. Instant[] for timestamps. */
+    public Object toArray(){
+      int n=length();
+      Object a=Array.newInstance(NULL[type].getClass(),n);
+      for(int idx=0;idx<n;idx++)
+        Array.set(a,idx,get(idx));
+      return a;
+    }
+  }
   /**
    * {@code Dict} represents the kdb+ dictionary type, which is a mapping from a key list to a value list.
    * The two lists must have the same count.
@@ -584,6 +684,37 @@ private static char[][] toChars(final String[] monadics) {
 		}
 	}
   
+  /**
+   * Scratch buffers up to this size are kept per connection for reuse rather than allocated per message.
+   * Kept small as every open connection may hold two, larger messages get a fresh buffer that is dropped after use.
+   */
+  private static final int MAX_POOLED_BUFFER=1024*1024;
+  /** Reusable compression output scratch buffer and hash table, guarded by {@code outStream}. */
+  private byte[] zOut;
+  private final int[] zOutHash=new int[256];
+  /** Reusable buffer the next message is read or inflated into, guarded by {@code inStream}. */
+  private byte[] msgBuff;
+  private final int[] zInHash=new int[256];
+
+  /**
+   * @return a buffer of at least {@code len} bytes, reusing {@code pooled} where it is big enough.
+   * Buffers above {@link #MAX_POOLED_BUFFER} are always fresh so that one huge message doesn't pin its memory.
+   */
+  private static byte[] pooled(byte[] pooled,int len){
+    if(pooled!=null&&pooled.length>=len)
+      return pooled;
+    return new byte[len>MAX_POOLED_BUFFER?len:Math.max(len,Math.min(MAX_POOLED_BUFFER,pooled==null?0:pooled.length*2))];
+  }
+  /**
+   * @return buffer to read a message of {@code len} bytes into, only valid until the next message is read.
+   */
+  private byte[] msgBuffer(int len){
+    byte[] b=pooled(msgBuff,len);
+    if(b.length<=MAX_POOLED_BUFFER)
+      msgBuff=b;
+    return b;
+  }
+
   private void compress(){
     byte i=0;
     boolean g;
@@ -592,17 +723,20 @@ private static char[][] toChars(final String[] monadics) {
     int h0=0;
     int h=0;
     byte[] y=wBuff;
-    wBuff=new byte[y.length/2];
+    int e=y.length/2;
+    wBuff=pooled(zOut,e);
+    if(wBuff.length<=MAX_POOLED_BUFFER)
+      zOut=wBuff;
     int c=12;
     int d=c;
-    int e=wBuff.length;
     int p=0;
     int q;
     int r;
     int s0=0;
     int s=8;
     int t=wBuffPos;
-    int[] a=new int[256];
+    int[] a=zOutHash;
+    Arrays.fill(a,0);
     System.arraycopy(y,0,wBuff,0,4);
     wBuff[2]=1;
     wBuffPos=8;
@@ -646,30 +780,126 @@ private static char[][] toChars(final String[] monadics) {
     wBuffPos=d;
     wBuff=Arrays.copyOf(wBuff,wBuffPos);
   }
+  /**
+   * Size of the reusable window that compressed bytes are streamed through when inflating a message
+   * straight off the socket, so the compressed payload is never held in full alongside the result.
+   */
+  private static final int ZIP_WINDOW_SIZE=64*1024;
+  /** Source of compressed bytes, {@code null} when inflating a message already held in memory. */
+  private DataInputStream zIn;
+  /** Window of compressed bytes currently being inflated and the read position / end within it. */
+  private byte[] zBuff;
+  private int zBuffPos;
+  private int zBuffEnd;
+  /** Number of compressed bytes still to be pulled from {@code zIn} into the window. */
+  private int zRemaining;
+  /** Lazily created window reused across messages for this connection. */
+  private byte[] zWindow;
+
+  /**
+   * Read the next compressed byte, refilling the window from {@code zIn} once exhausted.
+   * @return next compressed byte as an unsigned int
+   */
+  private int zb(){
+    if(zBuffPos==zBuffEnd){
+      if(zIn==null||zRemaining==0)
+        throw new ArrayIndexOutOfBoundsException("compressed message truncated");
+      int len=Math.min(zBuff.length,zRemaining);
+      try{
+        zIn.readFully(zBuff,0,len);
+      }catch(IOException e){
+        throw new UncheckedIOException(e);
+      }
+      zRemaining-=len;
+      zBuffPos=0;
+      zBuffEnd=len;
+    }
+    return 0xff&zBuff[zBuffPos++];
+  }
+  /**
+   * Inflate the compressed message held in {@code rBuff} into a buffer of its uncompressed size.
+   */
   private void uncompress(){
+    int len=ri();
+    byte[] dst=msgBuffer(len);
+    zIn=null;
+    zBuff=rBuff;
+    zBuffPos=rBuffPos;
+    zBuffEnd=rBuff.length;
+    uncompress(dst,len);
+    rBuff=dst;
+    rBuffPos=8;
+  }
+  /**
+   * Inflate a compressed message while it is still arriving on {@code in}, decoding through a reusable
+   * window rather than first reading the whole compressed payload into memory.
+   * @param header The 8 byte message header already read from {@code in}
+   * @param in stream positioned directly after the header
+   * @return the uncompressed message including its header, flagged as no longer compressed
+   * @throws IOException if an I/O error occurs.
+   */
+  private byte[] uncompress(byte[] header,DataInputStream in) throws IOException{
+    rBuff=header;
+    rBuffPos=4;
+    int compressedLength=ri();
+    in.readFully(header,4,4); // the first 4 bytes of the body hold the uncompressed length
+    rBuffPos=4;
+    int len=ri();
+    byte[] dst=msgBuffer(len);
+    System.arraycopy(header,0,dst,0,4);
+    dst[2]=0;
+    if(zWindow==null)
+      zWindow=new byte[ZIP_WINDOW_SIZE];
+    zIn=in;
+    zBuff=zWindow;
+    zBuffPos=0;
+    zBuffEnd=0;
+    zRemaining=compressedLength-12;
+    try{
+      uncompress(dst,len);
+    }catch(UncheckedIOException e){
+      throw e.getCause();
+    }finally{
+      zIn=null;
+      zBuff=null;
+    }
+    while(zRemaining>0){ // keep the stream aligned on the next message even if trailing bytes were unused
+      int skip=Math.min(zWindow.length,zRemaining);
+      in.readFully(zWindow,0,skip);
+      zRemaining-=skip;
+    }
+    return dst;
+  }
+  /**
+   * Inflate the kdb+ IPC compressed bytes provided by {@link #zb()} into {@code dst}, starting after its header.
+   * @param dst buffer of at least the full uncompressed message length
+   * @param end uncompressed message length
+   */
+  private void uncompress(byte[] dst,int end){
     int n=0;
     int r=0;
     int f=0;
     int s=8;
     int p=s;
     short i=0;
-    byte[] dst=new byte[ri()];
-    int d=rBuffPos;
-    int[] aa=new int[256];
-    while(s<dst.length){
+    int[] aa=zInHash;
+    Arrays.fill(aa,0);
+    while(s<end){
       if(i==0){
-        f=0xff&(int)rBuff[d++];
+        f=zb();
         i=1;
       }
       if((f&i)!=0){
-        r=aa[0xff&(int)rBuff[d++]];
-        dst[s++]=dst[r++];
-        dst[s++]=dst[r++];
-        n=0xff&(int)rBuff[d++];
-        for(int m=0;m<n;m++)
-          dst[s+m]=dst[r+m];
+        r=aa[zb()];
+        n=zb();
+        if(r+n+2<=s) // a run that doesn't overlap its source can be block copied
+          System.arraycopy(dst,r,dst,s,n+2);
+        else // overlapping runs repeat the bytes just written so must be copied in order
+          for(int m=0;m<n+2;m++)
+            dst[s+m]=dst[r+m];
+        s+=2;
       }else
-        dst[s++]=rBuff[d++];
+        dst[s++]=(byte)zb();
       while(p<s-1)
         aa[(0xff&(int)dst[p])^(0xff&(int)dst[p+1])]=p++;
       if((f&i)!=0)
@@ -678,8 +908,6 @@ private static char[][] toChars(final String[] monadics) {
       if(i==256)
         i=0;
     }
-    rBuff=dst;
-    rBuffPos=8;
   }
   /**
    * Write byte to serialization buffer and increment buffer position
@@ -891,7 +1119,9 @@ private static char[][] toChars(final String[] monadics) {
    * @return Deserialized date
    */
   LocalDate rd(){
-    int dateAsInt=ri();
+    return toLocalDate(ri());
+  }
+  private static LocalDate toLocalDate(int dateAsInt){
     return (dateAsInt==ni?LocalDate.MIN:LocalDate.ofEpochDay(10957L+dateAsInt));
   }
   /**
@@ -913,7 +1143,9 @@ private static char[][] toChars(final String[] monadics) {
    * @return Deserialized time
    */
   LocalTime rt(){
-    int timeAsInt=ri();
+    return toLocalTime(ri());
+  }
+  private static LocalTime toLocalTime(int timeAsInt){
      return (timeAsInt==ni?LOCAL_TIME_NULL:LocalDateTime.ofInstant(Instant.ofEpochMilli(timeAsInt),ZoneId.of("UTC")).toLocalTime());
   }
   private static long toEpochSecond(LocalTime t,LocalDate d,ZoneOffset o){
@@ -934,7 +1166,9 @@ private static char[][] toChars(final String[] monadics) {
    * @return Deserialized date
    */
   LocalDateTime rz(){
-    double f=rf();
+    return toLocalDateTime(rf());
+  }
+  private static LocalDateTime toLocalDateTime(double f){
     if(Double.isNaN(f))
       return LocalDateTime.MIN;
     return LocalDateTime.ofInstant(Instant.ofEpochMilli(MILLS_BETWEEN_1970_2000+Math.round(8.64e7*f)), ZoneId.of("UTC"));
@@ -951,7 +1185,9 @@ private static char[][] toChars(final String[] monadics) {
    * @return Deserialized timestamp
    */
   Instant rp(){
-    long timeAsLong=rj();
+    return toInstant(rj());
+  }
+  private static Instant toInstant(long timeAsLong){
     if(timeAsLong==nj)
       return Instant.MIN;
     long d=timeAsLong<0?(timeAsLong+1)/NANOS_IN_SEC-1:timeAsLong/NANOS_IN_SEC;
@@ -976,6 +1212,66 @@ private static char[][] toChars(final String[] monadics) {
     while(rBuff[rBuffPos++]!=0);
     return (startPos==rBuffPos-1)?"":new String(rBuff,startPos,rBuffPos-1-startPos,encoding);
   }
+  /**
+   * Deserialize symbol from byte buffer, reusing a previously decoded equal String if interning is enabled.
+   * @return Deserialized string using registered encoding
+   * @throws UnsupportedEncodingException If there is an issue with the registed encoding
+   */
+  String rsym() throws UnsupportedEncodingException{
+    if(symbolCache==null)
+      return rs();
+    int startPos=rBuffPos;
+    while(rBuff[rBuffPos++]!=0);
+    int len=rBuffPos-1-startPos;
+    return len==0?"":symbolCache.get(rBuff,startPos,len);
+  }
+  /**
+   * Bounded, direct mapped table of symbols keyed by their encoded bytes. A lookup hashes the bytes in place
+   * so a repeated symbol costs no allocation. A new symbol evicts whichever symbol occupied its slot.
+   */
+  static final class SymbolCache{
+    static final int DEFAULT_SLOTS=1<<16;
+    /** Longer symbols are rarely repeated and would bloat the table. */
+    static final int MAX_SYMBOL_BYTES=128;
+    private final byte[][] keys;
+    private final String[] vals;
+    private final int mask;
+    private String cachedEncoding=encoding;
+    /**
+     * @param slots Number of slots, must be a power of two.
+     */
+    SymbolCache(int slots){
+      Preconditions.checkArgument(Integer.bitCount(slots)==1,"slots must be a power of two");
+      keys=new byte[slots][];
+      vals=new String[slots];
+      mask=slots-1;
+    }
+    String get(byte[] b,int off,int len) throws UnsupportedEncodingException{
+      if(len>MAX_SYMBOL_BYTES)
+        return new String(b,off,len,encoding);
+      if(!encoding.equals(cachedEncoding)){
+        Arrays.fill(keys,null);
+        Arrays.fill(vals,null);
+        cachedEncoding=encoding;
+      }
+      int h=len;
+      for(int i=off;i<off+len;i++)
+        h=31*h+b[i];
+      int slot=(h^(h>>>16))&mask;
+      byte[] k=keys[slot];
+      if(k!=null&&k.length==len){
+        int i=0;
+        while(i<len&&k[i]==b[off+i])
+          i++;
+        if(i==len)
+          return vals[slot];
+      }
+      String str=new String(b,off,len,encoding);
+      keys[slot]=Arrays.copyOfRange(b,off,off+len);
+      vals[slot]=str;
+      return str;
+    }
+  }
   /**
    * Write String to serialization buffer
    * @param s String to serialize
@@ -1020,7 +1316,7 @@ private static char[][] toChars(final String[] monadics) {
         case -10:
           return rc();
         case -11:
-          return rs();
+          return rsym();
         case -12:
           return rp();
         case -13:
@@ -1097,6 +1393,8 @@ private static char[][] toChars(final String[] monadics) {
     if(t==98)
       return new Flip((Dict)r());
     n=ri();
+    if(primitiveTemporals&&t>=12&&t<=19)
+      return rTemporal(t,n);
     switch(t){
       case 0:
         Object[] objArr=new Object[n];
@@ -1114,35 +1412,19 @@ private static char[][] toChars(final String[] monadics) {
           uuidArr[i]=rg();
         return uuidArr;
       case 4:
-        byte[] byteArr=new byte[n];
-        for(;i<n;i++)
-          byteArr[i]=rBuff[rBuffPos++];
+        byte[] byteArr=Arrays.copyOfRange(rBuff,rBuffPos,rBuffPos+n);
+        rBuffPos+=n;
         return byteArr;
       case 5:
-        short[] shortArr=new short[n];
-        for(;i<n;i++)
-          shortArr[i]=rh();
-        return shortArr;
+        return rhv(n);
       case 6:
-        int[] intArr=new int[n];
-        for(;i<n;i++)
-          intArr[i]=ri();
-        return intArr;
+        return riv(n);
       case 7:
-        long[] longArr=new long[n];
-        for(;i<n;i++)
-          longArr[i]=rj();
-        return longArr;
+        return rjv(n);
       case 8:
-        float[] floatArr=new float[n];
-        for(;i<n;i++)
-          floatArr[i]=re();
-        return floatArr;
+        return rev(n);
       case 9:
-        double[] doubleArr=new double[n];
-        for(;i<n;i++)
-          doubleArr[i]=rf();
-        return doubleArr;
+        return rfv(n);
       case 10:
         char[] charArr=new String(rBuff,rBuffPos,n,encoding).toCharArray();
         rBuffPos+=n;
@@ -1150,47 +1432,55 @@ private static char[][] toChars(final String[] monadics) {
       case 11:
         String[] stringArr=new String[n];
         for(;i<n;i++)
-          stringArr[i]=rs();
+          stringArr[i]=rsym();
         return stringArr;
       case 12:
         Instant[] timestampArr=new Instant[n];
+        long[] timestamps=rjv(n);
         for(;i<n;i++)
-          timestampArr[i]=rp();
+          timestampArr[i]=toInstant(timestamps[i]);
         return timestampArr;
       case 13:
         Month[] monthArr=new Month[n];
+        int[] months=riv(n);
         for(;i<n;i++)
-          monthArr[i]=rm();
+          monthArr[i]=new Month(months[i]);
         return monthArr;
       case 14:
         LocalDate[] dateArr=new LocalDate[n];
+        int[] dates=riv(n);
         for(;i<n;i++)
-          dateArr[i]=rd();
+          dateArr[i]=toLocalDate(dates[i]);
         return dateArr;
       case 15:
         LocalDateTime[] dateUtilArr=new LocalDateTime[n];
+        double[] datetimes=rfv(n);
         for(;i<n;i++)
-          dateUtilArr[i]=rz();
+          dateUtilArr[i]=toLocalDateTime(datetimes[i]);
         return dateUtilArr;
       case 16:
         Timespan[] timespanArr=new Timespan[n];
+        long[] timespans=rjv(n);
         for(;i<n;i++)
-          timespanArr[i]=rn();
+          timespanArr[i]=new Timespan(timespans[i]);
         return timespanArr;
       case 17:
         Minute[] minArr=new Minute[n];
+        int[] minutes=riv(n);
         for(;i<n;i++)
-          minArr[i]=ru();
+          minArr[i]=new Minute(minutes[i]);
         return minArr;
       case 18:
         Second[] secArr=new Second[n];
+        int[] seconds=riv(n);
         for(;i<n;i++)
-          secArr[i]=rv();
+          secArr[i]=new Second(seconds[i]);
         return secArr;
       case 19:
         LocalTime[] timeArr=new LocalTime[n];
+        int[] times=riv(n);
         for(;i<n;i++)
-          timeArr[i]=rt();
+          timeArr[i]=toLocalTime(times[i]);
         return timeArr;
       default:
         // do nothing, let it return null
@@ -1198,6 +1488,79 @@ private static char[][] toChars(final String[] monadics) {
     return null;
   }
 
+  /**
+   * Deserialize a temporal vector keeping the raw kdb+ values.
+   * @param t kdb+ type, 12 to 19
+   * @param n number of elements
+   * @return vector of primitives
+   */
+  TemporalVector rTemporal(int t,int n){
+    if(t==12||t==16)
+      return new TemporalVector(t,rjv(n),null,null);
+    if(t==15)
+      return new TemporalVector(t,null,null,rfv(n));
+    return new TemporalVector(t,null,riv(n),null);
+  }
+  /**
+   * View the next numBytes of the read buffer in the message's byte order and advance past them.
+   * Vectors are copied out of the view in bulk which the JIT turns into block copies rather than per element shifts.
+   */
+  private ByteBuffer rView(int numBytes){
+    ByteBuffer bb=ByteBuffer.wrap(rBuff,rBuffPos,numBytes).order(isLittleEndian?ByteOrder.LITTLE_ENDIAN:ByteOrder.BIG_ENDIAN);
+    rBuffPos+=numBytes;
+    return bb;
+  }
+  /**
+   * Deserialize short vector from byte buffer
+   * @param n number of elements
+   * @return Deserialized shorts
+   */
+  short[] rhv(int n){
+    short[] a=new short[n];
+    rView(2*n).asShortBuffer().get(a);
+    return a;
+  }
+  /**
+   * Deserialize int vector from byte buffer
+   * @param n number of elements
+   * @return Deserialized ints
+   */
+  int[] riv(int n){
+    int[] a=new int[n];
+    rView(4*n).asIntBuffer().get(a);
+    return a;
+  }
+  /**
+   * Deserialize long vector from byte buffer
+   * @param n number of elements
+   * @return Deserialized longs
+   */
+  long[] rjv(int n){
+    long[] a=new long[n];
+    rView(8*n).asLongBuffer().get(a);
+    return a;
+  }
+  /**
+   * Deserialize float vector from byte buffer
+   * @param n number of elements
+   * @return Deserialized floats
+   */
+  float[] rev(int n){
+    float[] a=new float[n];
+    rView(4*n).asFloatBuffer().get(a);
+    return a;
+  }
+  /**
+   * Deserialize double vector from byte buffer
+   * @param n number of elements
+   * @return Deserialized doubles
+   */
+  double[] rfv(int n){
+    double[] a=new double[n];
+    rView(8*n).asDoubleBuffer().get(a);
+    return a;
+  }
+
 //object.getClass().isArray()   t(int[]) is .5 isarray is .1 lookup .05
   /**
    * Gets the numeric type of the supplied object used in kdb+ (distict supported data types in KDB+ can be identified by a numeric).&nbsp;
@@ -1243,6 +1606,8 @@ private static char[][] toChars(final String[] monadics) {
       return -17;
     if (x instanceof Second)
       return -18;
+    if (x instanceof TemporalVector)
+      return ((TemporalVector)x).type;
     if (x instanceof boolean[])
       return 1;
     if (x instanceof UUID[])
@@ -1313,6 +1678,8 @@ private static char[][] toChars(final String[] monadics) {
    * @throws UnsupportedEncodingException  If the named charset is not supported
    */
   public static int n(final Object x) throws UnsupportedEncodingException{
+    if (x instanceof TemporalVector)
+      return ((TemporalVector)x).length();
     if (x instanceof Dict)
       return n(((Dict)x).x);
     if (x instanceof Flip)
@@ -1326,6 +1693,8 @@ private static char[][] toChars(final String[] monadics) {
    * @throws UnsupportedEncodingException  If the named charset is not supported
    */
   public int nx(Object x) throws UnsupportedEncodingException{
+    if(x instanceof TemporalVector)
+      x=((TemporalVector)x).toArray();
     int type=t(x);
     if(type==99)
       return 1+nx(((Dict)x).x)+nx(((Dict)x).y);
@@ -1348,6 +1717,8 @@ private static char[][] toChars(final String[] monadics) {
    * @throws UnsupportedEncodingException If the named charset (encoding) is not supported
    */
   void w(Object x) throws UnsupportedEncodingException{
+    if(x instanceof TemporalVector)
+      x=((TemporalVector)x).toArray();
     int i=0;
     int n;
     int type=t(x);
@@ -1509,12 +1880,16 @@ private static char[][] toChars(final String[] monadics) {
       rBuffPos=8;      
       if(compressed)
         uncompress();
-      if(rBuff[8]==-128){
-        rBuffPos=9;
-        throw new KException(rs());
+      try{
+        if(rBuff[8]==-128){
+          rBuffPos=9;
+          throw new KException(rs());
+        }
+        return r(); // deserialize the message
+      }finally{
+        rBuff=null; // don't pin the last, possibly very large, message in memory between calls
       }
-      return r(); // deserialize the message
-    }    
+    }
   }
 
   /**
@@ -1526,6 +1901,7 @@ private static char[][] toChars(final String[] monadics) {
   protected void w(int msgType,Object x) throws IOException{
     synchronized(outStream){
       byte[] buffer=serialize(msgType,x,zip);
+      wBuff=null; // release the request buffer, only the caller's reference is needed to send it
       outStream.write(buffer,0,buffer.length);
     }
   }
@@ -1632,15 +2008,23 @@ private static char[][] toChars(final String[] monadics) {
    */
   public Object[] readMsg() throws KException,IOException,UnsupportedEncodingException{
     synchronized(inStream){
-      rBuff=new byte[8];
-      inStream.readFully(rBuff); // read the msg header
-      isLittleEndian=rBuff[0]==1;  // endianness of the msg
-      if(rBuff[1]==1) // msg types are 0 - async, 1 - sync, 2 - response
+      byte[] header=new byte[8];
+      inStream.readFully(header); // read the msg header
+      isLittleEndian=header[0]==1;  // endianness of the msg
+      if(header[1]==1) // msg types are 0 - async, 1 - sync, 2 - response
         sync++;   // an incoming sync message means the remote will expect a response message
-      rBuffPos=4;
-      rBuff=Arrays.copyOf(rBuff,ri());
-      inStream.readFully(rBuff,8,rBuff.length-8); // read the incoming message in full
-      return new Object[]{rBuff[1],deserialize(rBuff)};
+      byte[] msg;
+      if(header[2]==1){
+        msg=uncompress(header,inStream); // inflate as it arrives rather than buffering the compressed bytes
+      }else{
+        rBuff=header;
+        rBuffPos=4;
+        int len=ri();
+        msg=msgBuffer(len);
+        System.arraycopy(header,0,msg,0,8);
+        inStream.readFully(msg,8,len-8); // read the incoming message in full
+      }
+      return new Object[]{header[1],deserialize(msg)};
     }
   }
   /**
@@ -1716,14 +2100,145 @@ private static char[][] toChars(final String[] monadics) {
    * @throws IOException if an I/O error occurs.
    */
   public synchronized Object k(Object x) throws KException,IOException{
-    w(1,x);
-    if(collectResponseAsync)
-      return null;
-    while(true){
-      Object[]msg=readMsg();
-      if(msgHandler==null||(byte)msg[0]==(byte)2) // if there's no handler or the msg is a response msg, return it
-        return msg[1];
-      msgHandler.processMsg(this,(byte)msg[0],msg[1]); // process async and sync requests
+    OutputStream lock=outStream;
+    if(lock==null)
+      throw new IOException("connection closed",readerFailure);
+    synchronized(lock){ // the lock kAsync starts its reader under, so no reader can start while this call reads its response
+      if(responseReader==null){
+        w(1,x);
+        if(collectResponseAsync)
+          return null;
+        while(true){
+          Object[]msg=readMsg();
+          if(msgHandler==null||(byte)msg[0]==(byte)2) // if there's no handler or the msg is a response msg, return it
+            return msg[1];
+          msgHandler.processMsg(this,(byte)msg[0],msg[1]); // process async and sync requests
+        }
+      }
+    }
+    // once pipelining has started only the reader thread may consume responses, await outside the lock the reader fails requests under
+    return await(kAsync(x));
+  }
+  /**
+   * Sync requests that have been sent but whose response has not yet arrived, in the order they were sent.
+   * kdb+ answers sync requests on a connection in order, so the head of the queue owns the next response.
+   */
+  private final Queue<CompletableFuture<Object>> pendingResponses=new ConcurrentLinkedQueue<>();
+  /** Thread dispatching responses to {@link #pendingResponses}, started by the first {@link #kAsync(Object)} call. */
+  private volatile Thread responseReader;
+  /** Why the reader thread stopped, once set no more responses will be read so new requests fail immediately. */
+  private volatile IOException readerFailure;
+
+  /**
+   * Sends a sync message to the remote kdb+ process without waiting for the response, allowing multiple requests to be
+   * in flight on the one connection. Responses are read by a dedicated reader thread and complete the returned futures in
+   * the order the requests were sent. Once called, any later {@link #k(Object)} calls on this connection are also
+   * routed through the reader thread.
+   * @param x The object to send
+   * @return future completed with the deserialised response, or exceptionally with a {@link KException} if request
+   * evaluation resulted in an error, or an {@link IOException} if the connection failed.
+   */
+  public CompletableFuture<Object> kAsync(Object x){
+    CompletableFuture<Object> response=new CompletableFuture<>();
+    try{
+      OutputStream lock=outStream;
+      if(readerFailure!=null||lock==null)
+        throw new IOException("connection closed",readerFailure);
+      synchronized(lock){ // queue and send under the one lock so queue order always matches wire order
+        if(readerFailure!=null) // checked under the lock the reader fails pending requests with, so none can be left waiting
+          throw new IOException("connection closed",readerFailure);
+        startResponseReader(lock);
+        pendingResponses.add(response);
+        w(1,x);
+      }
+    }catch(IOException|RuntimeException e){
+      pendingResponses.remove(response);
+      response.completeExceptionally(e);
+    }
+    return response;
+  }
+  /**
+   * Sends a sync message to the remote kdb+ process without waiting for the response.
+   * @param expr The expression to send
+   * @return future completed with the deserialised response
+   * @see #kAsync(Object)
+   */
+  public CompletableFuture<Object> kAsync(String expr){
+    return kAsync(expr.toCharArray());
+  }
+  private void startResponseReader(OutputStream lock){
+    if(responseReader==null){
+      if(collectResponseAsync)
+        throw new IllegalStateException("kAsync cannot be used once setCollectResponseAsync is set");
+      Thread t=new Thread(()->readResponses(lock),"kdb-response-reader-"+host+":"+port);
+      t.setDaemon(true);
+      responseReader=t;
+      t.start();
+    }
+  }
+  /**
+   * Reader thread loop, hands each response to the oldest pending request until the connection fails or closes.
+   * On failure the connection is closed and every pending and later request fails.
+   * @param lock The output stream requests are queued and sent under.
+   */
+  private void readResponses(OutputStream lock){
+    try{
+      while(true){
+        Object[] msg;
+        try{
+          msg=readMsg();
+        }catch(KException e){
+          CompletableFuture<Object> f=pendingResponses.poll();
+          if(f!=null)
+            f.completeExceptionally(e);
+          continue;
+        }
+        if(msgHandler!=null&&(byte)msg[0]!=(byte)2){
+          msgHandler.processMsg(this,(byte)msg[0],msg[1]); // process async and sync requests
+          continue;
+        }
+        CompletableFuture<Object> f=pendingResponses.poll();
+        if(f!=null)
+          f.complete(msg[1]);
+      }
+    }catch(Exception e){
+      IOException ioe=e instanceof IOException?(IOException)e:new IOException("connection closed",e);
+      synchronized(lock){
+        readerFailure=ioe;
+        CompletableFuture<Object> f;
+        while((f=pendingResponses.poll())!=null)
+          f.completeExceptionally(ioe);
+      }
+      try{
+        close();
+      }catch(IOException|RuntimeException ignored){
+        // already failed or closed by the caller, nothing more to do
+      }
+    }
+  }
+  /**
+   * @return true if {@link #kAsync(Object)} was used and its response reader has since stopped because the
+   * connection failed or was closed, no further requests can be answered.
+   */
+  public boolean isPipelineFailed(){
+    return readerFailure!=null;
+  }
+  /**
+   * Block until a response future completes, unwrapping its failure to the exceptions thrown by {@link #k(Object)}.
+   */
+  private static Object await(CompletableFuture<Object> response) throws KException,IOException{
+    try{
+      return response.get();
+    }catch(InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted awaiting response");
+    }catch(ExecutionException e){
+      Throwable cause=e.getCause();
+      if(cause instanceof KException)
+        throw (KException)cause;
+      if(cause instanceof IOException)
+        throw (IOException)cause;
+      throw new IOException(cause);
     }
   }
   /**
@@ -1820,6 +2335,10 @@ private static char[][] toChars(final String[] monadics) {
    * a KDB+ null value for its type 
    */
   public static Object at(Object x,int i){
+    if(x instanceof TemporalVector){
+      TemporalVector v=(TemporalVector)x;
+      return v.isNull(i)?null:v.get(i);
+    }
     x=Array.get(x,i);
     return qn(x)?null:x;
   }
@@ -142,7 +142,10 @@ public Connection connect(String s,Properties p)throws SQLException{
 //	} catch (ClassNotFoundException | NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
 //		e.printStackTrace();
 //	}
-	return new co(hpe,u,pas, true);
+	co conn = new co(hpe,u,pas, true);
+	// Opt-in as results are then only understood by this driver and kx.c helpers, not code expecting Instant[] etc.
+	conn.c.setPrimitiveTemporals(p!=null && Boolean.parseBoolean(p.getProperty("primitiveTemporals")));
+	return conn;
 }
 public DriverPropertyInfo[]getPropertyInfo(String s,Properties p)throws SQLException{return new DriverPropertyInfo[0];}
 static{try{DriverManager.registerDriver(new jdbc());}catch(Exception e){O(e.getMessage());}}
@@ -723,9 +726,22 @@ private static class rs implements ResultSet,ExtendedResultSet{
 
 		public Object getObject(int i) throws SQLException {
 			o = c.at(d[i - 1], r);
+			return toJava(o, i - 1);
+		}
+
+		@Override public int getRowCount() { return streamed ? -1 : n; }
+
+		@Override public Object getObjectAt(int row, int column) throws SQLException {
+			return toJava(c.at(d[column], row), column);
+		}
+
+		@Override public Object getColumnArray(int column) { return streamed ? null : d[column]; }
+
+		/** Convert a kdb value from column col into the object handed out by getObject. */
+		private Object toJava(Object o, int col) {
 			if(o instanceof char[]) {
 				return new String((char[]) o);
-			} else if(c.t(d[i - 1]) == 0 && toStringer != null && o!=null && !o.getClass().isArray()) {
+			} else if(c.t(d[col]) == 0 && toStringer != null && o!=null && !o.getClass().isArray()) {
 				return toStringer.asLine(o);
 			}
 			if(o instanceof Month) {
@@ -745,13 +761,37 @@ private static class rs implements ResultSet,ExtendedResultSet{
  public byte getByte(int i)throws SQLException{return((Byte)getObject(i)).byteValue();}
  public short getShort(int i)throws SQLException{Object x=getObject(i);return x==null?0:((Short)x).shortValue();}
  public int getInt(int i)throws SQLException{Object x=getObject(i);return x==null?0:x instanceof Integer?((Integer)x).intValue():((Short)x).intValue();}
- public long getLong(int i)throws SQLException{Object x=getObject(i);return x==null?0:((Long)x).longValue();}
+ public long getLong(int i)throws SQLException{
+   if(d[i-1] instanceof c.TemporalVector){ // raw kdb+ value, e.g. nanos since 2000 for timestamps
+     c.TemporalVector v=(c.TemporalVector)d[i-1];
+     if(v.isNull(r)){o=null;return 0;}
+     o=v;
+     return v.j!=null?v.j[r]:v.i!=null?v.i[r]:(long)v.f[r];
+   }
+   Object x=getObject(i);return x==null?0:((Long)x).longValue();}
  public float getFloat(int i)throws SQLException{Object x=getObject(i);return x==null?0:((Float)x).floatValue();}
  public double getDouble(int i)throws SQLException{Object x=getObject(i);return x==null?0:((Double)x).doubleValue();}
  public String getString(int i)throws SQLException{Object x=getObject(i);return x==null?null:x.toString();}
- public Date getDate(int i)throws SQLException{return(Date)getObject(i);}
+ public Date getDate(int i)throws SQLException{
+   if(d[i-1] instanceof c.TemporalVector){
+     c.TemporalVector v=(c.TemporalVector)d[i-1];
+     if(v.isNull(r)){o=null;return null;}
+     o=v;
+     return Date.valueOf(java.time.LocalDate.ofEpochDay(Math.floorDiv(v.getMillis(r),86400000L)));
+   }
+   return(Date)getObject(i);}
  public Time getTime(int i)throws SQLException{return(Time)getObject(i);}
- public Timestamp getTimestamp(int i)throws SQLException{Object obj=getObject(i);return obj instanceof java.util.Date?new Timestamp(((java.util.Date)obj).getTime()):(Timestamp)obj;}
+ public Timestamp getTimestamp(int i)throws SQLException{
+   if(d[i-1] instanceof c.TemporalVector){ // straight from the primitive, wasNull() is non-null via o
+     c.TemporalVector v=(c.TemporalVector)d[i-1];
+     if(v.isNull(r)){o=null;return null;}
+     o=v;
+     Timestamp ts=new Timestamp(v.getMillis(r));
+     if(v.type==12)
+       ts.setNanos((int)Math.floorMod(v.j[r],1000000000L));
+     return ts;
+   }
+   Object obj=getObject(i);return obj instanceof java.util.Date?new Timestamp(((java.util.Date)obj).getTime()):(Timestamp)obj;}
  public byte[]getBytes(int i)throws SQLException{q();return null;}
  @Deprecated
  public BigDecimal getBigDecimal(int i,int scale)throws SQLException{q();return null;}
@@ -1280,11 +1320,20 @@ public static interface ExtendedResultSet extends ResultSet {
 	public int getKeyedColumnCount();
 	public ExtendedResultSet getNestedResultSetAt(int modelRow, int modelCol);
 	public String getName();
+	/** @return Number of rows if all are held in memory and readable by {@link #getObjectAt(int, int)}, otherwise -1. */
+	public int getRowCount();
+	/** @return The value at the zero based row and column as getObject would return it, without moving the cursor. */
+	public Object getObjectAt(int row, int column) throws SQLException;
+	/** @return The kdb list holding a zero based column if all rows are held in memory, otherwise null. It must not be modified. */
+	public Object getColumnArray(int column);
 }
 
 
 // @Ryan added to improve display of kdb data structures in Pulse
 private static ExtendedResultSet convertToTable(Object k, String name) throws SQLException {
+	 if(k instanceof c.TemporalVector) {
+		 k = ((c.TemporalVector)k).toArray();
+	 }
 	 if(k instanceof c.Flip || (k instanceof c.Dict && ((c.Dict)k).y instanceof c.Flip)) {
 		 return new rs(null, new Object[] {false,k}, name);
 	 } else if(k instanceof c.Dict) {
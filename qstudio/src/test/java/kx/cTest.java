@@ -0,0 +1,77 @@
+package kx;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+public class cTest {
+
+	@Test public void testCompressOverlappingRuns() throws Exception {
+		// a repeated byte is matched against the bytes just written so each run overlaps its source
+		byte[] b = new byte[50_000];
+		Arrays.fill(b, (byte) 7);
+		checkRoundTrip(b);
+	}
+
+	@Test public void testCompressNonOverlappingRuns() throws Exception {
+		// a random block repeated further back than the longest run, each run is copied from well before it
+		byte[] block = new byte[1000];
+		new Random(1).nextBytes(block);
+		byte[] b = new byte[50_000];
+		for(int i = 0; i < b.length; i++) {
+			b[i] = block[i % block.length];
+		}
+		checkRoundTrip(b);
+	}
+
+	@Test public void testCompressMixedRuns() throws Exception {
+		Random r = new Random(2);
+		byte[] b = new byte[200_000];
+		for(int i = 0; i < b.length;) {
+			int len = Math.min(b.length - i, 1 + r.nextInt(600));
+			switch(r.nextInt(3)) {
+				case 0: Arrays.fill(b, i, i + len, (byte) r.nextInt()); break;
+				case 1: len = Math.min(len, 20); for(int j = 0; j < len; j++) { b[i + j] = (byte) r.nextInt(); } break;
+				default:
+					int from = r.nextInt(i + 1);
+					for(int j = 0; j < len; j++) { b[i + j] = b[from + j]; }
+			}
+			i += len;
+		}
+		checkRoundTrip(b);
+	}
+
+	@Test public void testCompressObjects() throws Exception {
+		String[] syms = new String[20_000];
+		long[] longs = new long[20_000];
+		for(int i = 0; i < syms.length; i++) {
+			syms[i] = "sym" + (i % 37);
+			longs[i] = i / 10;
+		}
+		c c = new c();
+		Object[] actual = (Object[]) c.deserialize(compressed(c, new Object[] { syms, longs }));
+		assertArrayEquals(syms, (String[]) actual[0]);
+		assertArrayEquals(longs, (long[]) actual[1]);
+	}
+
+	private static void checkRoundTrip(byte[] expected) throws Exception {
+		c c = new c();
+		assertArrayEquals(expected, (byte[]) c.deserialize(compressed(c, expected)));
+		// reuse of the connection's pooled buffers must not leak state between messages
+		assertArrayEquals(expected, (byte[]) c.deserialize(compressed(c, expected)));
+	}
+
+	private static byte[] compressed(c c, Object x) throws Exception {
+		byte[] msg = c.serialize(1, x, true);
+		assertEquals("message was compressed", 1, msg[2]);
+		assertTrue(msg.length < c.serialize(1, x, false).length);
+		return msg;
+	}
+
+}